@@ -0,0 +1,204 @@
+package com.residuesolution.pos.archive;
+
+import com.residuesolution.pos.entity.InventoryLogEntity;
+import com.residuesolution.pos.repository.InventoryLogRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Cold tier for inventory logs: rows older than the retention horizon are moved out of the
+// inventory_logs table into immutable segment files and read back through memory-mapped segments.
+@Component
+@Slf4j
+public class InventoryLogArchive {
+
+    private final InventoryLogRepository inventoryLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final int retentionDays;
+    private final int batchSize;
+
+    // Ordered by id range, oldest first
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock archiveLock = new ReentrantLock();
+
+    public InventoryLogArchive(InventoryLogRepository inventoryLogRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${pos.inventory-log.archive.enabled:false}") boolean enabled,
+                               @Value("${pos.inventory-log.archive.directory:data/inventory-log-archive}") String directory,
+                               @Value("${pos.inventory-log.archive.retention-days:365}") int retentionDays,
+                               @Value("${pos.inventory-log.archive.batch-size:50000}") int batchSize) {
+        this.inventoryLogRepository = inventoryLogRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void loadSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        List<LogSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file); // Left over by a crash mid-write, never made it under its final name
+                } else if (name.endsWith(".ilseg")) {
+                    loaded.add(LogSegment.open(file));
+                }
+            }
+        }
+
+        loaded.sort(Comparator.comparingInt(LogSegment::getMinId));
+        segments.addAll(loaded);
+        log.info("Loaded {} inventory log archive segments from {}", loaded.size(), directory);
+    }
+
+    // Nightly by default; a no-op unless archiving is enabled
+    @Scheduled(cron = "${pos.inventory-log.archive.cron:0 30 3 * * *}")
+    public void runScheduledArchive() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    // Moves every log created before the retention horizon (a day boundary) into new segments
+    public int archive() {
+        if (!archiveLock.tryLock()) {
+            log.info("Inventory log archiving already running, skipping");
+            return 0;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            finishPendingDelete();
+
+            LocalDateTime cutoff = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+            int archived = 0;
+
+            while (true) {
+                List<InventoryLogEntity> batch =
+                        inventoryLogRepository.findArchivable(cutoff, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                // File first, then delete: a crash in between leaves rows in both tiers (deduplicated
+                // on read and deleted on the next run), never in neither
+                LogSegment segment = LogSegment.write(directory, batch, cutoff);
+                segments.add(segment);
+                deleteArchivedRows(segment);
+                archived += batch.size();
+
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+
+            log.info("Archived {} inventory logs created before {}", archived, cutoff);
+            return archived;
+
+        } catch (IOException e) {
+            log.error("Error archiving inventory logs: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    // Archived logs of a product (null = all products) created within [startDate, endDate], newest first
+    public List<InventoryLogEntity> findLogs(Integer productId, LocalDateTime startDate, LocalDateTime endDate) {
+        List<InventoryLogEntity> result = new ArrayList<>();
+        for (LogSegment segment : segments) {
+            segment.scan(productId, startDate, endDate, result::add);
+        }
+
+        result.sort(Comparator.comparing(InventoryLogEntity::getCreatedAt)
+                .thenComparing(InventoryLogEntity::getId).reversed());
+        return result;
+    }
+
+    // Net default-location quantity change for a product after afterId up to asOf, over both tiers. A log left
+    // in the table by an interrupted archive run is counted once, from its segment. The segment list is read
+    // before the table and the read is retried if a segment was added meanwhile, so a batch archived and
+    // deleted in between is never missed
+    public long sumQuantityAfterId(Integer productId, Integer afterId, LocalDateTime asOf, Integer defaultLocationId) {
+        while (true) {
+            List<LogSegment> archived = List.copyOf(segments);
+
+            // Nothing archived: no row has an ID of 0 or less, so the cutoff passed along doesn't matter
+            int archivedThroughId = 0;
+            LocalDateTime archivedBefore = asOf;
+            for (LogSegment segment : archived) {
+                archivedThroughId = Math.max(archivedThroughId, segment.getMaxId());
+            }
+            if (!archived.isEmpty()) {
+                archivedBefore = archived.stream().map(LogSegment::getCutoff).max(Comparator.naturalOrder()).orElseThrow();
+            }
+
+            Long hot = inventoryLogRepository.sumQuantityForProductAfterId(productId, afterId, asOf, defaultLocationId,
+                    archivedThroughId, archivedBefore);
+            if (segments.size() != archived.size()) {
+                continue;
+            }
+
+            long sum = hot != null ? hot : 0;
+            for (LogSegment segment : archived) {
+                if (segment.getMaxId() > afterId) {
+                    sum += segment.sumQuantity(productId, afterId, asOf, defaultLocationId);
+                }
+            }
+            return sum;
+        }
+    }
+
+    // Logs created at or after this instant have never been archived (null = nothing archived yet)
+    public LocalDateTime getArchivedBefore() {
+        return segments.stream()
+                .map(LogSegment::getCutoff)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    // Re-run the delete for the newest segment in case the previous run died right after writing it
+    private void finishPendingDelete() {
+        if (!segments.isEmpty()) {
+            deleteArchivedRows(segments.get(segments.size() - 1));
+        }
+    }
+
+    private void deleteArchivedRows(LogSegment segment) {
+        Integer deleted = transactionTemplate.execute(status -> inventoryLogRepository.deleteArchived(
+                segment.getMinId(), segment.getMaxId(), segment.getCutoff()));
+        if (deleted != null && deleted > 0) {
+            log.debug("Deleted {} archived rows ({})", deleted, segment.getPath().getFileName());
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.residuesolution.pos.archive;
+
+import com.residuesolution.pos.entity.InventoryLogEntity;
+import com.residuesolution.pos.enums.InventoryChangeType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Immutable, memory-mapped segment of archived inventory logs.
+//
+// Layout: header | deflated blocks | sparse index | footer.
+// Rows are sorted by (productId, createdAt, id) and cut into blocks of at most BLOCK_ROWS rows of a
+// single product; the index holds one entry per block (product, time range, id range, position),
+// so a product/time query only inflates the blocks it overlaps.
+class LogSegment {
+
+    private static final int MAGIC = 0x494C5347; // "ILSG"
+    private static final int VERSION = 1;
+    private static final int BLOCK_ROWS = 512;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+    private static final int INDEX_ENTRY_BYTES = 4 + 8 + 8 + 4 + 4 + 8 + 4 + 4 + 4;
+    private static final int FOOTER_BYTES = 8 + 4 + 4;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final LocalDateTime cutoff;
+    private final int minId;
+    private final int maxId;
+
+    // Sparse index, one slot per block, sorted by (productId, minTime)
+    private final int[] productIds;
+    private final long[] minTimes;
+    private final long[] maxTimes;
+    private final int[] minIds;
+    private final int[] maxIds;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final int[] rowCounts;
+
+    private LogSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+
+        int size = buffer.capacity();
+        if (size < HEADER_BYTES + FOOTER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not an inventory log segment: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported segment version " + buffer.getInt(4) + ": " + path);
+        }
+
+        this.cutoff = fromMicros(buffer.getLong(8));
+        this.minId = buffer.getInt(16);
+        this.maxId = buffer.getInt(20);
+
+        long indexOffset = buffer.getLong(size - FOOTER_BYTES);
+        int blocks = buffer.getInt(size - FOOTER_BYTES + 8);
+
+        this.productIds = new int[blocks];
+        this.minTimes = new long[blocks];
+        this.maxTimes = new long[blocks];
+        this.minIds = new int[blocks];
+        this.maxIds = new int[blocks];
+        this.offsets = new long[blocks];
+        this.compressedLengths = new int[blocks];
+        this.rawLengths = new int[blocks];
+        this.rowCounts = new int[blocks];
+
+        int pos = Math.toIntExact(indexOffset);
+        for (int i = 0; i < blocks; i++, pos += INDEX_ENTRY_BYTES) {
+            productIds[i] = buffer.getInt(pos);
+            minTimes[i] = buffer.getLong(pos + 4);
+            maxTimes[i] = buffer.getLong(pos + 12);
+            minIds[i] = buffer.getInt(pos + 20);
+            maxIds[i] = buffer.getInt(pos + 24);
+            offsets[i] = buffer.getLong(pos + 28);
+            compressedLengths[i] = buffer.getInt(pos + 36);
+            rawLengths[i] = buffer.getInt(pos + 40);
+            rowCounts[i] = buffer.getInt(pos + 44);
+        }
+    }
+
+    static LogSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new LogSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Writes the logs (all created before cutoff) to a new segment; the file only appears under
+    // its final name once fully written and synced, so readers never see a partial segment.
+    static LogSegment write(Path directory, List<InventoryLogEntity> logs, LocalDateTime cutoff) throws IOException {
+        List<InventoryLogEntity> sorted = logs.stream()
+                .sorted(Comparator.comparing(InventoryLogEntity::getProductId)
+                        .thenComparing(InventoryLogEntity::getCreatedAt)
+                        .thenComparing(InventoryLogEntity::getId))
+                .toList();
+        int minId = logs.stream().mapToInt(InventoryLogEntity::getId).min().orElseThrow();
+        int maxId = logs.stream().mapToInt(InventoryLogEntity::getId).max().orElseThrow();
+
+        Path target = directory.resolve(String.format("segment-%010d-%010d.ilseg", minId, maxId));
+        Path tmp = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(toMicros(cutoff)).putInt(minId).putInt(maxId).flip();
+            writeFully(channel, header);
+
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            int blocks = 0;
+
+            try {
+                int start = 0;
+                while (start < sorted.size()) {
+                    int productId = sorted.get(start).getProductId();
+                    int end = start;
+                    while (end < sorted.size() && end - start < BLOCK_ROWS
+                            && sorted.get(end).getProductId() == productId) {
+                        end++;
+                    }
+
+                    List<InventoryLogEntity> block = sorted.subList(start, end);
+                    byte[] raw = encode(block);
+                    byte[] compressed = deflate(deflater, raw);
+
+                    indexOut.writeInt(productId);
+                    indexOut.writeLong(toMicros(block.get(0).getCreatedAt()));
+                    indexOut.writeLong(toMicros(block.get(block.size() - 1).getCreatedAt()));
+                    indexOut.writeInt(block.stream().mapToInt(InventoryLogEntity::getId).min().orElseThrow());
+                    indexOut.writeInt(block.stream().mapToInt(InventoryLogEntity::getId).max().orElseThrow());
+                    indexOut.writeLong(channel.position());
+                    indexOut.writeInt(compressed.length);
+                    indexOut.writeInt(raw.length);
+                    indexOut.writeInt(block.size());
+
+                    writeFully(channel, ByteBuffer.wrap(compressed));
+                    blocks++;
+                    start = end;
+                }
+            } finally {
+                deflater.end();
+            }
+
+            long indexOffset = channel.position();
+            writeFully(channel, ByteBuffer.wrap(index.toByteArray()));
+
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            footer.putLong(indexOffset).putInt(blocks).putInt(MAGIC).flip();
+            writeFully(channel, footer);
+            channel.force(true);
+        }
+
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        return open(target);
+    }
+
+    // Emits the logs of productId (null = every product) created within [from, to]
+    void scan(Integer productId, LocalDateTime from, LocalDateTime to, Consumer<InventoryLogEntity> consumer) {
+        long fromMicros = from != null ? toMicros(from) : Long.MIN_VALUE;
+        long toMicros = to != null ? toMicros(to) : Long.MAX_VALUE;
+
+        int first = 0;
+        int last = productIds.length;
+        if (productId != null) {
+            first = lowerBound(productId);
+            last = lowerBound(productId + 1);
+        }
+
+        for (int i = first; i < last; i++) {
+            if (maxTimes[i] < fromMicros || minTimes[i] > toMicros) {
+                continue;
+            }
+            for (InventoryLogEntity entity : readBlock(i)) {
+                long createdAt = toMicros(entity.getCreatedAt());
+                if (createdAt >= fromMicros && createdAt <= toMicros) {
+                    consumer.accept(entity);
+                }
+            }
+        }
+    }
+
+    // Net quantity of productId's default-location logs with id > afterId created at or before asOf
+    long sumQuantity(int productId, int afterId, LocalDateTime asOf, Integer defaultLocationId) {
+        long asOfMicros = toMicros(asOf);
+        long sum = 0;
+
+        for (int i = lowerBound(productId), last = lowerBound(productId + 1); i < last; i++) {
+            if (maxIds[i] <= afterId || minTimes[i] > asOfMicros) {
+                continue;
+            }
+            for (InventoryLogEntity entity : readBlock(i)) {
+                if (entity.getId() > afterId && toMicros(entity.getCreatedAt()) <= asOfMicros
+                        && (entity.getLocationId() == null || entity.getLocationId().equals(defaultLocationId))) {
+                    sum += entity.getQuantity();
+                }
+            }
+        }
+        return sum;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    LocalDateTime getCutoff() {
+        return cutoff;
+    }
+
+    int getMinId() {
+        return minId;
+    }
+
+    int getMaxId() {
+        return maxId;
+    }
+
+    private int lowerBound(int productId) {
+        int lo = 0;
+        int hi = productIds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (productIds[mid] < productId) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private InventoryLogEntity[] readBlock(int block) {
+        // Inflate straight from the mapped file; slice() doesn't move the shared buffer's position
+        ByteBuffer compressed = buffer.slice(Math.toIntExact(offsets[block]), compressedLengths[block]);
+        byte[] raw = new byte[rawLengths[block]];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                n += inflater.inflate(raw, n, raw.length - n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block " + block + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            InventoryLogEntity[] rows = new InventoryLogEntity[rowCounts[block]];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = decode(in, productIds[block]);
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt block " + block + " in " + path, e);
+        }
+    }
+
+    private static byte[] encode(List<InventoryLogEntity> block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        for (InventoryLogEntity e : block) {
+            out.writeInt(e.getId());
+            out.writeInt(e.getChangedBy());
+            out.writeUTF(e.getChangeType().name());
+            out.writeInt(e.getQuantity());
+            writeNullableInt(out, e.getPreviousStock());
+            writeNullableInt(out, e.getNewStock());
+            writeNullableString(out, e.getReason());
+            writeNullableString(out, e.getNotes());
+            writeNullableString(out, e.getReferenceId());
+            writeNullableInt(out, e.getLocationId());
+            out.writeBoolean(Boolean.TRUE.equals(e.getIsSystemGenerated()));
+            out.writeLong(toMicros(e.getCreatedAt()));
+            out.writeBoolean(e.getUpdatedAt() != null);
+            if (e.getUpdatedAt() != null) {
+                out.writeLong(toMicros(e.getUpdatedAt()));
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static InventoryLogEntity decode(DataInputStream in, int productId) throws IOException {
+        InventoryLogEntity e = new InventoryLogEntity();
+        e.setId(in.readInt());
+        e.setProductId(productId);
+        e.setChangedBy(in.readInt());
+        e.setChangeType(InventoryChangeType.valueOf(in.readUTF()));
+        e.setQuantity(in.readInt());
+        e.setPreviousStock(readNullableInt(in));
+        e.setNewStock(readNullableInt(in));
+        e.setReason(readNullableString(in));
+        e.setNotes(readNullableString(in));
+        e.setReferenceId(readNullableString(in));
+        e.setLocationId(readNullableInt(in));
+        e.setIsSystemGenerated(in.readBoolean());
+        e.setCreatedAt(fromMicros(in.readLong()));
+        e.setUpdatedAt(in.readBoolean() ? fromMicros(in.readLong()) : null);
+        return e;
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    private static void writeNullableInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // LocalDateTime has no zone; UTC is just a fixed encoding here, not a conversion
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,230 @@
+package com.residuesolution.pos.artifact;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Local-disk store of generated files keyed by the SHA-256 of their content: identical files are kept
+// once, and a stored file never changes, so its hash doubles as a cache key. Files live under
+// <directory>/<first two hex digits>/<hash>. Total size is capped; the least recently served files go
+// first (access order survives restarts through the files' modification times).
+@Component
+@Slf4j
+public class ArtifactStore {
+
+    private final Path directory;
+    private final Path tmpDirectory;
+    private final long maxBytes;
+
+    // Hash -> size in bytes, least recently used first
+    private final LinkedHashMap<String, Long> artifacts = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public ArtifactStore(@Value("${pos.artifacts.directory:data/artifacts}") String directory,
+                         @Value("${pos.artifacts.max-bytes:10737418240}") long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.tmpDirectory = this.directory.resolve("tmp");
+        this.maxBytes = maxBytes;
+    }
+
+    @PostConstruct
+    public void loadArtifacts() throws IOException {
+        Files.createDirectories(tmpDirectory);
+
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            paths.filter(Files::isRegularFile).forEach(files::add);
+        }
+
+        List<Path> stored = new ArrayList<>();
+        for (Path file : files) {
+            if (file.startsWith(tmpDirectory)) {
+                Files.delete(file); // Left over by a crash mid-write
+            } else {
+                stored.add(file);
+            }
+        }
+
+        stored.sort(Comparator.comparing(ArtifactStore::lastModified));
+        synchronized (this) {
+            for (Path file : stored) {
+                long size = Files.size(file);
+                artifacts.put(file.getFileName().toString(), size);
+                totalBytes += size;
+            }
+        }
+        log.info("Loaded {} artifacts ({} bytes) from {}", stored.size(), totalBytes, directory);
+        evict();
+    }
+
+    // Write the content to the returned stream, then commit() it (or abort() on failure)
+    public PendingArtifact create() throws IOException {
+        return new PendingArtifact(Files.createTempFile(tmpDirectory, "artifact-", ".tmp"));
+    }
+
+    // Path of a stored artifact, marked as just used; null if it was never stored or has been evicted
+    public Path open(String hash) {
+        synchronized (this) {
+            if (artifacts.get(hash) == null) {
+                return null;
+            }
+        }
+
+        Path path = pathOf(hash);
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return path;
+        } catch (IOException e) {
+            forget(hash); // Deleted behind our back
+            return null;
+        }
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        return Map.of("artifacts", artifacts.size(), "totalBytes", totalBytes, "maxBytes", maxBytes);
+    }
+
+    private Path pathOf(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private String add(Path tmp, String hash, long size) throws IOException {
+        Path target = pathOf(hash);
+        synchronized (this) {
+            if (artifacts.get(hash) != null) {
+                Files.deleteIfExists(tmp); // Same content already stored
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(tmp);
+            }
+            artifacts.put(hash, size);
+            totalBytes += size;
+        }
+        evict();
+        return hash;
+    }
+
+    private synchronized void forget(String hash) {
+        Long size = artifacts.remove(hash);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    // Open readers keep working: unlinking a file does not affect descriptors already open on it
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = artifacts.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            try {
+                Files.deleteIfExists(pathOf(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not evict artifact {}: {}", entry.getKey(), e.getMessage());
+                continue;
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            log.debug("Evicted artifact {} ({} bytes)", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    // Content being written to a temp file; hashed on the way through
+    public final class PendingArtifact extends OutputStream {
+
+        private final Path tmp;
+        private final OutputStream out;
+        private final MessageDigest digest;
+        private long size;
+        private boolean closed;
+
+        private PendingArtifact(Path tmp) throws IOException {
+            this.tmp = tmp;
+            this.out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024);
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e); // Every JRE ships SHA-256
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            digest.update((byte) b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+            size += len;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        // Stores the content and returns its hash; an identical stored artifact is reused
+        public String commit() throws IOException {
+            closeFile();
+            return add(tmp, HexFormat.of().formatHex(digest.digest()), size);
+        }
+
+        public void abort() {
+            try {
+                closeFile();
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                log.warn("Could not delete aborted artifact {}: {}", tmp, e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                abort(); // Neither committed nor aborted explicitly
+            }
+        }
+
+        private void closeFile() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+}
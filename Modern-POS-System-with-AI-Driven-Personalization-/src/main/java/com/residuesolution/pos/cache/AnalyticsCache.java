@@ -0,0 +1,103 @@
+package com.residuesolution.pos.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Per-node cache of analytics maps keyed by (metric, window in days).
+// Single-flight: concurrent misses for a key share one computation. Refresh-ahead: a hit older than
+// refreshAfter still returns the cached map but starts one background recomputation, so steady dashboard
+// traffic never waits for a load. Maps carrying an "error" entry are handed out but never cached.
+@Component
+@Slf4j
+public class AnalyticsCache {
+
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Map<String, Object>>> loads = new ConcurrentHashMap<>();
+
+    private final ExecutorService refresher = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "analytics-cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AnalyticsCache(@Value("${pos.analytics-cache.ttl-ms:60000}") long ttlMs,
+                          @Value("${pos.analytics-cache.refresh-after-ms:45000}") long refreshAfterMs) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.refreshAfterNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(refreshAfterMs, ttlMs));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    // windowDays is part of the key only; the loader decides what the window means (0 = current state)
+    public Map<String, Object> get(String metric, int windowDays, Supplier<Map<String, Object>> loader) {
+        String key = metric + ":" + windowDays;
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            long age = System.nanoTime() - entry.loadedAt();
+            if (age < ttlNanos) {
+                if (age >= refreshAfterNanos) {
+                    load(key, loader, true);
+                }
+                return entry.value();
+            }
+        }
+
+        return load(key, loader, false).join();
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    // The caller that registers the load runs it (inline, or on the refresher); everyone else joins it
+    private CompletableFuture<Map<String, Object>> load(String key, Supplier<Map<String, Object>> loader, boolean async) {
+        CompletableFuture<Map<String, Object>> load = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = loads.putIfAbsent(key, load);
+        if (running != null) {
+            return running;
+        }
+
+        Runnable task = () -> {
+            try {
+                Map<String, Object> value = Collections.unmodifiableMap(loader.get());
+                if (!value.containsKey("error")) {
+                    entries.put(key, new Entry(value, System.nanoTime()));
+                }
+                load.complete(value);
+            } catch (RuntimeException | Error e) {
+                log.error("Analytics cache load for {} failed: {}", key, e.getMessage(), e);
+                load.completeExceptionally(e);
+            } finally {
+                loads.remove(key, load);
+            }
+        };
+
+        if (async) {
+            refresher.execute(task);
+        } else {
+            task.run();
+        }
+        return load;
+    }
+
+    private record Entry(Map<String, Object> value, long loadedAt) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.residuesolution.pos.cache;
+
+import java.util.Arrays;
+
+// Fixed-capacity open-addressing int -> int map (linear probing, backward-shift deletes).
+// Not thread-safe, callers guard it. Capacity never grows, so memory is fixed at construction.
+class IntIntHashMap {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private final int[] keys;
+    private final int[] values;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+    IntIntHashMap(int maxSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1; // load factor <= 0.5
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    int get(int key, int missingValue) {
+        if (key == EMPTY) {
+            return missingValue;
+        }
+        for (int i = slot(key), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            int k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == EMPTY) {
+                return missingValue;
+            }
+        }
+        return missingValue;
+    }
+
+    // Returns false when the map is full and the key is new
+    boolean put(int key, int value) {
+        if (key == EMPTY) {
+            return false;
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= maxSize) {
+            return false;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return true;
+    }
+
+    void remove(int key) {
+        if (key == EMPTY) {
+            return;
+        }
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Shift later entries of the same probe chain back into the hole
+        int hole = i;
+        for (int j = (hole + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,134 @@
+package com.residuesolution.pos.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+// Per-node cache of current stock by product ID.
+// IDs in [0, denseCapacity) live in a flat array; anything else goes to a bounded primitive hash.
+// Writers invalidate after commit; readers populate only if no invalidation raced with their DB read.
+@Component
+@Slf4j
+public class StockCache {
+
+    public static final int MISSING = -1; // Stock is never negative, so -1 marks an empty slot
+
+    private static final int STRIPES = 1024;
+
+    private final int denseCapacity;
+    private final AtomicIntegerArray dense;
+    private final IntIntHashMap sparse;
+    private final StampedLock sparseLock = new StampedLock();
+
+    // Bumped on every invalidation of a product hashing to the stripe
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    public StockCache(@Value("${pos.stock-cache.dense-capacity:1048576}") int denseCapacity,
+                      @Value("${pos.stock-cache.sparse-capacity:65536}") int sparseCapacity) {
+        this.denseCapacity = denseCapacity;
+        this.dense = new AtomicIntegerArray(denseCapacity);
+        this.sparse = new IntIntHashMap(sparseCapacity);
+        for (int i = 0; i < denseCapacity; i++) {
+            dense.set(i, MISSING);
+        }
+    }
+
+    public int get(int productId) {
+        if (isDense(productId)) {
+            return dense.get(productId);
+        }
+
+        long stamp = sparseLock.tryOptimisticRead();
+        int value = sparse.get(productId, MISSING);
+        if (!sparseLock.validate(stamp)) {
+            stamp = sparseLock.readLock();
+            try {
+                value = sparse.get(productId, MISSING);
+            } finally {
+                sparseLock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    // Read before going to the database; pass the result to populate()
+    public long version(int productId) {
+        return versions.get(stripe(productId));
+    }
+
+    // Cache a value loaded from the database, unless the product was invalidated since version()
+    public void populate(int productId, int stock, long version) {
+        if (versions.get(stripe(productId)) != version) {
+            return;
+        }
+
+        write(productId, stock);
+
+        // An invalidation may have slipped in between the check and the write
+        if (versions.get(stripe(productId)) != version) {
+            invalidate(productId);
+        }
+    }
+
+    public void invalidate(int productId) {
+        versions.incrementAndGet(stripe(productId));
+
+        if (isDense(productId)) {
+            dense.set(productId, MISSING);
+            return;
+        }
+
+        long stamp = sparseLock.writeLock();
+        try {
+            sparse.remove(productId);
+        } finally {
+            sparseLock.unlockWrite(stamp);
+        }
+    }
+
+    // Bound staleness from writes made on other nodes
+    @Scheduled(fixedDelayString = "${pos.stock-cache.max-staleness-ms:30000}")
+    public void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        for (int i = 0; i < denseCapacity; i++) {
+            dense.set(i, MISSING);
+        }
+
+        long stamp = sparseLock.writeLock();
+        try {
+            sparse.clear();
+        } finally {
+            sparseLock.unlockWrite(stamp);
+        }
+        log.debug("Stock cache cleared");
+    }
+
+    private void write(int productId, int stock) {
+        if (isDense(productId)) {
+            dense.set(productId, stock);
+            return;
+        }
+
+        long stamp = sparseLock.writeLock();
+        try {
+            sparse.put(productId, stock); // Silently skipped when the sparse table is full
+        } finally {
+            sparseLock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean isDense(int productId) {
+        return productId >= 0 && productId < denseCapacity;
+    }
+
+    private static int stripe(int productId) {
+        return (productId ^ (productId >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.residuesolution.pos.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Applies MySQL-specific DDL that Hibernate's ddl-auto can't express (FULLTEXT indexes) or won't apply
+// to existing tables (column type changes, primary key changes). Runs once every singleton exists - so after ddl-auto
+// (the EntityManagerFactory is a dependency) but before the web server starts and before any
+// ApplicationReadyEvent listener, so nothing reads or writes these tables ahead of it.
+@Component
+@Slf4j
+public class SchemaInitializer implements SmartInitializingSingleton {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Older schemas created change_type as ENUM(...), which rejects RESERVED / RESERVATION_RELEASED
+        convertEnumColumn("inventory_logs", "change_type",
+                "ALTER TABLE inventory_logs MODIFY change_type VARCHAR(32) NOT NULL");
+        convertEnumColumn("inventory_activity_rollups", "change_type",
+                "ALTER TABLE inventory_activity_rollups MODIFY change_type VARCHAR(32) NOT NULL");
+
+        // ddl-auto adds shard_no to an existing sales_hourly but leaves the old three-column primary key
+        extendPrimaryKey("sales_hourly", "shard_no",
+                "ALTER TABLE sales_hourly DROP PRIMARY KEY, ADD PRIMARY KEY (bucket_start, payment_method, gateway, shard_no)");
+        // ... and location_id to inventory_activity_rollups (existing rows get -1 until the aggregator splits them)
+        extendPrimaryKey("inventory_activity_rollups", "location_id",
+                "ALTER TABLE inventory_activity_rollups DROP PRIMARY KEY, " +
+                        "ADD PRIMARY KEY (granularity, bucket_start, change_type, product_id, location_id)");
+
+        createIndexIfMissing("inventory_logs", "ft_inventory_logs_reason_notes",
+                "ALTER TABLE inventory_logs ADD FULLTEXT INDEX ft_inventory_logs_reason_notes (reason, notes) WITH PARSER ngram");
+    }
+
+    private void convertEnumColumn(String table, String column, String ddl) {
+        try {
+            Integer enumColumns = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.columns " +
+                            "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ? AND data_type = 'enum'",
+                    Integer.class, table, column);
+
+            if (enumColumns == null || enumColumns == 0) {
+                return;
+            }
+
+            jdbcTemplate.execute(ddl);
+            log.info("Converted {}.{} from ENUM to VARCHAR", table, column);
+
+        } catch (Exception e) {
+            log.error("Error converting {}.{} to VARCHAR: {}", table, column, e.getMessage(), e);
+        }
+    }
+
+    private void extendPrimaryKey(String table, String column, String ddl) {
+        try {
+            List<String> keyColumns = jdbcTemplate.queryForList(
+                    "SELECT column_name FROM information_schema.key_column_usage " +
+                            "WHERE table_schema = DATABASE() AND table_name = ? AND constraint_name = 'PRIMARY'",
+                    String.class, table);
+
+            if (keyColumns.isEmpty() || keyColumns.stream().anyMatch(column::equalsIgnoreCase)) {
+                return;
+            }
+
+            jdbcTemplate.execute(ddl);
+            log.info("Added {} to the primary key of {}", column, table);
+
+        } catch (Exception e) {
+            log.error("Error adding {} to the primary key of {}: {}", column, table, e.getMessage(), e);
+        }
+    }
+
+    private void createIndexIfMissing(String table, String index, String ddl) {
+        try {
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.statistics " +
+                            "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                    Integer.class, table, index);
+
+            if (existing != null && existing > 0) {
+                return;
+            }
+
+            jdbcTemplate.execute(ddl);
+            log.info("Created index {} on {}", index, table);
+
+        } catch (Exception e) {
+            log.error("Error creating index {} on {}: {}", index, table, e.getMessage(), e);
+        }
+    }
+}
@@ -1,17 +1,38 @@
 package com.residuesolution.pos.controller;
 
 import com.residuesolution.pos.dto.AnalyticsReport;
+import com.residuesolution.pos.dto.AnalyticsReportSummary;
+import com.residuesolution.pos.dto.ReorderSuggestion;
 import com.residuesolution.pos.service.AnalyticsReportService;
+import com.residuesolution.pos.service.ReorderSuggestionService;
+import com.residuesolution.pos.service.ReportExportService;
+import com.residuesolution.pos.service.ReportJobService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * AnalyticsReportController - Role-based access control as per requirements:
@@ -27,13 +48,16 @@ import java.util.Map;
 public class AnalyticsReportController {
 
     private final AnalyticsReportService analyticsReportService;
+    private final ReorderSuggestionService reorderSuggestionService;
+    private final ReportJobService reportJobService;
+    private final ReportExportService reportExportService;
 
     // ================================================================================================
     // ✅ ADMIN ONLY: Full access to all reports (sales, inventory, customer, performance)
     // ================================================================================================
 
     /**
-     * Generate Sales Report - ADMIN ONLY
+     * Generate Sales Report (queued; 202 with the GENERATING report, poll or subscribe for completion) - ADMIN ONLY
      */
     @PostMapping("/generate/sales")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
@@ -41,67 +65,52 @@ public class AnalyticsReportController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(defaultValue = "admin") String generatedBy,
-            @RequestBody(required = false) Map<String, Object> filters) {
+            @RequestBody(required = false) Map<String, Object> filters,
+            Principal principal) {
 
         if (filters == null) {
             filters = Map.of("reportType", "sales");
         }
 
-        AnalyticsReport report = analyticsReportService.generateSalesReport(generatedBy, startDate, endDate, filters);
-
-        if (report != null) {
-            return ResponseEntity.ok(report);
-        } else {
-            return ResponseEntity.badRequest().build();
-        }
+        return submitReport("sales", principal, generatedBy, startDate, endDate, filters);
     }
 
     /**
-     * Generate Inventory Report - ADMIN ONLY
+     * Generate Inventory Report (queued; 202 with the GENERATING report, poll or subscribe for completion) - ADMIN ONLY
      */
     @PostMapping("/generate/inventory")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<AnalyticsReport> generateInventoryReport(
             @RequestParam(defaultValue = "admin") String generatedBy,
-            @RequestBody(required = false) Map<String, Object> filters) {
+            @RequestBody(required = false) Map<String, Object> filters,
+            Principal principal) {
 
         if (filters == null) {
             filters = Map.of("reportType", "inventory");
         }
 
-        AnalyticsReport report = analyticsReportService.generateInventoryReport(generatedBy, filters);
-
-        if (report != null) {
-            return ResponseEntity.ok(report);
-        } else {
-            return ResponseEntity.badRequest().build();
-        }
+        return submitReport("inventory", principal, generatedBy, null, null, filters);
     }
 
     /**
-     * Generate Customer Report - ADMIN ONLY
+     * Generate Customer Report (queued; 202 with the GENERATING report, poll or subscribe for completion) - ADMIN ONLY
      */
     @PostMapping("/generate/customer")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<AnalyticsReport> generateCustomerReport(
             @RequestParam(defaultValue = "admin") String generatedBy,
-            @RequestBody(required = false) Map<String, Object> filters) {
+            @RequestBody(required = false) Map<String, Object> filters,
+            Principal principal) {
 
         if (filters == null) {
             filters = Map.of("reportType", "customer");
         }
 
-        AnalyticsReport report = analyticsReportService.generateCustomerReport(generatedBy, filters);
-
-        if (report != null) {
-            return ResponseEntity.ok(report);
-        } else {
-            return ResponseEntity.badRequest().build();
-        }
+        return submitReport("customer", principal, generatedBy, null, null, filters);
     }
 
     /**
-     * Generate Performance Report - ADMIN ONLY
+     * Generate Performance Report (queued; 202 with the GENERATING report, poll or subscribe for completion) - ADMIN ONLY
      */
     @PostMapping("/generate/performance")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
@@ -109,28 +118,64 @@ public class AnalyticsReportController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(defaultValue = "admin") String generatedBy,
-            @RequestBody(required = false) Map<String, Object> filters) {
+            @RequestBody(required = false) Map<String, Object> filters,
+            Principal principal) {
 
         if (filters == null) {
             filters = Map.of("reportType", "performance");
         }
 
-        AnalyticsReport report = analyticsReportService.generatePerformanceReport(generatedBy, startDate, endDate, filters);
+        return submitReport("performance", principal, generatedBy, startDate, endDate, filters);
+    }
 
-        if (report != null) {
-            return ResponseEntity.ok(report);
+    /**
+     * Cancel a queued or running Report - ADMIN ONLY
+     */
+    @PostMapping("/{reportId}/cancel")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<String> cancelReport(@PathVariable Integer reportId) {
+        if (analyticsReportService.getReportById(reportId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (reportJobService.cancelReport(reportId)) {
+            return ResponseEntity.ok("Analytics report cancelled successfully");
         } else {
-            return ResponseEntity.badRequest().build();
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Report is no longer generating");
         }
     }
 
+    /**
+     * Subscribe to Report completion (Server-Sent Events, one "report" event) - ADMIN ONLY
+     */
+    @GetMapping(value = "/{reportId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<SseEmitter> subscribeToReport(@PathVariable Integer reportId) {
+        SseEmitter emitter = reportJobService.subscribe(reportId);
+
+        if (emitter != null) {
+            return ResponseEntity.ok(emitter);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Report Job Queue Statistics - ADMIN ONLY
+     */
+    @GetMapping("/jobs/statistics")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getJobQueueStatistics() {
+        return ResponseEntity.ok(reportJobService.getQueueStatistics());
+    }
+
     /**
      * Get All Reports - ADMIN ONLY
      */
     @GetMapping("/all")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<List<AnalyticsReport>> getAllReports() {
-        List<AnalyticsReport> reports = analyticsReportService.getAllReports();
+    public ResponseEntity<List<AnalyticsReportSummary>> getAllReports() {
+        List<AnalyticsReportSummary> reports = analyticsReportService.getAllReports();
 
         if (reports.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -178,8 +223,8 @@ public class AnalyticsReportController {
      */
     @GetMapping("/sales")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
-    public ResponseEntity<List<AnalyticsReport>> getSalesReports() {
-        List<AnalyticsReport> reports = analyticsReportService.getReportsByType("sales");
+    public ResponseEntity<List<AnalyticsReportSummary>> getSalesReports() {
+        List<AnalyticsReportSummary> reports = analyticsReportService.getReportsByType("sales");
 
         if (reports.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -193,8 +238,8 @@ public class AnalyticsReportController {
      */
     @GetMapping("/inventory")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
-    public ResponseEntity<List<AnalyticsReport>> getInventoryReports() {
-        List<AnalyticsReport> reports = analyticsReportService.getReportsByType("inventory");
+    public ResponseEntity<List<AnalyticsReportSummary>> getInventoryReports() {
+        List<AnalyticsReportSummary> reports = analyticsReportService.getReportsByType("inventory");
 
         if (reports.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -208,8 +253,8 @@ public class AnalyticsReportController {
      */
     @GetMapping("/performance")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
-    public ResponseEntity<List<AnalyticsReport>> getPerformanceReports() {
-        List<AnalyticsReport> reports = analyticsReportService.getReportsByType("performance");
+    public ResponseEntity<List<AnalyticsReportSummary>> getPerformanceReports() {
+        List<AnalyticsReportSummary> reports = analyticsReportService.getReportsByType("performance");
 
         if (reports.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -254,6 +299,74 @@ public class AnalyticsReportController {
         return ResponseEntity.ok(analytics);
     }
 
+    /**
+     * Slice Completed Payments (in-memory fact store; filter and group by method, gateway, status, user or time) - ADMIN & MANAGER
+     */
+    @GetMapping("/analytics/payments/slice")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<Map<String, Object>> getPaymentSlice(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) Integer customerId,
+            @RequestParam(required = false) String method,
+            @RequestParam(required = false) String gateway,
+            @RequestParam(required = false) String status) {
+
+        try {
+            return ResponseEntity.ok(analyticsReportService.getPaymentSlice(
+                    startDate, endDate, groupBy, userId, customerId, method, gateway, status));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "Invalid groupBy. Valid values: NONE, METHOD, GATEWAY, STATUS, USER, HOUR_OF_DAY, DAY_OF_WEEK, DAY"));
+        }
+    }
+
+    /**
+     * Payment Fact Store Statistics - ADMIN ONLY
+     */
+    @GetMapping("/analytics/payments/statistics")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getPaymentFactStatistics() {
+        return ResponseEntity.ok(analyticsReportService.getPaymentFactStatistics());
+    }
+
+    /**
+     * Get Reorder Suggestions (forecast-driven) - ADMIN & MANAGER
+     */
+    @GetMapping("/reorder-suggestions")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<List<ReorderSuggestion>> getReorderSuggestions(
+            @RequestParam(defaultValue = "true") Boolean reorderOnly) {
+
+        return ResponseEntity.ok(reorderSuggestionService.getSuggestions(reorderOnly));
+    }
+
+    /**
+     * Get Reorder Suggestion for a Product - ADMIN & MANAGER
+     */
+    @GetMapping("/reorder-suggestions/{productId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<ReorderSuggestion> getReorderSuggestion(@PathVariable Integer productId) {
+        ReorderSuggestion suggestion = reorderSuggestionService.getSuggestion(productId);
+
+        if (suggestion != null) {
+            return ResponseEntity.ok(suggestion);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Recompute Reorder Suggestions now (also runs nightly) - ADMIN ONLY
+     */
+    @PostMapping("/reorder-suggestions/refresh")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> refreshReorderSuggestions() {
+        return ResponseEntity.ok(Map.of("products", reorderSuggestionService.refreshSuggestions()));
+    }
+
     // ================================================================================================
     // ❌ CASHIER: No access to analytics reports (as per requirement image)
     // ================================================================================================
@@ -267,8 +380,8 @@ public class AnalyticsReportController {
      */
     @GetMapping("/recent")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
-    public ResponseEntity<List<AnalyticsReport>> getRecentReports() {
-        List<AnalyticsReport> reports = analyticsReportService.getRecentReports();
+    public ResponseEntity<List<AnalyticsReportSummary>> getRecentReports() {
+        List<AnalyticsReportSummary> reports = analyticsReportService.getRecentReports();
 
         if (reports.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -282,8 +395,8 @@ public class AnalyticsReportController {
      */
     @GetMapping("/user/{generatedBy}")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
-    public ResponseEntity<List<AnalyticsReport>> getReportsByUser(@PathVariable String generatedBy) {
-        List<AnalyticsReport> reports = analyticsReportService.getReportsByUser(generatedBy);
+    public ResponseEntity<List<AnalyticsReportSummary>> getReportsByUser(@PathVariable String generatedBy) {
+        List<AnalyticsReportSummary> reports = analyticsReportService.getReportsByUser(generatedBy);
 
         if (reports.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -318,8 +431,8 @@ public class AnalyticsReportController {
         }
 
         // Validate status values
-        if (!Arrays.asList("GENERATING", "COMPLETED", "FAILED").contains(status.toUpperCase())) {
-            return ResponseEntity.badRequest().body("Invalid status. Valid values: GENERATING, COMPLETED, FAILED");
+        if (!Arrays.asList("GENERATING", "COMPLETED", "FAILED", "CANCELLED").contains(status.toUpperCase())) {
+            return ResponseEntity.badRequest().body("Invalid status. Valid values: GENERATING, COMPLETED, FAILED, CANCELLED");
         }
 
         Boolean isUpdated = analyticsReportService.updateReportStatus(reportId, status.toUpperCase());
@@ -369,6 +482,58 @@ public class AnalyticsReportController {
         }
     }
 
+    /**
+     * Download Report as CSV (stored after the first full download; Range + If-Range, ETag) - ADMIN & MANAGER
+     */
+    @GetMapping("/download/csv/{reportId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<StreamingResponseBody> downloadReportCSV(
+            @PathVariable Integer reportId,
+            @RequestParam(defaultValue = "false") Boolean refresh,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) throws IOException {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType("text", "csv", StandardCharsets.UTF_8));
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"report-" + reportId + ".csv\"");
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Repeat downloads: the stored file, sent by the container without passing through the JVM heap
+        ReportExportService.CsvFile file = refresh ? null : reportExportService.findCsvFile(reportId);
+        if (file != null) {
+            return serveCsvFile(file, headers, range, ifRange, request);
+        }
+
+        String etag = reportExportService.getCsvETag(reportId);
+        if (etag == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // First full download streams while the file is being stored. A Range is ignored until the file
+        // exists (a server may answer any range request with the full 200 response): serving it would mean
+        // generating the whole export before the first byte goes out
+        headers.setETag(etag);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            headers.setETag(etag.substring(0, etag.length() - 1) + "-gzip\"");
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(out -> {
+                        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+                        reportExportService.streamCsv(reportId, etag, gzip);
+                        gzip.finish();
+                    });
+        }
+
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(out -> reportExportService.streamCsv(reportId, etag, out));
+    }
+
     /**
      * Get Available Report Types - ADMIN & MANAGER
      */
@@ -396,10 +561,7 @@ public class AnalyticsReportController {
     @GetMapping("/quick-summary/sales")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
     public ResponseEntity<Map<String, Object>> getQuickSalesSummary() {
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(7); // Last 7 days
-
-        Map<String, Object> analytics = analyticsReportService.getSalesAnalytics(startDate, endDate);
+        Map<String, Object> analytics = analyticsReportService.getRecentSalesAnalytics(7); // Last 7 days
 
         return ResponseEntity.ok(Map.of(
                 "period", "Last 7 Days",
@@ -414,7 +576,7 @@ public class AnalyticsReportController {
     @GetMapping("/quick-summary/inventory")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
     public ResponseEntity<Map<String, Object>> getQuickInventorySummary() {
-        Map<String, Object> analytics = analyticsReportService.getInventoryAnalytics();
+        Map<String, Object> analytics = analyticsReportService.getCurrentInventoryAnalytics();
 
         return ResponseEntity.ok(Map.of(
                 "period", "Current Status",
@@ -429,10 +591,7 @@ public class AnalyticsReportController {
     @GetMapping("/quick-summary/performance")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
     public ResponseEntity<Map<String, Object>> getQuickPerformanceSummary() {
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(30); // Last 30 days
-
-        Map<String, Object> analytics = analyticsReportService.getPerformanceAnalytics(startDate, endDate);
+        Map<String, Object> analytics = analyticsReportService.getRecentPerformanceAnalytics(30); // Last 30 days
 
         return ResponseEntity.ok(Map.of(
                 "period", "Last 30 Days",
@@ -457,13 +616,11 @@ public class AnalyticsReportController {
     @GetMapping("/dashboard")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<Map<String, Object>> generateDashboard() {
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(30); // Last 30 days
-
-        Map<String, Object> salesAnalytics = analyticsReportService.getSalesAnalytics(startDate, endDate);
-        Map<String, Object> inventoryAnalytics = analyticsReportService.getInventoryAnalytics();
-        Map<String, Object> customerAnalytics = analyticsReportService.getCustomerAnalytics();
-        Map<String, Object> performanceAnalytics = analyticsReportService.getPerformanceAnalytics(startDate, endDate);
+        // Last 30 days; shared with the manager dashboard through the analytics cache
+        Map<String, Object> salesAnalytics = analyticsReportService.getRecentSalesAnalytics(30);
+        Map<String, Object> inventoryAnalytics = analyticsReportService.getCurrentInventoryAnalytics();
+        Map<String, Object> customerAnalytics = analyticsReportService.getCurrentCustomerAnalytics();
+        Map<String, Object> performanceAnalytics = analyticsReportService.getRecentPerformanceAnalytics(30);
         Map<String, Object> reportStats = analyticsReportService.getReportStatistics();
 
         return ResponseEntity.ok(Map.of(
@@ -486,12 +643,10 @@ public class AnalyticsReportController {
     @GetMapping("/dashboard/manager")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
     public ResponseEntity<Map<String, Object>> generateManagerDashboard() {
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusDays(30); // Last 30 days
-
-        Map<String, Object> salesAnalytics = analyticsReportService.getSalesAnalytics(startDate, endDate);
-        Map<String, Object> inventoryAnalytics = analyticsReportService.getInventoryAnalytics();
-        Map<String, Object> performanceAnalytics = analyticsReportService.getPerformanceAnalytics(startDate, endDate);
+        // Last 30 days; shared with the admin dashboard through the analytics cache
+        Map<String, Object> salesAnalytics = analyticsReportService.getRecentSalesAnalytics(30);
+        Map<String, Object> inventoryAnalytics = analyticsReportService.getCurrentInventoryAnalytics();
+        Map<String, Object> performanceAnalytics = analyticsReportService.getRecentPerformanceAnalytics(30);
 
         return ResponseEntity.ok(Map.of(
                 "dashboard", Map.of(
@@ -508,7 +663,7 @@ public class AnalyticsReportController {
     }
 
     /**
-     * Bulk Report Generation - ADMIN ONLY
+     * Bulk Report Generation (all types in parallel, shared deadline, partial results) - ADMIN ONLY
      */
     @PostMapping("/generate/bulk")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
@@ -516,31 +671,152 @@ public class AnalyticsReportController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(defaultValue = "admin") String generatedBy,
-            @RequestBody(required = false) Map<String, Object> filters) {
+            @RequestBody(required = false) Map<String, Object> filters,
+            Principal principal) {
 
         if (filters == null) {
             filters = Map.of("reportType", "bulk");
         }
 
-        // Generate all report types
-        AnalyticsReport salesReport = analyticsReportService.generateSalesReport(generatedBy, startDate, endDate, filters);
-        AnalyticsReport inventoryReport = analyticsReportService.generateInventoryReport(generatedBy, filters);
-        AnalyticsReport customerReport = analyticsReportService.generateCustomerReport(generatedBy, filters);
-        AnalyticsReport performanceReport = analyticsReportService.generatePerformanceReport(generatedBy, startDate, endDate, filters);
+        // Report types run concurrently within the user's report limit; slow or failed ones come back as
+        // TimedOut / Failed / Cancelled, and the ones that found no free slot as Rejected
+        String owner = principal != null ? principal.getName() : generatedBy;
+        long started = System.currentTimeMillis();
+        Map<String, Object> reports;
+        try {
+            reports = reportJobService.generateBulkReports(owner, generatedBy, startDate, endDate, filters);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+        boolean allGenerated = reports.values().stream().allMatch(Integer.class::isInstance);
 
         return ResponseEntity.ok(Map.of(
-                "message", "Bulk reports generated successfully",
-                "reports", Map.of(
-                        "sales", salesReport != null ? salesReport.getId() : "Failed",
-                        "inventory", inventoryReport != null ? inventoryReport.getId() : "Failed",
-                        "customer", customerReport != null ? customerReport.getId() : "Failed",
-                        "performance", performanceReport != null ? performanceReport.getId() : "Failed"
-                ),
+                "message", allGenerated ? "Bulk reports generated successfully" : "Bulk reports partially generated",
+                "reports", reports,
+                "elapsedMs", System.currentTimeMillis() - started,
                 "generatedBy", generatedBy,
                 "generatedAt", LocalDateTime.now()
         ));
     }
 
+    // Concurrency limits are per authenticated user, whatever generatedBy says
+    private ResponseEntity<AnalyticsReport> submitReport(String reportType, Principal principal, String generatedBy,
+                                                         LocalDateTime startDate, LocalDateTime endDate,
+                                                         Map<String, Object> filters) {
+        String owner = principal != null ? principal.getName() : generatedBy;
+
+        try {
+            AnalyticsReport report = reportJobService.submitReport(reportType, owner, generatedBy, startDate, endDate, filters);
+
+            if (report != null) {
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/analytics-reports/" + report.getId()))
+                        .body(report);
+            } else {
+                return ResponseEntity.badRequest().build();
+            }
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+    }
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    // Range + If-Range over a stored CSV. Under Tomcat the connector sends the file itself with sendfile
+    // (FileChannel.transferTo into the socket) after the handler returns; elsewhere it is copied with
+    // transferTo onto the response stream.
+    private ResponseEntity<StreamingResponseBody> serveCsvFile(ReportExportService.CsvFile file, HttpHeaders headers,
+                                                               String range, String ifRange, HttpServletRequest request) {
+        long length = file.size();
+        long first = 0;
+        long last = length - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        if (range != null && (ifRange == null || ifRange.equals(file.etag()))) {
+            long[] bytes = parseByteRange(range, length);
+            if (bytes != null && bytes.length == 0) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            if (bytes != null) {
+                first = bytes[0];
+                last = bytes[1];
+                status = HttpStatus.PARTIAL_CONTENT;
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + first + "-" + last + "/" + length);
+            }
+        }
+
+        headers.setETag(file.etag());
+        headers.setContentLength(last - first + 1);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.path().toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", first);
+            request.setAttribute("org.apache.tomcat.sendfile.end", last + 1);
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+
+        long start = first;
+        long count = last - first + 1;
+        return ResponseEntity.status(status)
+                .headers(headers)
+                .body(out -> {
+                    try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+                        WritableByteChannel target = Channels.newChannel(out);
+                        long position = start;
+                        long end = start + count;
+                        while (position < end) {
+                            long sent = channel.transferTo(position, end - position, target);
+                            if (sent <= 0) {
+                                break; // End of file
+                            }
+                            position += sent;
+                        }
+                    }
+                });
+    }
+
+    // Single "bytes=first-last", "bytes=first-" or "bytes=-suffix" range: {first, last}; null = ignore the
+    // header (malformed or multiple ranges, served as a full 200); empty = not satisfiable
+    private static long[] parseByteRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+                if (last < first && first < length) {
+                    return null;
+                }
+            }
+            return first < length && first <= last ? new long[]{first, last} : new long[0];
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Test endpoint to verify authentication
      */
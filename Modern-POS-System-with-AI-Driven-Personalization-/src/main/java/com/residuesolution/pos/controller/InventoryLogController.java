@@ -1,17 +1,36 @@
 package com.residuesolution.pos.controller;
 
+import com.residuesolution.pos.dto.CycleCountLine;
 import com.residuesolution.pos.dto.InventoryLog;
 import com.residuesolution.pos.enums.InventoryChangeType;
+import com.residuesolution.pos.dto.LowStockAlert;
+import com.residuesolution.pos.dto.StockReservation;
+import com.residuesolution.pos.service.CycleCountService;
 import com.residuesolution.pos.service.InventoryLogService;
+import com.residuesolution.pos.service.LowStockAlertService;
+import com.residuesolution.pos.service.ProductStockService;
+import com.residuesolution.pos.service.StockReservationService;
+import com.residuesolution.pos.service.StockSnapshotService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/inventory-log")
@@ -20,21 +39,39 @@ import java.util.Map;
 public class InventoryLogController {
 
     private final InventoryLogService inventoryLogService;
+    private final ProductStockService productStockService;
+    private final StockSnapshotService stockSnapshotService;
+    private final LowStockAlertService lowStockAlertService;
+    private final StockReservationService stockReservationService;
+    private final CycleCountService cycleCountService;
 
     // ================================================================================================
     // ✅ ADMIN: Full access (track changes, add/remove stock)
     // ================================================================================================
 
-    // ✅ Full access - Create inventory log entry
+    // ✅ Full access - Create inventory log entry (wait=false returns 202 without waiting for the commit)
     @PostMapping("/log")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<String> logInventoryChange(@RequestBody InventoryLog inventoryLog) {
-        Boolean isLogged = inventoryLogService.logInventoryChange(inventoryLog);
+    public ResponseEntity<String> logInventoryChange(@RequestBody InventoryLog inventoryLog,
+                                                     @RequestParam(defaultValue = "true") Boolean wait) {
+        CompletableFuture<Boolean> pending = inventoryLogService.logInventoryChangeAsync(inventoryLog);
 
-        if (isLogged) {
-            return ResponseEntity.ok("Inventory change logged successfully");
-        } else {
-            return ResponseEntity.badRequest().body("Failed to log inventory change");
+        if (!wait && !pending.isDone()) {
+            return ResponseEntity.accepted().body("Inventory change queued");
+        }
+
+        try {
+            if (pending.join()) {
+                return ResponseEntity.ok("Inventory change logged successfully");
+            } else {
+                return ResponseEntity.badRequest().body("Failed to log inventory change");
+            }
+
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Inventory log queue is full, retry later");
+            }
+            return ResponseEntity.internalServerError().body("Failed to log inventory change: " + e.getCause().getMessage());
         }
     }
 
@@ -49,8 +86,11 @@ public class InventoryLogController {
             String reason = request.get("reason").toString();
             String referenceId = request.get("referenceId") != null ?
                     request.get("referenceId").toString() : null;
+            Integer locationId = request.get("locationId") != null ?
+                    Integer.valueOf(request.get("locationId").toString()) : null;
 
-            Boolean isAdded = inventoryLogService.addStock(productId, quantity, userId, reason, referenceId);
+            Boolean isAdded = inventoryLogService.addStockAtLocation(locationId, productId, quantity, userId,
+                    reason, referenceId);
 
             if (isAdded) {
                 return ResponseEntity.ok("Stock added successfully");
@@ -74,8 +114,11 @@ public class InventoryLogController {
             String reason = request.get("reason").toString();
             String referenceId = request.get("referenceId") != null ?
                     request.get("referenceId").toString() : null;
+            Integer locationId = request.get("locationId") != null ?
+                    Integer.valueOf(request.get("locationId").toString()) : null;
 
-            Boolean isRemoved = inventoryLogService.removeStock(productId, quantity, userId, reason, referenceId);
+            Boolean isRemoved = inventoryLogService.removeStockAtLocation(locationId, productId, quantity, userId,
+                    reason, referenceId);
 
             if (isRemoved) {
                 return ResponseEntity.ok("Stock removed successfully");
@@ -88,7 +131,40 @@ public class InventoryLogController {
         }
     }
 
-    // ✅ Full access - Adjust stock (inventory count correction)
+    // ✅ Full access - Receive a supplier delivery in one transaction
+    // Body: {"userId", "reason", "referenceId", "lines": [{"productId", "quantity"}, ...]}
+    @PostMapping("/receive-delivery")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<String> receiveDelivery(@RequestBody Map<String, Object> request) {
+        try {
+            Integer userId = Integer.valueOf(request.get("userId").toString());
+            String reason = request.get("reason") != null ? request.get("reason").toString() : "Supplier delivery";
+            String referenceId = request.get("referenceId") != null ?
+                    request.get("referenceId").toString() : null;
+            List<?> lines = (List<?>) request.get("lines");
+
+            int[] productIds = new int[lines.size()];
+            int[] quantities = new int[lines.size()];
+            for (int i = 0; i < lines.size(); i++) {
+                Map<?, ?> line = (Map<?, ?>) lines.get(i);
+                productIds[i] = Integer.parseInt(line.get("productId").toString());
+                quantities[i] = Integer.parseInt(line.get("quantity").toString());
+            }
+
+            Boolean isReceived = inventoryLogService.receiveDelivery(productIds, quantities, userId, reason, referenceId);
+
+            if (isReceived) {
+                return ResponseEntity.ok("Delivery received successfully: " + lines.size() + " lines");
+            } else {
+                return ResponseEntity.badRequest().body("Failed to receive delivery");
+            }
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Invalid request: " + e.getMessage());
+        }
+    }
+
+    // ✅ Full access - Adjust stock (inventory count correction; units held by live reservations are subtracted)
     @PostMapping("/adjust-stock")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<String> adjustStock(@RequestBody Map<String, Object> request) {
@@ -111,6 +187,148 @@ public class InventoryLogController {
         }
     }
 
+    // ✅ Full access - Bulk cycle-count upload ("productId,countedQuantity" CSV); streams back one CSV row
+    // per input line as each batch commits, then a "# summary" trailer
+    @PostMapping(value = "/cycle-count", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public void importCycleCount(@RequestParam("file") MultipartFile file,
+                                 @RequestParam Integer userId,
+                                 @RequestParam(required = false) String reason,
+                                 HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+        out.println("line,productId,countedQuantity,reservedQuantity,previousStock,adjustment,status,message");
+
+        Map<String, Object> summary = cycleCountService.importCounts(file.getInputStream(), userId, reason,
+                (CycleCountLine line) -> out.println(line.getLineNumber() + "," +
+                        (line.getProductId() != null ? line.getProductId() : "") + "," +
+                        (line.getCountedQuantity() != null ? line.getCountedQuantity() : "") + "," +
+                        (line.getReservedQuantity() != null ? line.getReservedQuantity() : "") + "," +
+                        (line.getPreviousStock() != null ? line.getPreviousStock() : "") + "," +
+                        (line.getAdjustment() != null ? line.getAdjustment() : "") + "," +
+                        line.getStatus() + "," +
+                        (line.getMessage() != null ? "\"" + line.getMessage().replace("\"", "\"\"") + "\"" : "")));
+
+        out.println("# summary " + summary);
+        out.flush();
+    }
+
+    // ✅ Full access - Move stock between locations (both sides commit together)
+    @PostMapping("/stock/transfer")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> transferStock(@RequestBody Map<String, Object> request) {
+        try {
+            Integer productId = Integer.valueOf(request.get("productId").toString());
+            Integer quantity = Integer.valueOf(request.get("quantity").toString());
+            Integer fromLocationId = Integer.valueOf(request.get("fromLocationId").toString());
+            Integer toLocationId = Integer.valueOf(request.get("toLocationId").toString());
+            Integer userId = Integer.valueOf(request.get("userId").toString());
+            String reason = request.get("reason") != null ? request.get("reason").toString() : null;
+
+            String referenceId = inventoryLogService.transferStock(productId, quantity, fromLocationId, toLocationId,
+                    userId, reason);
+
+            if (referenceId != null) {
+                return ResponseEntity.ok(Map.of("referenceId", referenceId));
+            } else {
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "Failed to transfer stock (insufficient stock or error)"));
+            }
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid request: " + e.getMessage()));
+        }
+    }
+
+    // ✅ Full access - Split a hot product's stock across N shard rows (0 or 1 turns sharding off)
+    @PostMapping("/stock/{productId}/shards")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<String> configureStockShards(@PathVariable Integer productId,
+                                                       @RequestBody Map<String, Object> request) {
+        try {
+            Integer shardCount = Integer.valueOf(request.get("shardCount").toString());
+
+            Boolean isConfigured = productStockService.configureShards(productId, shardCount);
+
+            if (isConfigured) {
+                return ResponseEntity.ok("Stock shards configured successfully");
+            } else {
+                return ResponseEntity.badRequest().body("Failed to configure stock shards");
+            }
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Invalid request: " + e.getMessage());
+        }
+    }
+
+    // ✅ Full access - List products running in sharded-counter mode
+    @GetMapping("/stock/shards")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<Integer, Integer>> getShardedProducts() {
+        return ResponseEntity.ok(productStockService.getShardedProducts());
+    }
+
+    // ✅ Full access - Take a stock snapshot now (also runs on a schedule)
+    @PostMapping("/stock/snapshots")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> takeStockSnapshot() {
+        return ResponseEntity.ok(stockSnapshotService.takeSnapshot());
+    }
+
+    // ✅ Full access - List stock snapshots
+    @GetMapping("/stock/snapshots")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getStockSnapshots() {
+        List<Map<String, Object>> snapshots = stockSnapshotService.getSnapshotHistory();
+
+        if (snapshots.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        return ResponseEntity.ok(snapshots);
+    }
+
+    // ✅ Full access - Get a product's stock at a point in time (audits)
+    @GetMapping("/stock/{productId}/as-of")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStockAsOf(
+            @PathVariable Integer productId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime timestamp) {
+
+        Integer stock = stockSnapshotService.getStockAsOf(productId, timestamp);
+
+        return ResponseEntity.ok(Map.of(
+                "productId", productId,
+                "asOf", timestamp,
+                "stock", stock
+        ));
+    }
+
+    // ✅ Full access - Set a product's reorder point (null reorderPoint turns alerting off)
+    @PutMapping("/stock/{productId}/reorder-point")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<String> setReorderPoint(@PathVariable Integer productId,
+                                                  @RequestBody Map<String, Object> request) {
+        try {
+            Integer reorderPoint = request.get("reorderPoint") != null ?
+                    Integer.valueOf(request.get("reorderPoint").toString()) : null;
+            Integer clearLevel = request.get("clearLevel") != null ?
+                    Integer.valueOf(request.get("clearLevel").toString()) : null;
+
+            Boolean isSet = lowStockAlertService.setReorderPoint(productId, reorderPoint, clearLevel);
+
+            if (isSet) {
+                return ResponseEntity.ok("Reorder point updated successfully");
+            } else {
+                return ResponseEntity.badRequest().body("Failed to update reorder point");
+            }
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Invalid request: " + e.getMessage());
+        }
+    }
+
     // ✅ Full access - Get all inventory logs
     @GetMapping("/all")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
@@ -271,14 +489,15 @@ public class InventoryLogController {
         return ResponseEntity.ok(logs);
     }
 
-    // ✅ Full access - Get inventory activity summary
+    // ✅ Full access - Get inventory activity summary (all locations unless locationId is given)
     @GetMapping("/activity-summary")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<List<Map<String, Object>>> getInventoryActivitySummary(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer locationId) {
 
-        List<Map<String, Object>> summary = inventoryLogService.getInventoryActivitySummary(startDate, endDate);
+        List<Map<String, Object>> summary = inventoryLogService.getInventoryActivitySummary(startDate, endDate, locationId);
 
         if (summary.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -287,15 +506,37 @@ public class InventoryLogController {
         return ResponseEntity.ok(summary);
     }
 
-    // ✅ Full access - Get total quantity changes for product
+    // ✅ Full access - Rebuild hourly/daily activity rollups from the raw logs (one-off backfill)
+    @PostMapping("/activity-summary/rebuild")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<String> rebuildActivityRollups() {
+        Boolean isRebuilt = inventoryLogService.rebuildActivityRollups();
+
+        if (isRebuilt) {
+            return ResponseEntity.ok("Inventory activity rollups rebuilt successfully");
+        } else {
+            return ResponseEntity.badRequest().body("Failed to rebuild inventory activity rollups");
+        }
+    }
+
+    // ✅ Full access - Move logs past the retention horizon to the archive now (also runs nightly when enabled)
+    @PostMapping("/archive")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> archiveLogs() {
+        return ResponseEntity.ok(Map.of("archived", inventoryLogService.archiveOldLogs()));
+    }
+
+    // ✅ Full access - Get total quantity changes for product (all locations unless locationId is given)
     @GetMapping("/product/{productId}/total-changes")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<Map<String, Object>> getTotalQuantityChangesForProduct(
             @PathVariable Integer productId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer locationId) {
 
-        Integer totalChanges = inventoryLogService.getTotalQuantityChangesForProduct(productId, startDate, endDate);
+        Integer totalChanges = inventoryLogService.getTotalQuantityChangesForProduct(productId, startDate, endDate,
+                locationId);
 
         return ResponseEntity.ok(Map.of(
                 "productId", productId,
@@ -322,15 +563,37 @@ public class InventoryLogController {
         return ResponseEntity.ok(logs);
     }
 
-    // ✅ View inventory logs - Search logs by reason
+    // ✅ View inventory logs - Follow logs newer than a cursor (pass the last seen log ID as afterId)
+    // Logs show up here pos.inventory-log.follow-settle-seconds after they are written
+    @GetMapping("/recent/follow")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<List<InventoryLog>> followLogs(@RequestParam(defaultValue = "0") Integer afterId,
+                                                         @RequestParam(defaultValue = "100") Integer limit) {
+        List<InventoryLog> logs = inventoryLogService.getLogsAfter(afterId, limit);
+
+        if (logs.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        return ResponseEntity.ok(logs);
+    }
+
+    // ✅ View inventory logs - Search logs by reason and notes (full-text, ranked by relevance)
+    // Paged: size is capped at 1000 logs per page, so larger result sets need further pages
     @GetMapping("/search")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
-    public ResponseEntity<List<InventoryLog>> searchLogsByReason(@RequestParam String reason) {
+    public ResponseEntity<List<InventoryLog>> searchLogsByReason(
+            @RequestParam String reason,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "50") Integer size) {
+
         if (reason == null || reason.trim().isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
 
-        List<InventoryLog> logs = inventoryLogService.searchLogsByReason(reason.trim());
+        List<InventoryLog> logs = inventoryLogService.searchLogs(reason.trim(), startDate, endDate, page, size);
 
         if (logs.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -377,7 +640,128 @@ public class InventoryLogController {
         return ResponseEntity.ok(logs);
     }
 
+    // ✅ View inventory logs - Get current stock for a product
+    @GetMapping("/stock/{productId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<Map<String, Object>> getCurrentStock(@PathVariable Integer productId,
+                                                               @RequestParam(required = false) Integer locationId) {
+        Integer currentStock = locationId != null ?
+                inventoryLogService.getCurrentStock(locationId, productId) :
+                inventoryLogService.getCurrentStock(productId);
+
+        return ResponseEntity.ok(Map.of(
+                "productId", productId,
+                "currentStock", currentStock
+        ));
+    }
+
+    // ✅ View inventory logs - Stock of a product at each location
+    @GetMapping("/stock/{productId}/locations")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<Map<Integer, Integer>> getStockByLocation(@PathVariable Integer productId) {
+        return ResponseEntity.ok(inventoryLogService.getStockByLocation(productId));
+    }
+
+    // ✅ View inventory logs - Currently active low-stock alerts
+    @GetMapping("/alerts")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<List<LowStockAlert>> getActiveAlerts() {
+        List<LowStockAlert> alerts = lowStockAlertService.getActiveAlerts();
+
+        if (alerts.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        return ResponseEntity.ok(alerts);
+    }
+
+    // ✅ View inventory logs - Subscribe to low-stock alerts (Server-Sent Events)
+    @GetMapping(value = "/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public SseEmitter streamAlerts() {
+        return lowStockAlertService.subscribe();
+    }
+
+    // ✅ View inventory logs - Get current stock for many products in one call
+    @GetMapping("/stock/batch")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER', 'ROLE_CASHIER')")
+    public ResponseEntity<Map<Integer, Integer>> getStockBatch(@RequestParam int[] productIds) {
+        int[] stock = productStockService.getStock(productIds);
+
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < productIds.length; i++) {
+            result.put(productIds[i], stock[i]);
+        }
+
+        return ResponseEntity.ok(result);
+    }
+
     // ================================================================================================
+    // ✅ Checkout lanes - Hold stock for an order until it is paid (expires after ttlSeconds)
+    @PostMapping("/stock/reservations")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER', 'ROLE_CASHIER')")
+    public ResponseEntity<String> reserveStock(@RequestBody Map<String, Object> request) {
+        try {
+            String orderId = request.get("orderId").toString();
+            Integer productId = Integer.valueOf(request.get("productId").toString());
+            Integer quantity = Integer.valueOf(request.get("quantity").toString());
+            Integer userId = Integer.valueOf(request.get("userId").toString());
+            Integer ttlSeconds = request.get("ttlSeconds") != null ?
+                    Integer.valueOf(request.get("ttlSeconds").toString()) : null;
+
+            Boolean isReserved = stockReservationService.reserve(orderId, productId, quantity, ttlSeconds, userId);
+
+            if (isReserved) {
+                return ResponseEntity.ok("Stock reserved successfully");
+            } else {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body("Failed to reserve stock (insufficient stock or already reserved)");
+            }
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Invalid request: " + e.getMessage());
+        }
+    }
+
+    // ✅ Checkout lanes - Turn an order's holds into sales
+    @PostMapping("/stock/reservations/{orderId}/commit")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER', 'ROLE_CASHIER')")
+    public ResponseEntity<String> commitReservation(@PathVariable String orderId, @RequestParam Integer userId) {
+        if (stockReservationService.commit(orderId, userId)) {
+            return ResponseEntity.ok("Reservation committed successfully");
+        } else {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("No active reservation for order " + orderId);
+        }
+    }
+
+    // ✅ Checkout lanes - Give an order's holds back to stock
+    @PostMapping("/stock/reservations/{orderId}/release")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER', 'ROLE_CASHIER')")
+    public ResponseEntity<String> releaseReservation(@PathVariable String orderId, @RequestParam Integer userId) {
+        if (stockReservationService.release(orderId, userId)) {
+            return ResponseEntity.ok("Reservation released successfully");
+        } else {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("No active reservation for order " + orderId);
+        }
+    }
+
+    // ✅ Checkout lanes - Active holds of an order
+    @GetMapping("/stock/reservations/{orderId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER', 'ROLE_CASHIER')")
+    public ResponseEntity<List<StockReservation>> getReservations(@PathVariable String orderId) {
+        return ResponseEntity.ok(stockReservationService.getReservations(orderId));
+    }
+
+    // ✅ View inventory logs - Units of a product currently held by open checkouts
+    @GetMapping("/stock/{productId}/reserved")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_MANAGER')")
+    public ResponseEntity<Map<String, Object>> getReservedStock(@PathVariable Integer productId) {
+        return ResponseEntity.ok(Map.of(
+                "productId", productId,
+                "reserved", stockReservationService.getReservedQuantity(productId)
+        ));
+    }
+
     // ✅ UTILITY ENDPOINTS
     // ================================================================================================
 
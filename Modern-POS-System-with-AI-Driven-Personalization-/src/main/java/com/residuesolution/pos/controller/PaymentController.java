@@ -262,6 +262,13 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    // ✅ ADMIN: Full access - Rebuild the hourly sales rollup from the raw payments (one-off backfill)
+    @PostMapping("/sales-hourly/rebuild")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildSalesRollups() {
+        return ResponseEntity.ok(Map.of("rows", paymentService.rebuildSalesRollups()));
+    }
+
     // ================================================================================================
     // ✅ MANAGER: View and manage payments for customers
     // ================================================================================================
@@ -17,10 +17,12 @@ public class AnalyticsReport {
     private String generatedBy; // user who generated the report
     private LocalDateTime generatedAt;
     private String reportData; // JSON string containing the actual report data
+    private LocalDateTime periodStart; // Reporting window (sales and performance reports only)
+    private LocalDateTime periodEnd;
     private String reportTitle;
     private String reportDescription;
     private String filters; // JSON string containing applied filters
-    private String status; // GENERATING, COMPLETED, FAILED
+    private String status; // GENERATING, COMPLETED, FAILED, CANCELLED
     private String fileUrl; // URL to downloadable report file (PDF/CSV)
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -0,0 +1,28 @@
+package com.residuesolution.pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// AnalyticsReport without reportData and filters, for list endpoints
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class AnalyticsReportSummary {
+    private Integer id;
+    private String reportType; // sales, inventory, customer, performance
+    private String generatedBy;
+    private LocalDateTime generatedAt;
+    private LocalDateTime periodStart;
+    private LocalDateTime periodEnd;
+    private String reportTitle;
+    private String reportDescription;
+    private String status; // GENERATING, COMPLETED, FAILED, CANCELLED
+    private String fileUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,21 @@
+package com.residuesolution.pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class CycleCountLine {
+    private Integer lineNumber;
+    private Integer productId;
+    private Integer countedQuantity;
+    private Integer reservedQuantity; // Units held by live reservations, counted but kept out of the stock level
+    private Integer previousStock;
+    private Integer adjustment;       // countedQuantity - reservedQuantity - previousStock (level floored at 0)
+    private String status;            // ADJUSTED, UNCHANGED, INVALID, DUPLICATE, FAILED
+    private String message;
+}
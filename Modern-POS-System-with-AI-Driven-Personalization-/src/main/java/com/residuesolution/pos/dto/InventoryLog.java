@@ -27,6 +27,7 @@ public class InventoryLog {
     // Additional fields for comprehensive tracking
     private String notes;
     private String referenceId;      // Reference to order, return, or adjustment ID
+    private Integer locationId;      // Location whose stock changed (null = default location)
     private Boolean isSystemGenerated; // True if generated by system (e.g., sales), false if manual
 
     public void info(String s, Integer productId, Integer quantity) {
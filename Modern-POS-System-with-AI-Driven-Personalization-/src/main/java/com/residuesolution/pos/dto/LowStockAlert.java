@@ -0,0 +1,23 @@
+package com.residuesolution.pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class LowStockAlert {
+    private Integer productId;
+    private String state;            // RAISED, CLEARED
+    private Integer currentStock;
+    private Integer reorderPoint;
+    private Integer reorderClearLevel;
+    private Boolean outOfStock;
+    private LocalDateTime raisedAt;
+    private LocalDateTime updatedAt;
+}
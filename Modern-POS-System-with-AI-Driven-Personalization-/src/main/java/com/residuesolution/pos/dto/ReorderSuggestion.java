@@ -0,0 +1,26 @@
+package com.residuesolution.pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class ReorderSuggestion {
+    private Integer productId;
+    private Double dailyDemand;              // Forecast units per day over the lead time
+    private Double leadTimeDemand;
+    private Double forecastError;            // One-step forecast error (units/day)
+    private Integer safetyStock;
+    private Integer reorderPoint;
+    private Integer currentStock;
+    private Integer suggestedOrderQuantity;  // 0 = no reorder needed yet
+    private String model;                    // HOLT_WINTERS, EXPONENTIAL_SMOOTHING, NONE
+    private Integer historyDays;
+    private LocalDateTime computedAt;
+}
@@ -0,0 +1,22 @@
+package com.residuesolution.pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class StockReservation {
+    private Long id;
+    private String orderId;
+    private Integer productId;
+    private Integer quantity;
+    private Integer reservedBy;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
+// Report data and filters are stored compressed in analytics_report_payloads (AnalyticsReportPayloadEntity)
 @Entity
 @Table(name = "analytics_reports")
 @Data
@@ -27,8 +28,11 @@ public class AnalyticsReportEntity {
     @Column(name = "generated_at", nullable = false)
     private LocalDateTime generatedAt;
 
-    @Column(name = "report_data", columnDefinition = "TEXT")
-    private String reportData; // JSON string containing the actual report data
+    @Column(name = "period_start")
+    private LocalDateTime periodStart; // Reporting window (sales and performance reports only)
+
+    @Column(name = "period_end")
+    private LocalDateTime periodEnd;
 
     @Column(name = "report_title", length = 255)
     private String reportTitle;
@@ -36,15 +40,18 @@ public class AnalyticsReportEntity {
     @Column(name = "report_description", columnDefinition = "TEXT")
     private String reportDescription;
 
-    @Column(name = "filters", columnDefinition = "TEXT")
-    private String filters; // JSON string containing applied filters
-
     @Column(name = "status", length = 20, nullable = false)
-    private String status = "GENERATING"; // GENERATING, COMPLETED, FAILED
+    private String status = "GENERATING"; // GENERATING, COMPLETED, FAILED, CANCELLED
 
     @Column(name = "file_url", length = 500)
     private String fileUrl; // URL to downloadable report file
 
+    @Column(name = "file_hash", length = 64)
+    private String fileHash; // SHA-256 of the exported CSV in the artifact store
+
+    @Column(name = "file_etag", length = 100)
+    private String fileEtag; // Data fingerprint the stored CSV was generated from
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
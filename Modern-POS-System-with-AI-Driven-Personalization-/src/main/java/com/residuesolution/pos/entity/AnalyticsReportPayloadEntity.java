@@ -0,0 +1,26 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Report payloads live apart from analytics_reports so listing and status checks never read them.
+// Both columns hold gzip-compressed UTF-8 JSON.
+@Entity
+@Table(name = "analytics_report_payloads")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnalyticsReportPayloadEntity {
+
+    @Id
+    @Column(name = "report_id")
+    private Integer reportId; // Same ID as the analytics_reports row
+
+    @Column(name = "report_data", columnDefinition = "LONGBLOB")
+    private byte[] reportData; // null until the report is COMPLETED
+
+    @Column(name = "filters", columnDefinition = "BLOB")
+    private byte[] filters;
+}
@@ -0,0 +1,50 @@
+package com.residuesolution.pos.entity;
+
+import com.residuesolution.pos.enums.InventoryChangeType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "inventory_activity_rollups")
+@IdClass(InventoryActivityRollupId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryActivityRollupEntity {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+    public static final int DEFAULT_LOCATION = 0; // Logs record the default location as null
+    public static final int UNKNOWN_LOCATION = -1; // Rows that predate the location column, until rebuilt
+
+    @Id
+    @Column(name = "granularity", nullable = false, length = 4)
+    private String granularity; // HOUR or DAY
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart; // Start of the hour or day (inclusive)
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, columnDefinition = "VARCHAR(32)") // Not a native ENUM: new types need no DDL
+    private InventoryChangeType changeType;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Id
+    @Column(name = "location_id", nullable = false, columnDefinition = "INT NOT NULL DEFAULT -1")
+    private Integer locationId; // DEFAULT_LOCATION for product stock, otherwise the location
+
+    @Column(name = "log_count", nullable = false)
+    private Long logCount;
+
+    @Column(name = "total_quantity", nullable = false)
+    private Long totalQuantity;
+}
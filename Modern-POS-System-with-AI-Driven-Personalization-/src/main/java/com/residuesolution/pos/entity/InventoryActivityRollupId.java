@@ -0,0 +1,27 @@
+package com.residuesolution.pos.entity;
+
+import com.residuesolution.pos.enums.InventoryChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryActivityRollupId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String granularity;
+
+    private LocalDateTime bucketStart;
+
+    private InventoryChangeType changeType;
+
+    private Integer productId;
+
+    private Integer locationId;
+}
@@ -0,0 +1,28 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Progress of the background fold of inventory_logs into inventory_activity_rollups (a single row)
+@Entity
+@Table(name = "inventory_activity_rollup_state")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryActivityRollupStateEntity {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "last_log_id", nullable = false)
+    private Integer lastLogId; // Logs with IDs up to this one are in the rollups; later ones are read raw
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
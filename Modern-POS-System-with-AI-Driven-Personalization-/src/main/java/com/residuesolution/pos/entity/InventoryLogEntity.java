@@ -9,7 +9,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "inventory_logs")
+@Table(name = "inventory_logs", indexes = {
+        @Index(name = "idx_inventory_logs_created_at", columnList = "created_at"),
+        @Index(name = "idx_inventory_logs_product_created", columnList = "product_id, created_at"),
+        @Index(name = "idx_inventory_logs_product_id", columnList = "product_id, id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -26,7 +30,7 @@ public class InventoryLogEntity {
     private Integer changedBy; // User ID who made the change
 
     @Enumerated(EnumType.STRING)
-    @Column(name = "change_type", nullable = false)
+    @Column(name = "change_type", nullable = false, columnDefinition = "VARCHAR(32)") // Not a native ENUM: new types need no DDL
     private InventoryChangeType changeType;
 
     @Column(name = "quantity", nullable = false)
@@ -47,6 +51,9 @@ public class InventoryLogEntity {
     @Column(name = "reference_id", length = 100)
     private String referenceId; // Reference to order, return, or adjustment ID
 
+    @Column(name = "location_id")
+    private Integer locationId; // Location whose stock changed (null = this store's default location)
+
     @Column(name = "is_system_generated", nullable = false)
     private Boolean isSystemGenerated = false;
 
@@ -0,0 +1,43 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Stock held at locations other than this store's default location (which lives in product_stock)
+@Entity
+@Table(name = "location_stock", indexes = {
+        @Index(name = "idx_location_stock_product", columnList = "product_id")
+})
+@IdClass(LocationStockId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationStockEntity {
+
+    @Id
+    @Column(name = "location_id", nullable = false)
+    private Integer locationId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+        if (this.quantity == null) {
+            this.quantity = 0;
+        }
+    }
+}
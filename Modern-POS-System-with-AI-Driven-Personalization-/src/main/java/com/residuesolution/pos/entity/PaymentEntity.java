@@ -11,7 +11,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payment")
+@Table(name = "payment", indexes = {
+        @Index(name = "idx_payment_datetime_status_amount", columnList = "payment_date_time, payment_status, amount"),
+        @Index(name = "idx_payment_datetime_id", columnList = "payment_date_time, payment_id"), // Keyset paging for exports
+        @Index(name = "idx_payment_updated_at", columnList = "updated_at, payment_id") // Change feed for in-memory analytics
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
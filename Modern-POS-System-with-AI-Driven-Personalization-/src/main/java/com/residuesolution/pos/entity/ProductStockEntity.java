@@ -0,0 +1,47 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "product_stock")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductStockEntity {
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0; // Units currently on hand, never negative
+
+    @Column(name = "shard_count", nullable = false)
+    private Integer shardCount = 0; // > 1 when stock is split across product_stock_shards (hot SKUs)
+
+    @Column(name = "reorder_point")
+    private Integer reorderPoint; // Low-stock alert fires at or below this level (null = no alerting)
+
+    @Column(name = "reorder_clear_level")
+    private Integer reorderClearLevel; // Alert clears only once stock is back at or above this level
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+        if (this.quantity == null) {
+            this.quantity = 0;
+        }
+        if (this.shardCount == null) {
+            this.shardCount = 0;
+        }
+    }
+}
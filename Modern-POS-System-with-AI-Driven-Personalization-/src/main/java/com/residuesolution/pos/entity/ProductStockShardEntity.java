@@ -0,0 +1,40 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "product_stock_shards")
+@IdClass(ProductStockShardId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductStockShardEntity {
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Id
+    @Column(name = "shard_no", nullable = false)
+    private Integer shardNo; // 0 .. shardCount - 1
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity = 0; // This shard's slice of the product's stock
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+        if (this.quantity == null) {
+            this.quantity = 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reorder_suggestions")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReorderSuggestionEntity {
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "daily_demand", nullable = false)
+    private Double dailyDemand; // Forecast units per day over the lead time
+
+    @Column(name = "lead_time_demand", nullable = false)
+    private Double leadTimeDemand;
+
+    @Column(name = "forecast_error", nullable = false)
+    private Double forecastError; // One-step forecast error (units/day)
+
+    @Column(name = "safety_stock", nullable = false)
+    private Integer safetyStock;
+
+    @Column(name = "reorder_point", nullable = false)
+    private Integer reorderPoint;
+
+    @Column(name = "current_stock", nullable = false)
+    private Integer currentStock; // Stock when the suggestion was computed
+
+    @Column(name = "suggested_order_quantity", nullable = false)
+    private Integer suggestedOrderQuantity; // 0 = no reorder needed yet
+
+    @Column(name = "model", nullable = false, length = 32)
+    private String model;
+
+    @Column(name = "history_days", nullable = false)
+    private Integer historyDays;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+}
@@ -0,0 +1,58 @@
+package com.residuesolution.pos.entity;
+
+import com.residuesolution.pos.enums.PaymentMethod;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Completed payments (refunded ones included) per hour of payment time, method and gateway; refunds land in the
+// payment's own hour. The completed_* columns count only the payments still COMPLETED, the headline figures.
+// Each bucket is split over shard rows so concurrent payments in the same hour don't queue on one row lock;
+// readers add the shards up
+@Entity
+@Table(name = "sales_hourly")
+@IdClass(SalesHourlyId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesHourlyEntity {
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart; // Start of the hour (inclusive)
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false)
+    private PaymentMethod paymentMethod;
+
+    @Id
+    @Column(name = "gateway", nullable = false, length = 50)
+    private String gateway; // UNKNOWN when the payment has none
+
+    @Id
+    @Column(name = "shard_no", nullable = false)
+    private Integer shardNo; // 0 .. shards - 1; rebuilt buckets land in shard 0
+
+    @Column(name = "payment_count", nullable = false)
+    private Long paymentCount;
+
+    @Column(name = "gross_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal grossAmount;
+
+    @Column(name = "refund_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal refundAmount;
+
+    @Column(name = "net_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal netAmount; // gross - refunds
+
+    @Column(name = "completed_count", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long completedCount;
+
+    @Column(name = "completed_amount", precision = 15, scale = 2)
+    private BigDecimal completedAmount; // Null on rows from before this column, until the rollup is rebuilt
+}
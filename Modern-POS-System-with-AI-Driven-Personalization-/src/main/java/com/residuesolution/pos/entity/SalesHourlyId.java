@@ -0,0 +1,25 @@
+package com.residuesolution.pos.entity;
+
+import com.residuesolution.pos.enums.PaymentMethod;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesHourlyId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private LocalDateTime bucketStart;
+
+    private PaymentMethod paymentMethod;
+
+    private String gateway;
+
+    private Integer shardNo;
+}
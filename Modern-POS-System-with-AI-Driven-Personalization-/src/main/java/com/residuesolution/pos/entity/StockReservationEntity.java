@@ -0,0 +1,44 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_reservations_order_product",
+                columnNames = {"order_id", "product_id"}),
+        indexes = {
+                @Index(name = "idx_stock_reservations_expires_at", columnList = "expires_at"), // Orphan sweep
+                @Index(name = "idx_stock_reservations_product_id", columnList = "product_id") // Held units per product
+        })
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockReservationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, length = 100)
+    private String orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity; // Units held (already taken out of product_stock)
+
+    @Column(name = "reserved_by", nullable = false)
+    private Integer reservedBy;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,29 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_snapshots")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockSnapshotEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+
+    @Column(name = "last_log_id", nullable = false)
+    private Integer lastLogId; // Highest inventory log ID reflected in this snapshot
+
+    @Column(name = "product_count", nullable = false)
+    private Integer productCount; // Products written (only those changed since the previous snapshot)
+}
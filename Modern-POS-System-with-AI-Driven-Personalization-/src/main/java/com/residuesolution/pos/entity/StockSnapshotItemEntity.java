@@ -0,0 +1,28 @@
+package com.residuesolution.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "stock_snapshot_items", indexes = {
+        @Index(name = "idx_stock_snapshot_items_product", columnList = "product_id, snapshot_id")
+})
+@IdClass(StockSnapshotItemId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockSnapshotItemEntity {
+
+    @Id
+    @Column(name = "snapshot_id", nullable = false)
+    private Integer snapshotId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+}
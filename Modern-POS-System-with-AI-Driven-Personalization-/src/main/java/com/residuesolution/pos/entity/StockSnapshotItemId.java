@@ -0,0 +1,19 @@
+package com.residuesolution.pos.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockSnapshotItemId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Integer snapshotId;
+
+    private Integer productId;
+}
@@ -14,5 +14,7 @@ public enum InventoryChangeType {
     TRANSFER_IN,    // Stock increase due to transfer from another location
     TRANSFER_OUT,   // Stock decrease due to transfer to another location
     INITIAL_STOCK,  // Initial stock entry
-    AUDIT_ADJUSTMENT // Stock adjustment during audit
+    AUDIT_ADJUSTMENT, // Stock adjustment during audit
+    RESERVED,       // Stock held for an in-flight checkout
+    RESERVATION_RELEASED // Held stock returned (released, expired, or converted into a sale)
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.residuesolution.pos.exception;
 
 public class ResourceNotFoundException extends RuntimeException {
 
+    private static final long serialVersionUID = 1L;
+
     public ResourceNotFoundException(String message) {
         super(message);
     }
@@ -0,0 +1,49 @@
+package com.residuesolution.pos.factstore;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Byte dictionary for a low-cardinality string column. Codes are handed out in first-seen order and
+// never change; anything past the first 255 distinct values shares the OTHER code.
+final class FactDictionary {
+
+    static final int OTHER = 255;
+    static final String OTHER_VALUE = "OTHER";
+    static final String UNKNOWN_VALUE = "UNKNOWN";
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[0];
+
+    synchronized byte encode(String value) {
+        String key = value != null ? value : UNKNOWN_VALUE;
+        Integer code = codes.get(key);
+        if (code != null) {
+            return (byte) (int) code;
+        }
+        if (values.length >= OTHER) {
+            return (byte) OTHER;
+        }
+
+        String[] grown = Arrays.copyOf(values, values.length + 1);
+        grown[values.length] = key;
+        values = grown;
+        codes.put(key, values.length - 1);
+        return (byte) (values.length - 1);
+    }
+
+    // -1 when the value was never seen, so a filter on it matches nothing
+    int lookup(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    String decode(int code) {
+        String[] current = values;
+        return code < current.length ? current[code] : OTHER_VALUE;
+    }
+
+    int size() {
+        return values.length;
+    }
+}
@@ -0,0 +1,615 @@
+package com.residuesolution.pos.factstore;
+
+import com.residuesolution.pos.entity.PaymentEntity;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// In-process columnar copy of every payment that reached COMPLETED: one primitive array per column
+// (amount in cents, wall-clock epoch minute, user, customer) plus method, gateway and status encoded
+// to a byte through a dictionary. Rows live in fixed-size blocks, so appends never copy existing data
+// and a block whose minute range misses the window is skipped without reading it. A query splits the
+// blocks over a fork/join pool; each worker runs one flat filter + accumulate loop per block with no
+// boxing or per-row allocation. Loaded in payment_id order after startup, then kept current from
+// committed payment status changes on this node and, for changes made by other nodes, by re-reading
+// recently updated payments from the database every few seconds (so a multi-node deployment converges
+// within one sync interval). Only payments currently in the completed family are counted unless a
+// status filter asks for another status.
+@Component
+@Slf4j
+public class PaymentFactStore {
+
+    private static final int BLOCK_SHIFT = 16;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int BYTES_PER_ROW = 4 + 8 + 4 + 4 + 4 + 3;
+    private static final int MINUTES_PER_DAY = 1440;
+    private static final int ANY = Integer.MIN_VALUE; // Filter wildcard
+
+    // A payment joins the store when it completes; later refunds only change its status
+    private static final Set<String> COMPLETED_STATUSES = Set.of("COMPLETED", "REFUNDED", "PARTIALLY_REFUNDED");
+
+    private static final String LOAD_SQL = "SELECT payment_id, amount, payment_date_time, processed_by_user_id, " +
+            "customer_id, payment_method, gateway, payment_status FROM payment " +
+            "WHERE payment_id > ? AND payment_status IN ('COMPLETED', 'REFUNDED', 'PARTIALLY_REFUNDED') " +
+            "ORDER BY payment_id LIMIT ?";
+
+    // Keyset page of payments updated since a point in time (uses idx_payment_updated_at)
+    private static final String SYNC_SQL = "SELECT payment_id, amount, payment_date_time, processed_by_user_id, " +
+            "customer_id, payment_method, gateway, payment_status, updated_at FROM payment " +
+            "WHERE updated_at >= ? AND (updated_at > ? OR payment_id > ?) " +
+            "ORDER BY updated_at, payment_id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int loadPageSize;
+    private final long syncSettleSeconds;
+    private final ForkJoinPool pool;
+
+    private final FactDictionary methods = new FactDictionary();
+    private final FactDictionary gateways = new FactDictionary();
+    private final FactDictionary statuses = new FactDictionary();
+
+    // Writers hold appendLock; readers take size first, then blocks, and never lock
+    private final Object appendLock = new Object();
+    private volatile Block[] blocks = new Block[0];
+    private volatile int size;
+    private volatile int minMinute = Integer.MAX_VALUE;
+    private volatile int maxMinute = Integer.MIN_VALUE;
+    private volatile int maxUserId;
+
+    // Rows [0, loadedRows) came from the startup load and are sorted by payment ID; later ones are indexed here
+    private int loadedRows;
+    private final RowIndex appendedRows = new RowIndex();
+    private final List<Fact> pendingDuringLoad = new ArrayList<>();
+    private volatile boolean loaded;
+    private volatile boolean loadFailed;
+    private volatile long loadMillis;
+
+    // Changes made up to syncedAt (less in-flight transactions, which the settle window re-reads) are applied
+    private volatile LocalDateTime syncedAt;
+    private volatile boolean syncFailed;
+
+    public PaymentFactStore(JdbcTemplate jdbcTemplate,
+                            @Value("${pos.payment-facts.enabled:true}") boolean enabled,
+                            @Value("${pos.payment-facts.load-page-size:50000}") int loadPageSize,
+                            @Value("${pos.payment-facts.parallelism:0}") int parallelism,
+                            @Value("${pos.payment-facts.sync-settle-seconds:60}") long syncSettleSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.loadPageSize = loadPageSize;
+        this.syncSettleSeconds = syncSettleSeconds;
+        // Own pool, so a slice query never competes with parallel streams on the common pool
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // Loads on a background thread so startup is not held up; queries answer from what is loaded so far
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "payment-fact-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    // Applies payment changes committed anywhere (other nodes included) since the previous sync. Each run
+    // re-reads a settle window before it, so a transaction that committed late with an older updated_at
+    // is still seen; applying a payment twice is harmless, its row is simply overwritten with the same state
+    @Scheduled(fixedDelayString = "${pos.payment-facts.sync-ms:5000}")
+    public void sync() {
+        LocalDateTime since = syncedAt;
+        if (!enabled || !loaded || since == null) {
+            return;
+        }
+
+        LocalDateTime started = LocalDateTime.now();
+        try {
+            LocalDateTime lastTime = since.minusSeconds(syncSettleSeconds);
+            int lastId = 0;
+            while (true) {
+                List<Object[]> page = jdbcTemplate.query(SYNC_SQL, (rs, rowNum) -> new Object[]{
+                        readFact(rs), rs.getTimestamp(9).toLocalDateTime()
+                }, Timestamp.valueOf(lastTime), Timestamp.valueOf(lastTime), lastId, loadPageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                synchronized (appendLock) {
+                    page.forEach(row -> upsert((Fact) row[0]));
+                }
+                Object[] last = page.get(page.size() - 1);
+                lastId = ((Fact) last[0]).paymentId();
+                lastTime = (LocalDateTime) last[1];
+
+                if (page.size() < loadPageSize) {
+                    break;
+                }
+            }
+            syncedAt = started;
+            syncFailed = false;
+
+        } catch (Exception e) {
+            syncFailed = true;
+            log.error("Error syncing payment facts since {}: {}", since, e.getMessage(), e);
+        }
+    }
+
+    // Called after a payment change commits; appends newly completed payments, updates the status of known ones
+    public void record(PaymentEntity payment) {
+        if (!enabled || payment.getPaymentId() == null || payment.getPaymentDateTime() == null) {
+            return;
+        }
+
+        Fact fact = new Fact(payment.getPaymentId(), toCents(payment.getAmount()), toMinute(payment.getPaymentDateTime()),
+                payment.getProcessedByUserId() != null ? payment.getProcessedByUserId() : 0,
+                payment.getCustomerId() != null ? payment.getCustomerId() : 0,
+                payment.getPaymentMethod() != null ? payment.getPaymentMethod().name() : null,
+                payment.getGateway(),
+                payment.getPaymentStatus() != null ? payment.getPaymentStatus().name() : null);
+
+        synchronized (appendLock) {
+            if (!loaded) {
+                pendingDuringLoad.add(fact); // Replayed once the load finishes, so the newer state wins
+                return;
+            }
+            upsert(fact);
+        }
+    }
+
+    // to is exclusive; null filter fields match everything
+    public Slice query(Filter filter, GroupBy groupBy) {
+        long started = System.nanoTime();
+        int rows = size; // Read before blocks: every row below it is fully written
+        Block[] snapshot = blocks;
+
+        int fromMinute = filter.from() != null ? toMinute(filter.from()) : Integer.MIN_VALUE;
+        int toMinute = filter.to() != null ? toMinute(filter.to()) : Integer.MAX_VALUE;
+        int method = code(methods, filter.method());
+        int gateway = code(gateways, filter.gateway());
+        int status = code(statuses, filter.status());
+        boolean[] countedStatuses = countedStatuses(status);
+        int userId = filter.userId() != null ? filter.userId() : ANY;
+        int customerId = filter.customerId() != null ? filter.customerId() : ANY;
+
+        int first = Math.max(fromMinute, minMinute);
+        int last = Math.min(toMinute - 1, maxMinute);
+        if (rows == 0 || first > last || method < 0 && method != ANY || gateway < 0 && gateway != ANY
+                || status < 0 && status != ANY) {
+            return new Slice(isComplete(), syncedAt, 0, BigDecimal.ZERO.setScale(2), List.of(), rows,
+                    elapsedMicros(started));
+        }
+
+        int dayBase = Math.floorDiv(first, MINUTES_PER_DAY);
+        int keys = switch (groupBy) {
+            case NONE -> 1;
+            case METHOD, GATEWAY, STATUS -> 256;
+            case USER -> maxUserId + 1;
+            case HOUR_OF_DAY -> 24;
+            case DAY_OF_WEEK -> 7;
+            case DAY -> Math.floorDiv(last, MINUTES_PER_DAY) - dayBase + 1;
+        };
+
+        Scan scan = new Scan(snapshot, rows, fromMinute, toMinute, userId, customerId, method, gateway,
+                countedStatuses, groupBy, dayBase, keys);
+        int blockCount = (rows + BLOCK_MASK) >>> BLOCK_SHIFT;
+        int blocksPerTask = Math.max(1, blockCount / (pool.getParallelism() * 2));
+        long[][] totals = pool.invoke(new ScanTask(scan, 0, blockCount, blocksPerTask));
+
+        long matched = 0;
+        long amountCents = 0;
+        List<Group> groups = new ArrayList<>();
+        for (int key = 0; key < keys; key++) {
+            long count = totals[0][key];
+            if (count > 0) {
+                matched += count;
+                amountCents += totals[1][key];
+                groups.add(new Group(label(groupBy, key, dayBase), count, BigDecimal.valueOf(totals[1][key], 2)));
+            }
+        }
+        // Time groups stay in time order; the rest come biggest first
+        if (groupBy != GroupBy.HOUR_OF_DAY && groupBy != GroupBy.DAY_OF_WEEK && groupBy != GroupBy.DAY) {
+            groups.sort(Comparator.comparing(Group::amount).reversed());
+        }
+
+        return new Slice(isComplete(), syncedAt, matched, BigDecimal.valueOf(amountCents, 2), groups, rows,
+                elapsedMicros(started));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("loaded", loaded);
+        statistics.put("loadFailed", loadFailed);
+        statistics.put("loadMillis", loadMillis);
+        statistics.put("syncedAt", syncedAt);
+        statistics.put("syncFailed", syncFailed);
+        statistics.put("rows", size);
+        statistics.put("blocks", blocks.length);
+        statistics.put("allocatedBytes", (long) blocks.length * BLOCK_SIZE * BYTES_PER_ROW);
+        statistics.put("methods", methods.size());
+        statistics.put("gateways", gateways.size());
+        statistics.put("statuses", statuses.size());
+        return statistics;
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        int loadedCount = 0;
+        // Payments that change while the load pages through the table are picked up by the first sync
+        LocalDateTime loadStart = LocalDateTime.now();
+        try {
+            int lastId = 0;
+            while (true) {
+                List<Fact> page = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> readFact(rs), lastId, loadPageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                synchronized (appendLock) {
+                    page.forEach(this::append);
+                }
+                loadedCount += page.size();
+                lastId = page.get(page.size() - 1).paymentId();
+
+                if (page.size() < loadPageSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            loadFailed = true;
+            log.error("Error loading payment facts after {} rows: {}", loadedCount, e.getMessage(), e);
+        } finally {
+            synchronized (appendLock) {
+                loadedRows = size;
+                pendingDuringLoad.forEach(this::upsert);
+                pendingDuringLoad.clear();
+                syncedAt = loadStart;
+                loaded = true;
+            }
+            loadMillis = (System.nanoTime() - started) / 1_000_000;
+            log.info("Loaded {} payment facts into {} blocks in {} ms", loadedCount, blocks.length, loadMillis);
+        }
+    }
+
+    // Caller holds appendLock
+    private void upsert(Fact fact) {
+        int row = findRow(fact.paymentId());
+        if (row >= 0) {
+            // A plain byte store: concurrent scans see the new status on their next pass at the latest
+            blocks[row >>> BLOCK_SHIFT].statusCodes[row & BLOCK_MASK] = statuses.encode(fact.status());
+            return;
+        }
+        if (fact.status() != null && COMPLETED_STATUSES.contains(fact.status())) {
+            appendedRows.put(fact.paymentId(), size);
+            append(fact);
+        }
+    }
+
+    // Caller holds appendLock
+    private int findRow(int paymentId) {
+        Block[] current = blocks;
+        int low = 0;
+        int high = loadedRows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = current[mid >>> BLOCK_SHIFT].paymentIds[mid & BLOCK_MASK];
+            if (id < paymentId) {
+                low = mid + 1;
+            } else if (id > paymentId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return appendedRows.get(paymentId);
+    }
+
+    // Caller holds appendLock. Columns and bounds are written before size, which publishes the row
+    private void append(Fact fact) {
+        int row = size;
+        int b = row >>> BLOCK_SHIFT;
+        if (b == blocks.length) {
+            Block[] grown = Arrays.copyOf(blocks, b + 1);
+            grown[b] = new Block();
+            blocks = grown;
+        }
+
+        Block block = blocks[b];
+        int i = row & BLOCK_MASK;
+        block.paymentIds[i] = fact.paymentId();
+        block.amountCents[i] = fact.amountCents();
+        block.minutes[i] = fact.minute();
+        block.userIds[i] = fact.userId();
+        block.customerIds[i] = fact.customerId();
+        block.methodCodes[i] = methods.encode(fact.method());
+        block.gatewayCodes[i] = gateways.encode(fact.gateway());
+        block.statusCodes[i] = statuses.encode(fact.status());
+        block.minMinute = i == 0 ? fact.minute() : Math.min(block.minMinute, fact.minute());
+        block.maxMinute = i == 0 ? fact.minute() : Math.max(block.maxMinute, fact.minute());
+
+        minMinute = Math.min(minMinute, fact.minute());
+        maxMinute = Math.max(maxMinute, fact.minute());
+        maxUserId = Math.max(maxUserId, fact.userId());
+        size = row + 1;
+    }
+
+    private boolean isComplete() {
+        return loaded && !loadFailed && !syncFailed;
+    }
+
+    // Status codes a scan counts: the requested one, or by default every code in the completed family
+    // (a payment that was completed and later cancelled or failed keeps its row, only its status changes)
+    private boolean[] countedStatuses(int status) {
+        boolean[] counted = new boolean[256];
+        if (status != ANY) {
+            if (status >= 0) {
+                counted[status] = true;
+            }
+            return counted;
+        }
+        for (String completed : COMPLETED_STATUSES) {
+            int code = statuses.lookup(completed);
+            if (code >= 0) {
+                counted[code] = true;
+            }
+        }
+        return counted;
+    }
+
+    private static Fact readFact(ResultSet rs) throws SQLException {
+        return new Fact(
+                rs.getInt(1),
+                toCents(rs.getBigDecimal(2)),
+                toMinute(rs.getTimestamp(3).toLocalDateTime()),
+                rs.getInt(4),
+                rs.getInt(5), // 0 for walk-in payments without a customer
+                rs.getString(6),
+                rs.getString(7),
+                rs.getString(8));
+    }
+
+    private String label(GroupBy groupBy, int key, int dayBase) {
+        return switch (groupBy) {
+            case NONE -> "ALL";
+            case METHOD -> methods.decode(key);
+            case GATEWAY -> gateways.decode(key);
+            case STATUS -> statuses.decode(key);
+            case USER, HOUR_OF_DAY -> String.valueOf(key);
+            case DAY_OF_WEEK -> DayOfWeek.of(key + 1).name();
+            case DAY -> LocalDate.ofEpochDay(dayBase + key).toString();
+        };
+    }
+
+    private static int code(FactDictionary dictionary, String value) {
+        return value != null ? dictionary.lookup(value) : ANY;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0;
+    }
+
+    // Wall-clock minutes (the stored LocalDateTime read as UTC), so hour and day keys match the stored times
+    private static int toMinute(LocalDateTime dateTime) {
+        return (int) Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static long elapsedMicros(long started) {
+        return (System.nanoTime() - started) / 1_000;
+    }
+
+    public enum GroupBy {
+        NONE, METHOD, GATEWAY, STATUS, USER, HOUR_OF_DAY, DAY_OF_WEEK, DAY
+    }
+
+    public record Filter(LocalDateTime from, LocalDateTime to, Integer userId, Integer customerId,
+                         String method, String gateway, String status) {
+    }
+
+    public record Group(String key, long count, BigDecimal amount) {
+    }
+
+    // complete is false while the startup load is running or after a load or sync failed; syncedAt bounds
+    // what changes made on other nodes are included; scannedRows is the store size
+    public record Slice(boolean complete, LocalDateTime syncedAt, long count, BigDecimal amount, List<Group> groups, int scannedRows,
+                        long elapsedMicros) {
+    }
+
+    private record Fact(int paymentId, long amountCents, int minute, int userId, int customerId,
+                        String method, String gateway, String status) {
+    }
+
+    private static final class Block {
+
+        final int[] paymentIds = new int[BLOCK_SIZE];
+        final long[] amountCents = new long[BLOCK_SIZE];
+        final int[] minutes = new int[BLOCK_SIZE];
+        final int[] userIds = new int[BLOCK_SIZE];
+        final int[] customerIds = new int[BLOCK_SIZE];
+        final byte[] methodCodes = new byte[BLOCK_SIZE];
+        final byte[] gatewayCodes = new byte[BLOCK_SIZE];
+        final byte[] statusCodes = new byte[BLOCK_SIZE];
+        int minMinute;
+        int maxMinute;
+    }
+
+    private record Scan(Block[] blocks, int rows, int fromMinute, int toMinute, int userId, int customerId,
+                        int method, int gateway, boolean[] countedStatuses, GroupBy groupBy, int dayBase, int keys) {
+    }
+
+    // Returns {counts, amountCents} indexed by group key
+    private static class ScanTask extends RecursiveTask<long[][]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Scan scan;
+        private final int fromBlock;
+        private final int toBlock;
+        private final int blocksPerTask;
+
+        ScanTask(Scan scan, int fromBlock, int toBlock, int blocksPerTask) {
+            this.scan = scan;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+            this.blocksPerTask = blocksPerTask;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (toBlock - fromBlock <= blocksPerTask) {
+                long[] counts = new long[scan.keys()];
+                long[] sums = new long[scan.keys()];
+                for (int b = fromBlock; b < toBlock; b++) {
+                    scanBlock(b, counts, sums);
+                }
+                return new long[][]{counts, sums};
+            }
+
+            int mid = (fromBlock + toBlock) >>> 1;
+            ScanTask right = new ScanTask(scan, mid, toBlock, blocksPerTask);
+            right.fork();
+            long[][] result = new ScanTask(scan, fromBlock, mid, blocksPerTask).compute();
+            long[][] other = right.join();
+            for (int k = 0; k < result[0].length; k++) {
+                result[0][k] += other[0][k];
+                result[1][k] += other[1][k];
+            }
+            return result;
+        }
+
+        private void scanBlock(int b, long[] counts, long[] sums) {
+            Block block = scan.blocks()[b];
+            int fromMinute = scan.fromMinute();
+            int toMinute = scan.toMinute();
+            int n = Math.min(BLOCK_SIZE, scan.rows() - (b << BLOCK_SHIFT));
+            if (n <= 0 || block.maxMinute < fromMinute || block.minMinute >= toMinute) {
+                return;
+            }
+
+            int userId = scan.userId();
+            int customerId = scan.customerId();
+            int method = scan.method();
+            int gateway = scan.gateway();
+            boolean[] countedStatuses = scan.countedStatuses();
+            GroupBy groupBy = scan.groupBy();
+            int dayBase = scan.dayBase();
+            long[] amountCents = block.amountCents;
+            int[] minutes = block.minutes;
+            int[] userIds = block.userIds;
+            int[] customerIds = block.customerIds;
+            byte[] methodCodes = block.methodCodes;
+            byte[] gatewayCodes = block.gatewayCodes;
+            byte[] statusCodes = block.statusCodes;
+
+            for (int i = 0; i < n; i++) {
+                int minute = minutes[i];
+                if (minute < fromMinute || minute >= toMinute
+                        || userId != ANY && userIds[i] != userId
+                        || customerId != ANY && customerIds[i] != customerId
+                        || method != ANY && (methodCodes[i] & 0xFF) != method
+                        || gateway != ANY && (gatewayCodes[i] & 0xFF) != gateway
+                        || !countedStatuses[statusCodes[i] & 0xFF]) {
+                    continue;
+                }
+
+                int key = switch (groupBy) {
+                    case NONE -> 0;
+                    case METHOD -> methodCodes[i] & 0xFF;
+                    case GATEWAY -> gatewayCodes[i] & 0xFF;
+                    case STATUS -> statusCodes[i] & 0xFF;
+                    case USER -> userIds[i];
+                    case HOUR_OF_DAY -> Math.floorMod(Math.floorDiv(minute, 60), 24);
+                    case DAY_OF_WEEK -> Math.floorMod(Math.floorDiv(minute, MINUTES_PER_DAY) + 3, 7); // 1970-01-01 was a Thursday
+                    case DAY -> Math.floorDiv(minute, MINUTES_PER_DAY) - dayBase;
+                };
+                counts[key]++;
+                sums[key] += amountCents[i];
+            }
+        }
+    }
+
+    // Payment ID -> row for rows appended after the load: open addressing over two int arrays, so
+    // millions of completions after startup cost 8-16 bytes each instead of two boxed Integers and an entry.
+    // Payment IDs are positive, so 0 marks an empty slot. Caller holds appendLock
+    private static final class RowIndex {
+
+        private int[] keys = new int[1024];
+        private int[] rows = new int[1024];
+        private int size;
+
+        int get(int paymentId) {
+            int mask = keys.length - 1;
+            for (int i = mix(paymentId) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == paymentId) {
+                    return rows[i];
+                }
+            }
+            return -1;
+        }
+
+        void put(int paymentId, int row) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = mix(paymentId) & mask;
+            while (keys[i] != 0 && keys[i] != paymentId) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = paymentId;
+            rows[i] = row;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new int[oldKeys.length * 2];
+            rows = new int[oldRows.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldRows[i]);
+                }
+            }
+        }
+
+        // Sequential IDs must not cluster in neighbouring slots
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.residuesolution.pos.forecast;
+
+// Per-SKU demand model: additive Holt-Winters with a weekly season, parameters picked per series by
+// a small grid search on one-step-ahead squared error. Series shorter than two seasons fall back to
+// simple exponential smoothing. Pure computation on primitive arrays, safe to call from many threads.
+public final class DemandForecaster {
+
+    public static final String HOLT_WINTERS = "HOLT_WINTERS";
+    public static final String EXPONENTIAL_SMOOTHING = "EXPONENTIAL_SMOOTHING";
+    public static final String NONE = "NONE";
+
+    private static final int SEASON = 7;
+    private static final double[] ALPHAS = {0.05, 0.1, 0.2, 0.3, 0.5};
+    private static final double[] BETAS = {0.0, 0.05, 0.15};
+    private static final double[] GAMMAS = {0.05, 0.15, 0.3};
+
+    private DemandForecaster() {
+    }
+
+    // dailyDemand is oldest first and ends yesterday; horizon is in days
+    public static Forecast forecast(float[] dailyDemand, int horizon) {
+        if (dailyDemand.length == 0) {
+            return new Forecast(0, 0, 0, NONE);
+        }
+        if (dailyDemand.length < 2 * SEASON) {
+            return exponentialSmoothing(dailyDemand, horizon);
+        }
+        return holtWinters(dailyDemand, horizon);
+    }
+
+    private static Forecast holtWinters(float[] y, int horizon) {
+        double bestSse = Double.MAX_VALUE;
+        double[] best = null;
+
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : GAMMAS) {
+                    double sse = fitHoltWinters(y, alpha, beta, gamma, null);
+                    if (sse < bestSse) {
+                        bestSse = sse;
+                        best = new double[]{alpha, beta, gamma};
+                    }
+                }
+            }
+        }
+
+        // Re-run the winner to get its final level, trend and season
+        double[] state = new double[2 + SEASON];
+        fitHoltWinters(y, best[0], best[1], best[2], state);
+        double level = state[0];
+        double trend = state[1];
+
+        double total = 0;
+        for (int h = 1; h <= horizon; h++) {
+            total += Math.max(0, level + h * trend + state[2 + (y.length + h - 1) % SEASON]);
+        }
+
+        double sigma = Math.sqrt(bestSse / (y.length - SEASON));
+        return new Forecast(total / horizon, total, sigma, HOLT_WINTERS);
+    }
+
+    // Returns the one-step-ahead SSE; writes level, trend and season into state when given
+    private static double fitHoltWinters(float[] y, double alpha, double beta, double gamma, double[] state) {
+        double firstMean = mean(y, 0, SEASON);
+        double level = firstMean;
+        double trend = (mean(y, SEASON, 2 * SEASON) - firstMean) / SEASON;
+        double[] season = new double[SEASON];
+        for (int i = 0; i < SEASON; i++) {
+            season[i] = y[i] - firstMean;
+        }
+
+        double sse = 0;
+        for (int t = SEASON; t < y.length; t++) {
+            int s = t % SEASON;
+            double error = y[t] - (level + trend + season[s]);
+            sse += error * error;
+
+            double previousLevel = level;
+            level = alpha * (y[t] - season[s]) + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+            season[s] = gamma * (y[t] - level) + (1 - gamma) * season[s];
+        }
+
+        if (state != null) {
+            state[0] = level;
+            state[1] = trend;
+            System.arraycopy(season, 0, state, 2, SEASON);
+        }
+        return sse;
+    }
+
+    private static Forecast exponentialSmoothing(float[] y, int horizon) {
+        double bestSse = Double.MAX_VALUE;
+        double bestLevel = y[0];
+
+        for (double alpha : ALPHAS) {
+            double level = y[0];
+            double sse = 0;
+            for (int t = 1; t < y.length; t++) {
+                double error = y[t] - level;
+                sse += error * error;
+                level += alpha * error;
+            }
+            if (sse < bestSse) {
+                bestSse = sse;
+                bestLevel = level;
+            }
+        }
+
+        double daily = Math.max(0, bestLevel);
+        double sigma = y.length > 1 ? Math.sqrt(bestSse / (y.length - 1)) : daily;
+        return new Forecast(daily, daily * horizon, sigma, EXPONENTIAL_SMOOTHING);
+    }
+
+    private static double mean(float[] y, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += y[i];
+        }
+        return sum / (to - from);
+    }
+
+    // dailyDemand: average forecast per day over the horizon; sigma: one-step forecast error (units/day)
+    public record Forecast(double dailyDemand, double horizonDemand, double sigma, String model) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.AnalyticsReportPayloadEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnalyticsReportPayloadRepository extends JpaRepository<AnalyticsReportPayloadEntity, Integer> {
+
+    // Fill in the data of a report created as GENERATING, without reading the row back first
+    @Modifying
+    @Query("UPDATE AnalyticsReportPayloadEntity p SET p.reportData = :reportData WHERE p.reportId = :reportId")
+    int updateReportData(@Param("reportId") Integer reportId, @Param("reportData") byte[] reportData);
+}
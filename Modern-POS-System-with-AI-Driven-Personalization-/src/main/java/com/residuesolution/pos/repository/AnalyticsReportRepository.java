@@ -1,17 +1,25 @@
 package com.residuesolution.pos.repository;
 
+import com.residuesolution.pos.dto.AnalyticsReportSummary;
 import com.residuesolution.pos.entity.AnalyticsReportEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface AnalyticsReportRepository extends JpaRepository<AnalyticsReportEntity, Integer> {
 
+    String SUMMARY = "SELECT new com.residuesolution.pos.dto.AnalyticsReportSummary(r.id, r.reportType, r.generatedBy, " +
+            "r.generatedAt, r.periodStart, r.periodEnd, r.reportTitle, r.reportDescription, r.status, r.fileUrl, r.createdAt, r.updatedAt) " +
+            "FROM AnalyticsReportEntity r ";
+
     // Find reports by type
     List<AnalyticsReportEntity> findByReportType(String reportType);
 
@@ -42,4 +50,50 @@ public interface AnalyticsReportRepository extends JpaRepository<AnalyticsReport
 
     // Find completed reports only
     List<AnalyticsReportEntity> findByStatusOrderByGeneratedAtDesc(String status);
-}
\ No newline at end of file
+
+    // Summary projections for list endpoints: no entity hydration, no payload
+    @Query(SUMMARY)
+    List<AnalyticsReportSummary> findAllSummaries();
+
+    @Query(SUMMARY + "WHERE r.reportType = :reportType")
+    List<AnalyticsReportSummary> findSummariesByReportType(@Param("reportType") String reportType);
+
+    @Query(SUMMARY + "WHERE r.generatedBy = :generatedBy")
+    List<AnalyticsReportSummary> findSummariesByGeneratedBy(@Param("generatedBy") String generatedBy);
+
+    @Query(SUMMARY + "WHERE r.generatedAt >= :since ORDER BY r.generatedAt DESC")
+    List<AnalyticsReportSummary> findRecentSummaries(@Param("since") LocalDateTime since);
+
+    @Query("SELECT COUNT(r) FROM AnalyticsReportEntity r WHERE r.generatedAt >= :since")
+    Long countReportsSince(@Param("since") LocalDateTime since);
+
+    // Rows of [id, status]; used to follow jobs running on other nodes
+    @Query("SELECT r.id, r.status FROM AnalyticsReportEntity r WHERE r.id IN :reportIds")
+    List<Object[]> findStatusesByIdIn(@Param("reportIds") Collection<Integer> reportIds);
+
+    // Moves a GENERATING report to its final state; 0 when it was cancelled (or finished) meanwhile
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalyticsReportEntity r SET r.status = :status, r.updatedAt = :now " +
+            "WHERE r.id = :reportId AND r.status = 'GENERATING'")
+    int finishGenerating(@Param("reportId") Integer reportId,
+                         @Param("status") String status,
+                         @Param("now") LocalDateTime now);
+
+    // Records the CSV export stored in the artifact store
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalyticsReportEntity r SET r.fileUrl = :fileUrl, r.fileHash = :fileHash, r.fileEtag = :fileEtag " +
+            "WHERE r.id = :reportId")
+    int attachFile(@Param("reportId") Integer reportId,
+                   @Param("fileUrl") String fileUrl,
+                   @Param("fileHash") String fileHash,
+                   @Param("fileEtag") String fileEtag);
+
+    // Reports some node started but never finished (e.g. it restarted mid-job)
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalyticsReportEntity r SET r.status = 'FAILED', r.updatedAt = :now " +
+            "WHERE r.status = 'GENERATING' AND r.createdAt < :startedBefore")
+    int failStaleReports(@Param("startedBefore") LocalDateTime startedBefore, @Param("now") LocalDateTime now);
+}
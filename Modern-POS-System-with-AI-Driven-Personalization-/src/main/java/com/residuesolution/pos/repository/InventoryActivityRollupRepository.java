@@ -0,0 +1,94 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.InventoryActivityRollupEntity;
+import com.residuesolution.pos.entity.InventoryActivityRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface InventoryActivityRollupRepository
+        extends JpaRepository<InventoryActivityRollupEntity, InventoryActivityRollupId> {
+
+    // Fold the logs with IDs in (afterId, upToId] into their buckets, one row per location (0 = default location)
+    @Modifying
+    @Query(value = "INSERT INTO inventory_activity_rollups " +
+            "(granularity, bucket_start, change_type, product_id, location_id, log_count, total_quantity) " +
+            "SELECT 'HOUR', DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00'), change_type, product_id, COALESCE(location_id, 0), COUNT(*), SUM(quantity) " +
+            "FROM inventory_logs WHERE id > :afterId AND id <= :upToId " +
+            "GROUP BY DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00'), change_type, product_id, COALESCE(location_id, 0) " +
+            "ON DUPLICATE KEY UPDATE log_count = log_count + VALUES(log_count), " +
+            "total_quantity = total_quantity + VALUES(total_quantity)",
+            nativeQuery = true)
+    int foldHourly(@Param("afterId") Integer afterId,
+                   @Param("upToId") Integer upToId);
+
+    @Modifying
+    @Query(value = "INSERT INTO inventory_activity_rollups " +
+            "(granularity, bucket_start, change_type, product_id, location_id, log_count, total_quantity) " +
+            "SELECT 'DAY', DATE(created_at), change_type, product_id, COALESCE(location_id, 0), COUNT(*), SUM(quantity) " +
+            "FROM inventory_logs WHERE id > :afterId AND id <= :upToId " +
+            "GROUP BY DATE(created_at), change_type, product_id, COALESCE(location_id, 0) " +
+            "ON DUPLICATE KEY UPDATE log_count = log_count + VALUES(log_count), " +
+            "total_quantity = total_quantity + VALUES(total_quantity)",
+            nativeQuery = true)
+    int foldDaily(@Param("afterId") Integer afterId,
+                  @Param("upToId") Integer upToId);
+
+    // Activity by change type over whole buckets in [from, to), optionally for one product and/or one location
+    // (0 = default location); without a location every location counts, both legs of a transfer included
+    @Query("SELECT r.changeType, SUM(r.logCount), SUM(r.totalQuantity) FROM InventoryActivityRollupEntity r " +
+            "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+            "AND (:productId IS NULL OR r.productId = :productId) " +
+            "AND (:locationId IS NULL OR r.locationId = :locationId) GROUP BY r.changeType")
+    List<Object[]> summarize(@Param("granularity") String granularity,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to,
+                             @Param("productId") Integer productId,
+                             @Param("locationId") Integer locationId);
+
+    boolean existsByLocationId(Integer locationId);
+
+    // Rows before the archive horizon can't be rebuilt from raw logs; they are kept as default-location activity
+    @Modifying
+    @Query(value = "UPDATE inventory_activity_rollups SET location_id = 0 " +
+            "WHERE location_id = -1 AND bucket_start < :before", nativeQuery = true)
+    int assignUnknownLocationRowsBefore(@Param("before") LocalDateTime before);
+
+    @Query("SELECT MIN(r.bucketStart) FROM InventoryActivityRollupEntity r")
+    LocalDateTime findEarliestBucketStart();
+
+    // Buckets of both granularities starting in [from, to)
+    @Modifying
+    @Query(value = "DELETE FROM inventory_activity_rollups WHERE bucket_start >= :from AND bucket_start < :to",
+            nativeQuery = true)
+    int deleteRollupsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Rebuild both granularities from the raw logs created in [from, to) with IDs up to upToId
+    @Modifying
+    @Query(value = "INSERT INTO inventory_activity_rollups " +
+            "(granularity, bucket_start, change_type, product_id, location_id, log_count, total_quantity) " +
+            "SELECT 'HOUR', DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00'), change_type, product_id, COALESCE(location_id, 0), COUNT(*), SUM(quantity) " +
+            "FROM inventory_logs WHERE created_at >= :from AND created_at < :to AND id <= :upToId " +
+            "GROUP BY DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00'), change_type, product_id, COALESCE(location_id, 0)",
+            nativeQuery = true)
+    int rebuildHourly(@Param("from") LocalDateTime from,
+                      @Param("to") LocalDateTime to,
+                      @Param("upToId") Integer upToId);
+
+    @Modifying
+    @Query(value = "INSERT INTO inventory_activity_rollups " +
+            "(granularity, bucket_start, change_type, product_id, location_id, log_count, total_quantity) " +
+            "SELECT 'DAY', DATE(created_at), change_type, product_id, COALESCE(location_id, 0), COUNT(*), SUM(quantity) " +
+            "FROM inventory_logs WHERE created_at >= :from AND created_at < :to AND id <= :upToId " +
+            "GROUP BY DATE(created_at), change_type, product_id, COALESCE(location_id, 0)",
+            nativeQuery = true)
+    int rebuildDaily(@Param("from") LocalDateTime from,
+                     @Param("to") LocalDateTime to,
+                     @Param("upToId") Integer upToId);
+}
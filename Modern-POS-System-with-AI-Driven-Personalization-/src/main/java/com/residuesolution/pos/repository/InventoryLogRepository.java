@@ -2,12 +2,15 @@ package com.residuesolution.pos.repository;
 
 import com.residuesolution.pos.entity.InventoryLogEntity;
 import com.residuesolution.pos.enums.InventoryChangeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -47,32 +50,106 @@ public interface InventoryLogRepository extends JpaRepository<InventoryLogEntity
     // Find system-generated vs manual logs
     List<InventoryLogEntity> findByIsSystemGeneratedOrderByCreatedAtDesc(Boolean isSystemGenerated);
 
-    // Get total quantity changes for a product within date range
-    @Query("SELECT SUM(il.quantity) FROM InventoryLogEntity il WHERE il.productId = :productId " +
-            "AND il.createdAt BETWEEN :startDate AND :endDate")
-    Integer getTotalQuantityChangesForProduct(@Param("productId") Integer productId,
-                                              @Param("startDate") LocalDateTime startDate,
-                                              @Param("endDate") LocalDateTime endDate);
-
     // Get logs by product and change type
     List<InventoryLogEntity> findByProductIdAndChangeTypeOrderByCreatedAtDesc(Integer productId,
                                                                               InventoryChangeType changeType);
 
-    // Get recent logs (last N records)
-    @Query("SELECT il FROM InventoryLogEntity il ORDER BY il.createdAt DESC")
-    List<InventoryLogEntity> findRecentLogs();
+    // Get recent logs (last N records, limit applied in SQL via the pageable)
+    @Query("SELECT il FROM InventoryLogEntity il ORDER BY il.createdAt DESC, il.id DESC")
+    List<InventoryLogEntity> findRecentLogs(Pageable pageable);
+
+    // Tail logs after a cursor (log ID), oldest first, up to a settled log ID: IDs past it are held back
+    // so a slow transaction that took a lower ID can't be skipped by a client advancing its cursor
+    @Query("SELECT il FROM InventoryLogEntity il WHERE il.id > :afterId AND il.id <= :settledThroughId " +
+            "ORDER BY il.id ASC")
+    List<InventoryLogEntity> findLogsAfterId(@Param("afterId") Integer afterId,
+                                             @Param("settledThroughId") Integer settledThroughId,
+                                             Pageable pageable);
 
     // Get logs by multiple change types
     List<InventoryLogEntity> findByChangeTypeInOrderByCreatedAtDesc(List<InventoryChangeType> changeTypes);
 
-    // Search logs by reason (case-insensitive)
-    @Query("SELECT il FROM InventoryLogEntity il WHERE LOWER(il.reason) LIKE LOWER(CONCAT('%', :reason, '%')) " +
-            "ORDER BY il.createdAt DESC")
-    List<InventoryLogEntity> findByReasonContainingIgnoreCase(@Param("reason") String reason);
-
-    // Get inventory activity summary by date
+    // Full-text phrase search over reason and notes, ranked by relevance (uses ft_inventory_logs_reason_notes).
+    // phrase is a BOOLEAN MODE quoted phrase; returns a List, so paging never runs a COUNT(*) over the matches
+    @Query(value = "SELECT * FROM inventory_logs il " +
+            "WHERE MATCH(il.reason, il.notes) AGAINST (:phrase IN BOOLEAN MODE) " +
+            "AND (:startDate IS NULL OR il.created_at >= :startDate) " +
+            "AND (:endDate IS NULL OR il.created_at <= :endDate) " +
+            "ORDER BY MATCH(il.reason, il.notes) AGAINST (:phrase IN BOOLEAN MODE) DESC, il.created_at DESC",
+            nativeQuery = true)
+    List<InventoryLogEntity> searchFullText(@Param("phrase") String phrase,
+                                            @Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate,
+                                            Pageable pageable);
+
+    // IDs of the newest logs created before a cutoff, newest first (walks idx_inventory_logs_created_at backwards)
+    @Query("SELECT il.id FROM InventoryLogEntity il WHERE il.createdAt < :before ORDER BY il.createdAt DESC, il.id DESC")
+    List<Integer> findLatestIdsCreatedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Net default-location quantity per product of the logs after a log ID: rows of [productId, quantity]
+    @Query("SELECT il.productId, SUM(il.quantity) FROM InventoryLogEntity il WHERE il.id > :afterId " +
+            "AND il.productId IN :productIds AND (il.locationId IS NULL OR il.locationId = :defaultLocationId) " +
+            "GROUP BY il.productId")
+    List<Object[]> sumQuantityByProductAfterId(@Param("afterId") Integer afterId,
+                                               @Param("productIds") Collection<Integer> productIds,
+                                               @Param("defaultLocationId") Integer defaultLocationId);
+
+    // Products whose default-location stock was touched by logs in an ID window
+    // (what changed since the last stock snapshot; other locations are not part of product stock)
+    @Query("SELECT DISTINCT il.productId FROM InventoryLogEntity il WHERE il.id > :afterId AND il.id <= :upToId " +
+            "AND (il.locationId IS NULL OR il.locationId = :defaultLocationId)")
+    List<Integer> findProductIdsChangedBetweenIds(@Param("afterId") Integer afterId,
+                                                  @Param("upToId") Integer upToId,
+                                                  @Param("defaultLocationId") Integer defaultLocationId);
+
+    // Net default-location quantity change for a product after a snapshot's last log, up to a point in time.
+    // Rows the archive already holds (ID up to archivedThroughId and created before archivedBefore) are left
+    // out: they are only still here when the archiver died between writing a segment and deleting them
+    @Query("SELECT COALESCE(SUM(il.quantity), 0) FROM InventoryLogEntity il WHERE il.productId = :productId " +
+            "AND il.id > :afterId AND il.createdAt <= :asOf " +
+            "AND (il.locationId IS NULL OR il.locationId = :defaultLocationId) " +
+            "AND (il.id > :archivedThroughId OR il.createdAt >= :archivedBefore)")
+    Long sumQuantityForProductAfterId(@Param("productId") Integer productId,
+                                      @Param("afterId") Integer afterId,
+                                      @Param("asOf") LocalDateTime asOf,
+                                      @Param("defaultLocationId") Integer defaultLocationId,
+                                      @Param("archivedThroughId") Integer archivedThroughId,
+                                      @Param("archivedBefore") LocalDateTime archivedBefore);
+
+    // Oldest logs past the retention horizon, in ID order (next archive batch)
+    @Query("SELECT il FROM InventoryLogEntity il WHERE il.createdAt < :before ORDER BY il.id ASC")
+    List<InventoryLogEntity> findArchivable(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Drop the rows of an archive batch once its segment file is durable
+    @Modifying
+    @Query("DELETE FROM InventoryLogEntity il WHERE il.id BETWEEN :minId AND :maxId AND il.createdAt < :before")
+    int deleteArchived(@Param("minId") Integer minId,
+                       @Param("maxId") Integer maxId,
+                       @Param("before") LocalDateTime before);
+
+    @Query("SELECT MIN(il.createdAt) FROM InventoryLogEntity il")
+    LocalDateTime findEarliestCreatedAt();
+
+    // Same as getInventoryActivitySummary, for the logs not yet folded into the rollups (IDs after afterId)
+    @Query("SELECT il.changeType, COUNT(il), SUM(il.quantity) FROM InventoryLogEntity il " +
+            "WHERE il.id > :afterId AND il.createdAt >= :from AND il.createdAt < :to " +
+            "AND (:productId IS NULL OR il.productId = :productId) " +
+            "AND (:locationId IS NULL OR COALESCE(il.locationId, 0) = :locationId) GROUP BY il.changeType")
+    List<Object[]> getInventoryActivitySummaryAfterId(@Param("afterId") Integer afterId,
+                                                      @Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to,
+                                                      @Param("productId") Integer productId,
+                                                      @Param("locationId") Integer locationId);
+
+    // Get inventory activity summary over [from, to), optionally for one product and/or one location
+    // (0 = default location, which logs record as null; without a location every location counts)
+    // (only used for the partial-hour edges; whole hours and days come from inventory_activity_rollups)
     @Query("SELECT il.changeType, COUNT(il), SUM(il.quantity) FROM InventoryLogEntity il " +
-            "WHERE il.createdAt BETWEEN :startDate AND :endDate GROUP BY il.changeType")
-    List<Object[]> getInventoryActivitySummary(@Param("startDate") LocalDateTime startDate,
-                                               @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+            "WHERE il.createdAt >= :from AND il.createdAt < :to " +
+            "AND (:productId IS NULL OR il.productId = :productId) " +
+            "AND (:locationId IS NULL OR COALESCE(il.locationId, 0) = :locationId) GROUP BY il.changeType")
+    List<Object[]> getInventoryActivitySummary(@Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               @Param("productId") Integer productId,
+                                               @Param("locationId") Integer locationId);
+}
@@ -0,0 +1,37 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.LocationStockEntity;
+import com.residuesolution.pos.entity.LocationStockId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LocationStockRepository extends JpaRepository<LocationStockEntity, LocationStockId> {
+
+    @Query("SELECT ls.quantity FROM LocationStockEntity ls WHERE ls.locationId = :locationId AND ls.productId = :productId")
+    Integer findQuantity(@Param("locationId") Integer locationId, @Param("productId") Integer productId);
+
+    // Stock of one product at every non-default location
+    List<LocationStockEntity> findByProductId(Integer productId);
+
+    // Conditional decrement, same contract as ProductStockRepository.decrementIfAvailable
+    @Modifying
+    @Query(value = "UPDATE location_stock SET quantity = quantity - :quantity, updated_at = NOW() " +
+            "WHERE location_id = :locationId AND product_id = :productId AND quantity >= :quantity", nativeQuery = true)
+    int decrementIfAvailable(@Param("locationId") Integer locationId,
+                             @Param("productId") Integer productId,
+                             @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query(value = "INSERT INTO location_stock (location_id, product_id, quantity, updated_at) " +
+            "VALUES (:locationId, :productId, :quantity, NOW()) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), updated_at = NOW()", nativeQuery = true)
+    int increment(@Param("locationId") Integer locationId,
+                  @Param("productId") Integer productId,
+                  @Param("quantity") Integer quantity);
+}
@@ -48,6 +48,27 @@ public interface PaymentRepository extends JpaRepository<PaymentEntity, Integer>
     List<PaymentEntity> findPaymentsBetweenDates(@Param("startDate") LocalDateTime startDate,
                                                  @Param("endDate") LocalDateTime endDate);
 
+    // Payment figures for a date range in one grouped pass: a single row of
+    // [completedRevenue, completedCount, totalCount] (served from idx_payment_datetime_status_amount)
+    @Query("SELECT COALESCE(SUM(CASE WHEN p.paymentStatus = 'COMPLETED' THEN p.amount ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.paymentStatus = 'COMPLETED' THEN 1 ELSE 0 END), 0), COUNT(p) " +
+            "FROM PaymentEntity p WHERE p.paymentDateTime BETWEEN :startDate AND :endDate")
+    List<Object[]> getPaymentSummaryBetweenDates(@Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate);
+
+    // Raw counterpart of SalesHourlyRepository.summarize for the partial hours at a window's edges:
+    // [method, gateway, count, gross, refunds, completedCount, completedAmount] over completed payments
+    // (refunded ones included; the completed_* figures exclude them) dated in [from, to)
+    @Query("SELECT p.paymentMethod, p.gateway, COUNT(p), COALESCE(SUM(p.amount), 0), COALESCE(SUM(p.refundedAmount), 0), " +
+            "SUM(CASE WHEN p.paymentStatus = 'COMPLETED' THEN 1 ELSE 0 END), " +
+            "COALESCE(SUM(CASE WHEN p.paymentStatus = 'COMPLETED' THEN p.amount ELSE 0 END), 0) " +
+            "FROM PaymentEntity p WHERE p.paymentStatus IN ('COMPLETED', 'REFUNDED', 'PARTIALLY_REFUNDED') " +
+            "AND p.paymentDateTime >= :from AND p.paymentDateTime < :to GROUP BY p.paymentMethod, p.gateway")
+    List<Object[]> getSalesSummary(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(p.paymentDateTime) FROM PaymentEntity p")
+    LocalDateTime findEarliestPaymentDateTime();
+
     @Query("SELECT p FROM PaymentEntity p WHERE p.processedByUserId = :userId AND p.paymentDateTime BETWEEN :startDate AND :endDate")
     List<PaymentEntity> findPaymentsByUserAndDateRange(@Param("userId") Integer userId,
                                                        @Param("startDate") LocalDateTime startDate,
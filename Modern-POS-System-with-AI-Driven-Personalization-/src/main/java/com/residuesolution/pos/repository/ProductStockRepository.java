@@ -0,0 +1,71 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.ProductStockEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductStockRepository extends JpaRepository<ProductStockEntity, Integer> {
+
+    // Base row plus all shards, so readers never need to know whether a product is sharded
+    @Query("SELECT ps.quantity + COALESCE((SELECT SUM(s.quantity) FROM ProductStockShardEntity s " +
+            "WHERE s.productId = ps.productId), 0) FROM ProductStockEntity ps WHERE ps.productId = :productId")
+    Long findTotalQuantityByProductId(@Param("productId") Integer productId);
+
+    // Batch form of findTotalQuantityByProductId: rows of [productId, totalQuantity]
+    @Query("SELECT ps.productId, ps.quantity + COALESCE((SELECT SUM(s.quantity) FROM ProductStockShardEntity s " +
+            "WHERE s.productId = ps.productId), 0) FROM ProductStockEntity ps WHERE ps.productId IN :productIds")
+    List<Object[]> findTotalQuantitiesByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    // Conditional decrement: affects 0 rows when stock is insufficient, so no read-then-write race
+    @Modifying
+    @Query(value = "UPDATE product_stock SET quantity = quantity - :quantity, updated_at = NOW() " +
+            "WHERE product_id = :productId AND quantity >= :quantity", nativeQuery = true)
+    int decrementIfAvailable(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    // Increment, creating the stock row on first receipt
+    @Modifying
+    @Query(value = "INSERT INTO product_stock (product_id, quantity, shard_count, updated_at) VALUES (:productId, :quantity, 0, NOW()) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), updated_at = NOW()", nativeQuery = true)
+    int increment(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    // Make sure a row exists so it can be locked
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO product_stock (product_id, quantity, shard_count, updated_at) VALUES (:productId, 0, 0, NOW())",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("productId") Integer productId);
+
+    // Lock the stock row as an entity (absolute adjustments and re-sharding)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ps FROM ProductStockEntity ps WHERE ps.productId = :productId")
+    Optional<ProductStockEntity> findByProductIdForUpdate(@Param("productId") Integer productId);
+
+    // Read the shard count without hydrating the entity
+    @Query("SELECT ps.shardCount FROM ProductStockEntity ps WHERE ps.productId = :productId")
+    Integer findShardCountByProductId(@Param("productId") Integer productId);
+
+    @Query("SELECT ps.productId FROM ProductStockEntity ps")
+    List<Integer> findAllProductIds();
+
+    // Products with a reorder point (low-stock alerting enabled)
+    List<ProductStockEntity> findByReorderPointIsNotNull();
+
+    @Modifying
+    @Query("UPDATE ProductStockEntity ps SET ps.reorderPoint = :reorderPoint, ps.reorderClearLevel = :clearLevel " +
+            "WHERE ps.productId = :productId")
+    int updateReorderPoint(@Param("productId") Integer productId,
+                           @Param("reorderPoint") Integer reorderPoint,
+                           @Param("clearLevel") Integer clearLevel);
+
+    // Products running in sharded-counter mode
+    List<ProductStockEntity> findByShardCountGreaterThan(Integer shardCount);
+}
@@ -0,0 +1,42 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.ProductStockShardEntity;
+import com.residuesolution.pos.entity.ProductStockShardId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShardEntity, ProductStockShardId> {
+
+    // Conditional decrement of a single shard
+    @Modifying
+    @Query(value = "UPDATE product_stock_shards SET quantity = quantity - :quantity, updated_at = NOW() " +
+            "WHERE product_id = :productId AND shard_no = :shardNo AND quantity >= :quantity", nativeQuery = true)
+    int decrementShardIfAvailable(@Param("productId") Integer productId,
+                                  @Param("shardNo") Integer shardNo,
+                                  @Param("quantity") Integer quantity);
+
+    // Increment a single shard
+    @Modifying
+    @Query(value = "UPDATE product_stock_shards SET quantity = quantity + :quantity, updated_at = NOW() " +
+            "WHERE product_id = :productId AND shard_no = :shardNo", nativeQuery = true)
+    int incrementShard(@Param("productId") Integer productId,
+                       @Param("shardNo") Integer shardNo,
+                       @Param("quantity") Integer quantity);
+
+    // Lock every shard of a product in shard order (consistent order avoids deadlocks)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShardEntity s WHERE s.productId = :productId ORDER BY s.shardNo")
+    List<ProductStockShardEntity> findByProductIdForUpdate(@Param("productId") Integer productId);
+
+    @Modifying
+    @Query("DELETE FROM ProductStockShardEntity s WHERE s.productId = :productId")
+    int deleteByProductId(@Param("productId") Integer productId);
+}
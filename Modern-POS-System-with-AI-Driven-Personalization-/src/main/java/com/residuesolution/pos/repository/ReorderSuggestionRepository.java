@@ -0,0 +1,14 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.ReorderSuggestionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReorderSuggestionRepository extends JpaRepository<ReorderSuggestionEntity, Integer> {
+
+    // Products to reorder now, biggest orders first
+    List<ReorderSuggestionEntity> findBySuggestedOrderQuantityGreaterThanOrderBySuggestedOrderQuantityDesc(Integer quantity);
+}
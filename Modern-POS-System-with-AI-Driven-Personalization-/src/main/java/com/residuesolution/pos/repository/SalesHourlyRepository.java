@@ -0,0 +1,66 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.SalesHourlyEntity;
+import com.residuesolution.pos.entity.SalesHourlyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesHourlyRepository extends JpaRepository<SalesHourlyEntity, SalesHourlyId> {
+
+    // Apply one payment transition to one shard of its hour (deltas may be negative)
+    @Modifying
+    @Query(value = "INSERT INTO sales_hourly " +
+            "(bucket_start, payment_method, gateway, shard_no, payment_count, gross_amount, refund_amount, net_amount, " +
+            "completed_count, completed_amount) " +
+            "VALUES (:bucketStart, :paymentMethod, :gateway, :shardNo, :countDelta, :grossDelta, :refundDelta, " +
+            ":grossDelta - :refundDelta, :completedDelta, :completedAmountDelta) " +
+            "ON DUPLICATE KEY UPDATE payment_count = payment_count + VALUES(payment_count), " +
+            "gross_amount = gross_amount + VALUES(gross_amount), refund_amount = refund_amount + VALUES(refund_amount), " +
+            "net_amount = net_amount + VALUES(net_amount), completed_count = completed_count + VALUES(completed_count), " +
+            "completed_amount = completed_amount + VALUES(completed_amount)",
+            nativeQuery = true)
+    int increment(@Param("bucketStart") LocalDateTime bucketStart,
+                  @Param("paymentMethod") String paymentMethod,
+                  @Param("gateway") String gateway,
+                  @Param("shardNo") Integer shardNo,
+                  @Param("countDelta") Integer countDelta,
+                  @Param("grossDelta") BigDecimal grossDelta,
+                  @Param("refundDelta") BigDecimal refundDelta,
+                  @Param("completedDelta") Integer completedDelta,
+                  @Param("completedAmountDelta") BigDecimal completedAmountDelta);
+
+    // [method, gateway, count, gross, refunds, completedCount, completedAmount] over whole hours in [from, to)
+    @Query("SELECT r.paymentMethod, r.gateway, SUM(r.paymentCount), SUM(r.grossAmount), SUM(r.refundAmount), " +
+            "SUM(r.completedCount), SUM(r.completedAmount) " +
+            "FROM SalesHourlyEntity r WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+            "GROUP BY r.paymentMethod, r.gateway")
+    List<Object[]> summarize(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    boolean existsByCompletedAmountIsNull();
+
+    @Modifying
+    @Query(value = "DELETE FROM sales_hourly WHERE bucket_start >= :from AND bucket_start < :to", nativeQuery = true)
+    int deleteBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Rebuild the hours in [from, to) from the raw payment table, into shard 0
+    @Modifying
+    @Query(value = "INSERT INTO sales_hourly " +
+            "(bucket_start, payment_method, gateway, shard_no, payment_count, gross_amount, refund_amount, net_amount, " +
+            "completed_count, completed_amount) " +
+            "SELECT DATE_FORMAT(payment_date_time, '%Y-%m-%d %H:00:00'), payment_method, COALESCE(gateway, 'UNKNOWN'), 0, " +
+            "COUNT(*), SUM(amount), SUM(COALESCE(refunded_amount, 0)), SUM(amount) - SUM(COALESCE(refunded_amount, 0)), " +
+            "SUM(payment_status = 'COMPLETED'), SUM(CASE WHEN payment_status = 'COMPLETED' THEN amount ELSE 0 END) " +
+            "FROM payment WHERE payment_status IN ('COMPLETED', 'REFUNDED', 'PARTIALLY_REFUNDED') " +
+            "AND payment_date_time >= :from AND payment_date_time < :to " +
+            "GROUP BY DATE_FORMAT(payment_date_time, '%Y-%m-%d %H:00:00'), payment_method, COALESCE(gateway, 'UNKNOWN')",
+            nativeQuery = true)
+    int rebuildBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
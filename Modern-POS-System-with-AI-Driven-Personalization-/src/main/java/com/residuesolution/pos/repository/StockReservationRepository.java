@@ -0,0 +1,35 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.StockReservationEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservationEntity, Long> {
+
+    List<StockReservationEntity> findByOrderId(String orderId);
+
+    boolean existsByOrderIdAndProductId(String orderId, Integer productId);
+
+    // Holds past their expiry by any node's clock, oldest first (orphan sweep)
+    @Query("SELECT r.id FROM StockReservationEntity r WHERE r.expiresAt < :before ORDER BY r.expiresAt")
+    List<Long> findExpiredIds(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Units held by live reservations per product: rows of [productId, quantity]
+    @Query("SELECT r.productId, SUM(r.quantity) FROM StockReservationEntity r " +
+            "WHERE r.productId IN :productIds GROUP BY r.productId")
+    List<Object[]> sumQuantityByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    // Claim a hold; exactly one of commit / release / expiry (on any node) gets 1 back
+    @Modifying
+    @Query("DELETE FROM StockReservationEntity r WHERE r.id = :id")
+    int claim(@Param("id") Long id);
+}
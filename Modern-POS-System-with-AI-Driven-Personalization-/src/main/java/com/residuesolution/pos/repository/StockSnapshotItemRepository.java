@@ -0,0 +1,24 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.StockSnapshotItemEntity;
+import com.residuesolution.pos.entity.StockSnapshotItemId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockSnapshotItemRepository extends JpaRepository<StockSnapshotItemEntity, StockSnapshotItemId> {
+
+    // Nearest snapshot of a product at or before a point in time: rows of [quantity, lastLogId]
+    @Query("SELECT i.quantity, s.lastLogId FROM StockSnapshotItemEntity i, StockSnapshotEntity s " +
+            "WHERE i.snapshotId = s.id AND i.productId = :productId AND s.takenAt <= :asOf " +
+            "ORDER BY s.id DESC")
+    List<Object[]> findNearestSnapshot(@Param("productId") Integer productId,
+                                       @Param("asOf") LocalDateTime asOf,
+                                       Pageable pageable);
+}
@@ -0,0 +1,18 @@
+package com.residuesolution.pos.repository;
+
+import com.residuesolution.pos.entity.StockSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshotEntity, Integer> {
+
+    // Latest snapshot (its lastLogId is where the next snapshot starts looking for changes)
+    Optional<StockSnapshotEntity> findTopByOrderByIdDesc();
+
+    // Snapshot history, newest first
+    List<StockSnapshotEntity> findAllByOrderByTakenAtDesc();
+}
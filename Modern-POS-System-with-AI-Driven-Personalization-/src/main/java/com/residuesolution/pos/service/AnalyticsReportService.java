@@ -1,6 +1,7 @@
 package com.residuesolution.pos.service;
 
 import com.residuesolution.pos.dto.AnalyticsReport;
+import com.residuesolution.pos.dto.AnalyticsReportSummary;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -8,7 +9,7 @@ import java.util.Map;
 
 public interface AnalyticsReportService {
 
-    // Core report generation methods
+    // Core report generation methods (the returned report carries no payload; see getReportById)
     AnalyticsReport generateSalesReport(String generatedBy, LocalDateTime startDate, LocalDateTime endDate, Map<String, Object> filters);
 
     AnalyticsReport generateInventoryReport(String generatedBy, Map<String, Object> filters);
@@ -17,16 +18,26 @@ public interface AnalyticsReportService {
 
     AnalyticsReport generatePerformanceReport(String generatedBy, LocalDateTime startDate, LocalDateTime endDate, Map<String, Object> filters);
 
+    // Asynchronous generation: a GENERATING row is created up front and filled in by a report job
+    AnalyticsReport createPendingReport(String reportType, String generatedBy, LocalDateTime startDate, LocalDateTime endDate, Map<String, Object> filters);
+
+    // Computes the data and finishes the report unless it was cancelled; returns the final status
+    String completeReport(Integer reportId, String reportType, LocalDateTime startDate, LocalDateTime endDate);
+
+    // GENERATING -> CANCELLED; false when the report already finished
+    Boolean cancelReport(Integer reportId);
+
     // Report management methods
     AnalyticsReport getReportById(Integer reportId);
 
-    List<AnalyticsReport> getAllReports();
+    // List methods return summaries only; payloads are never read
+    List<AnalyticsReportSummary> getAllReports();
 
-    List<AnalyticsReport> getReportsByType(String reportType);
+    List<AnalyticsReportSummary> getReportsByType(String reportType);
 
-    List<AnalyticsReport> getReportsByUser(String generatedBy);
+    List<AnalyticsReportSummary> getReportsByUser(String generatedBy);
 
-    List<AnalyticsReport> getRecentReports();
+    List<AnalyticsReportSummary> getRecentReports();
 
     Boolean deleteReport(Integer reportId);
 
@@ -39,6 +50,21 @@ public interface AnalyticsReportService {
 
     Map<String, Object> getPerformanceAnalytics(LocalDateTime startDate, LocalDateTime endDate);
 
+    // Slice-and-dice over the in-memory store of completed payments; endDate is exclusive, null filters match all
+    Map<String, Object> getPaymentSlice(LocalDateTime startDate, LocalDateTime endDate, String groupBy,
+                                        Integer userId, Integer customerId, String method, String gateway, String status);
+
+    Map<String, Object> getPaymentFactStatistics();
+
+    // Cached (per node, short TTL) analytics for dashboards and quick summaries; the window ends now
+    Map<String, Object> getRecentSalesAnalytics(int days);
+
+    Map<String, Object> getRecentPerformanceAnalytics(int days);
+
+    Map<String, Object> getCurrentInventoryAnalytics();
+
+    Map<String, Object> getCurrentCustomerAnalytics();
+
     // Export methods
     String exportReportToPDF(Integer reportId);
 
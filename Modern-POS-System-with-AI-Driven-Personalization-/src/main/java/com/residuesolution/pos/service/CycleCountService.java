@@ -0,0 +1,16 @@
+package com.residuesolution.pos.service;
+
+import com.residuesolution.pos.dto.CycleCountLine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface CycleCountService {
+
+    // Streams a "productId,countedQuantity" CSV (optional header) and sets stock to the counted levels,
+    // writing AUDIT_ADJUSTMENT logs; every line's outcome goes to the listener once its batch is done
+    Map<String, Object> importCounts(InputStream csv, Integer userId, String reason,
+                                     Consumer<CycleCountLine> listener) throws IOException;
+}
@@ -6,6 +6,7 @@ import com.residuesolution.pos.enums.InventoryChangeType;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface InventoryLogService {
 
@@ -15,6 +16,9 @@ public interface InventoryLogService {
     Boolean logInventoryChange(Integer productId, Integer changedBy, InventoryChangeType changeType,
                                Integer quantity, String reason, Integer previousStock, Integer newStock);
 
+    // Group-commit path (pos.inventory-log.write-behind.enabled); completes once the log is durable
+    CompletableFuture<Boolean> logInventoryChangeAsync(InventoryLog inventoryLog);
+
     // Retrieve logs
     List<InventoryLog> getAllInventoryLogs();
 
@@ -40,16 +44,29 @@ public interface InventoryLogService {
 
     List<InventoryLog> getManualLogs();
 
-    // Analytics and reporting
-    Integer getTotalQuantityChangesForProduct(Integer productId, LocalDateTime startDate, LocalDateTime endDate);
+    // Analytics and reporting (locationId null = every location)
+    Integer getTotalQuantityChangesForProduct(Integer productId, LocalDateTime startDate, LocalDateTime endDate,
+                                              Integer locationId);
 
-    List<Map<String, Object>> getInventoryActivitySummary(LocalDateTime startDate, LocalDateTime endDate);
+    List<Map<String, Object>> getInventoryActivitySummary(LocalDateTime startDate, LocalDateTime endDate,
+                                                          Integer locationId);
 
     List<InventoryLog> getRecentLogs(Integer limit);
 
-    // Search functionality
+    Boolean rebuildActivityRollups();
+
+    // Moves logs past the retention horizon to the archive tier; returns how many were moved
+    Integer archiveOldLogs();
+
+    List<InventoryLog> getLogsAfter(Integer afterId, Integer limit);
+
+    // Search functionality; searchLogsByReason returns the first page of at most 1000 matches,
+    // use searchLogs to page through the rest
     List<InventoryLog> searchLogsByReason(String reason);
 
+    // size is capped at 1000 logs per page
+    List<InventoryLog> searchLogs(String query, LocalDateTime startDate, LocalDateTime endDate, Integer page, Integer size);
+
     List<InventoryLog> getLogsByMultipleChangeTypes(List<InventoryChangeType> changeTypes);
 
     // Stock tracking operations
@@ -59,6 +76,26 @@ public interface InventoryLogService {
 
     Boolean adjustStock(Integer productId, Integer newQuantity, Integer userId, String reason);
 
+    // Receives a whole delivery (one PURCHASE log per line) in a single transaction
+    Boolean receiveDelivery(int[] productIds, int[] quantities, Integer userId, String reason, String referenceId);
+
+    // Location-scoped stock operations (null locationId = default location)
+    Boolean addStockAtLocation(Integer locationId, Integer productId, Integer quantity, Integer userId,
+                               String reason, String referenceId);
+
+    Boolean removeStockAtLocation(Integer locationId, Integer productId, Integer quantity, Integer userId,
+                                  String reason, String referenceId);
+
+    // Moves stock between locations in one transaction; returns the shared referenceId, or null on failure
+    String transferStock(Integer productId, Integer quantity, Integer fromLocationId, Integer toLocationId,
+                         Integer userId, String reason);
+
+    Integer getCurrentStock(Integer locationId, Integer productId);
+
+    Map<Integer, Integer> getStockByLocation(Integer productId);
+
+    Integer getCurrentStock(Integer productId);
+
     // Validation
     Boolean validateInventoryLog(InventoryLog inventoryLog);
 }
\ No newline at end of file
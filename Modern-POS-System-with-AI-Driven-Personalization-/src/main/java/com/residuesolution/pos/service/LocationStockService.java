@@ -0,0 +1,20 @@
+package com.residuesolution.pos.service;
+
+import java.util.Map;
+
+public interface LocationStockService {
+
+    // ID of this store's own location; its stock is the product_stock table
+    Integer getDefaultLocationId();
+
+    Integer getStock(Integer locationId, Integer productId);
+
+    // Location ID -> stock for one product across the network
+    Map<Integer, Integer> getStockByLocation(Integer productId);
+
+    // Atomic increment at a location, returns the new stock level
+    Integer increaseStock(Integer locationId, Integer productId, Integer quantity);
+
+    // Atomic conditional decrement at a location, returns the new level or null when stock is insufficient
+    Integer decreaseStock(Integer locationId, Integer productId, Integer quantity);
+}
@@ -0,0 +1,23 @@
+package com.residuesolution.pos.service;
+
+import com.residuesolution.pos.dto.LowStockAlert;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+public interface LowStockAlertService {
+
+    // Called after every committed stock mutation; must stay O(1) and non-blocking. The product's
+    // level is re-read before it is evaluated
+    void onStockChanged(Integer productId);
+
+    // Set (or clear, with null) a product's reorder point; clearLevel defaults to reorderPoint + 10% (min +1)
+    Boolean setReorderPoint(Integer productId, Integer reorderPoint, Integer clearLevel);
+
+    List<LowStockAlert> getActiveAlerts();
+
+    long countOutOfStock();
+
+    // Server-Sent Events stream: current alerts on connect, then RAISED/CLEARED transitions
+    SseEmitter subscribe();
+}
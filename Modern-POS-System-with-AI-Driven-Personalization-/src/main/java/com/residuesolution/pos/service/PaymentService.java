@@ -61,4 +61,7 @@ public interface PaymentService {
     List<Payment> getRefundablePayments();
 
     Boolean validatePayment(Payment payment);
+
+    // Rebuild the sales_hourly rollup from the raw payments (one-off backfill); returns the rows written
+    Integer rebuildSalesRollups();
 }
\ No newline at end of file
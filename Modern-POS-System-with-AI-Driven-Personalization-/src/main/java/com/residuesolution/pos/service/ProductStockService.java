@@ -0,0 +1,41 @@
+package com.residuesolution.pos.service;
+
+import java.util.Map;
+
+public interface ProductStockService {
+
+    // Current on-hand quantity (0 when the product has never been stocked)
+    Integer getCurrentStock(Integer productId);
+
+    // Current stock for many products in one call, aligned with the input array
+    int[] getStock(int[] productIds);
+
+    // Atomic increment, returns the new stock level
+    Integer increaseStock(Integer productId, Integer quantity);
+
+    // Batch increment (deliveries), returns the new stock levels aligned with the input; product IDs must be distinct
+    int[] increaseStock(int[] productIds, int[] quantities);
+
+    // Atomic conditional decrement, returns the new stock level or null when stock is insufficient.
+    // Callers that already hold a transaction must run it at READ COMMITTED (see the implementation)
+    Integer decreaseStock(Integer productId, Integer quantity);
+
+    // Set the stock level from a physical count under a row lock. Units held by live reservations are still
+    // on hand but already out of product_stock, so the level becomes the count minus them (never below 0).
+    // Callers must run at READ COMMITTED: the holds are read after the row lock, which every new hold needs,
+    // so they include each hold committed while the lock was awaited
+    StockCount setStock(Integer productId, Integer counted);
+
+    // Same for many products at once (cycle counts), aligned with the input; product IDs must be distinct
+    StockCount[] setStock(int[] productIds, int[] counted);
+
+    // Hot-SKU mode: split a product's stock across N shard rows (0 or 1 collapses it back to one row)
+    Boolean configureShards(Integer productId, Integer shardCount);
+
+    // Product ID -> shard count for every product in sharded mode
+    Map<Integer, Integer> getShardedProducts();
+
+    // Outcome of a count: stock level before and after, and the units held by live reservations it left out
+    record StockCount(int previous, int held, int current) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.residuesolution.pos.service;
+
+import com.residuesolution.pos.dto.ReorderSuggestion;
+
+import java.util.List;
+
+public interface ReorderSuggestionService {
+
+    // Re-forecasts every product with sales history; returns how many suggestions were written
+    Integer refreshSuggestions();
+
+    List<ReorderSuggestion> getSuggestions(Boolean reorderOnly);
+
+    ReorderSuggestion getSuggestion(Integer productId);
+}
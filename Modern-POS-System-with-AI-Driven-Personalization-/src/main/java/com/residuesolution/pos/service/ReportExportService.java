@@ -0,0 +1,25 @@
+package com.residuesolution.pos.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+public interface ReportExportService {
+
+    // Strong validator for a report's CSV: changes whenever the exported bytes could; null = no such report
+    String getCsvETag(Integer reportId);
+
+    // Streams the report's CSV (header, then the underlying payments or stock rows in a stable order).
+    // Memory use is bounded by one page of rows regardless of the report size.
+    void writeCsv(Integer reportId, OutputStream out) throws IOException;
+
+    // The report's stored CSV, if one was generated and has not been evicted from the artifact store
+    CsvFile findCsvFile(Integer reportId);
+
+    // writeCsv to out, storing the CSV on the way; a failed or abandoned stream stores nothing
+    void streamCsv(Integer reportId, String etag, OutputStream out) throws IOException;
+
+    // etag is the data fingerprint the file was generated from (see getCsvETag)
+    record CsvFile(String hash, String etag, Path path, long size) {
+    }
+}
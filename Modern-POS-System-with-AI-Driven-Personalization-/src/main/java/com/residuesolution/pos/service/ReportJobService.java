@@ -0,0 +1,31 @@
+package com.residuesolution.pos.service;
+
+import com.residuesolution.pos.dto.AnalyticsReport;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+public interface ReportJobService {
+
+    // Creates a GENERATING report and queues its computation; returns right away with the report ID.
+    // Throws RejectedExecutionException when the owner already has the maximum number of jobs
+    // in flight or the queue is full
+    AnalyticsReport submitReport(String reportType, String owner, String generatedBy, LocalDateTime startDate,
+                                 LocalDateTime endDate, Map<String, Object> filters) throws RejectedExecutionException;
+
+    // Cancels a queued or running job; false when the report is not GENERATING any more
+    Boolean cancelReport(Integer reportId);
+
+    // Server-Sent Events stream: one "report" event with the final status, then the stream completes
+    SseEmitter subscribe(Integer reportId);
+
+    // Generates all four report types on the worker pool, within the owner's limit, under one deadline;
+    // report type -> report ID, or "Failed" / "TimedOut" / "Cancelled" / "Rejected" for the ones that did
+    // not finish. Throws RejectedExecutionException when the owner has no free slot at all.
+    Map<String, Object> generateBulkReports(String owner, String generatedBy, LocalDateTime startDate,
+                                            LocalDateTime endDate, Map<String, Object> filters);
+
+    Map<String, Object> getQueueStatistics();
+}
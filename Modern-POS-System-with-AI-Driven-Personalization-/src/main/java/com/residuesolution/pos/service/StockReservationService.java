@@ -0,0 +1,21 @@
+package com.residuesolution.pos.service;
+
+import com.residuesolution.pos.dto.StockReservation;
+
+import java.util.List;
+
+public interface StockReservationService {
+
+    // Holds quantity units of a product for an order; false if stock is short or the order already holds it
+    Boolean reserve(String orderId, Integer productId, Integer quantity, Integer ttlSeconds, Integer userId);
+
+    // Turns every hold of the order into a SALE; false if nothing was still held
+    Boolean commit(String orderId, Integer userId);
+
+    // Returns every hold of the order to stock; false if nothing was still held
+    Boolean release(String orderId, Integer userId);
+
+    List<StockReservation> getReservations(String orderId);
+
+    Integer getReservedQuantity(Integer productId);
+}
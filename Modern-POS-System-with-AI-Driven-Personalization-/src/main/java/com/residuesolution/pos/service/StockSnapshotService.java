@@ -0,0 +1,16 @@
+package com.residuesolution.pos.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface StockSnapshotService {
+
+    // Checkpoint current stock of every product changed since the previous snapshot
+    Map<String, Object> takeSnapshot();
+
+    // Stock of a product at a point in time: nearest snapshot plus the logs after it
+    Integer getStockAsOf(Integer productId, LocalDateTime asOf);
+
+    List<Map<String, Object>> getSnapshotHistory();
+}
@@ -1,43 +1,94 @@
 package com.residuesolution.pos.service.impl;
 
+import com.residuesolution.pos.cache.AnalyticsCache;
 import com.residuesolution.pos.dto.AnalyticsReport;
+import com.residuesolution.pos.dto.AnalyticsReportSummary;
 import com.residuesolution.pos.entity.AnalyticsReportEntity;
+import com.residuesolution.pos.entity.AnalyticsReportPayloadEntity;
+import com.residuesolution.pos.factstore.PaymentFactStore;
+import com.residuesolution.pos.repository.AnalyticsReportPayloadRepository;
 import com.residuesolution.pos.repository.AnalyticsReportRepository;
 import com.residuesolution.pos.repository.PaymentRepository;
 import com.residuesolution.pos.repository.CustomerRepository;
+import com.residuesolution.pos.repository.ProductStockRepository;
+import com.residuesolution.pos.repository.SalesHourlyRepository;
 import com.residuesolution.pos.service.AnalyticsReportService;
+import com.residuesolution.pos.service.LowStockAlertService;
+import com.residuesolution.pos.sketch.SalesSketchStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 @Slf4j
 public class AnalyticsReportServiceImpl implements AnalyticsReportService {
 
+    private static final int LEGACY_MIGRATION_BATCH = 500;
+
     private final AnalyticsReportRepository analyticsReportRepository;
+    private final AnalyticsReportPayloadRepository analyticsReportPayloadRepository;
     private final PaymentRepository paymentRepository;
+    private final SalesHourlyRepository salesHourlyRepository;
     private final CustomerRepository customerRepository;
+    private final ProductStockRepository productStockRepository;
+    private final LowStockAlertService lowStockAlertService;
+    private final AnalyticsCache analyticsCache;
+    private final PaymentFactStore paymentFactStore;
+    private final SalesSketchStore salesSketchStore;
     private final ModelMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper;
 
     // Constructor for Spring dependency injection
     @Autowired
     public AnalyticsReportServiceImpl(AnalyticsReportRepository analyticsReportRepository,
+                                      AnalyticsReportPayloadRepository analyticsReportPayloadRepository,
                                       PaymentRepository paymentRepository,
+                                      SalesHourlyRepository salesHourlyRepository,
                                       CustomerRepository customerRepository,
-                                      ModelMapper mapper) {
+                                      ProductStockRepository productStockRepository,
+                                      LowStockAlertService lowStockAlertService,
+                                      AnalyticsCache analyticsCache,
+                                      PaymentFactStore paymentFactStore,
+                                      SalesSketchStore salesSketchStore,
+                                      ModelMapper mapper,
+                                      TransactionTemplate transactionTemplate,
+                                      JdbcTemplate jdbcTemplate) {
         this.analyticsReportRepository = analyticsReportRepository;
+        this.analyticsReportPayloadRepository = analyticsReportPayloadRepository;
         this.paymentRepository = paymentRepository;
+        this.salesHourlyRepository = salesHourlyRepository;
         this.customerRepository = customerRepository;
+        this.productStockRepository = productStockRepository;
+        this.lowStockAlertService = lowStockAlertService;
+        this.analyticsCache = analyticsCache;
+        this.paymentFactStore = paymentFactStore;
+        this.salesSketchStore = salesSketchStore;
         this.mapper = mapper;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
 
         // Initialize ObjectMapper with JavaTimeModule for LocalDateTime serialization
         this.objectMapper = new ObjectMapper();
@@ -47,146 +98,124 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
     @Override
     @Transactional
     public AnalyticsReport generateSalesReport(String generatedBy, LocalDateTime startDate, LocalDateTime endDate, Map<String, Object> filters) {
-        try {
-            log.info("Generating sales report for user: {} from {} to {}", generatedBy, startDate, endDate);
-
-            // Get sales analytics data
-            Map<String, Object> salesData = getSalesAnalytics(startDate, endDate);
-
-            // Create report entity
-            AnalyticsReportEntity reportEntity = new AnalyticsReportEntity();
-            reportEntity.setReportType("sales");
-            reportEntity.setGeneratedBy(generatedBy);
-            reportEntity.setReportTitle("Sales Report - " + startDate.toLocalDate() + " to " + endDate.toLocalDate());
-            reportEntity.setReportDescription("Comprehensive sales analysis including revenue, transactions, and trends");
-            reportEntity.setReportData(objectMapper.writeValueAsString(salesData));
-            reportEntity.setFilters(objectMapper.writeValueAsString(filters));
-            reportEntity.setStatus("COMPLETED");
-
-            AnalyticsReportEntity savedReport = analyticsReportRepository.save(reportEntity);
-            return mapper.map(savedReport, AnalyticsReport.class);
-
-        } catch (Exception e) {
-            log.error("Error generating sales report: {}", e.getMessage(), e);
-            return createFailedReport("sales", generatedBy, "Sales Report Generation Failed");
-        }
+        log.info("Generating sales report for user: {} from {} to {}", generatedBy, startDate, endDate);
+        return generateReport("sales", generatedBy, startDate, endDate, filters, "Sales Report Generation Failed");
     }
 
     @Override
     @Transactional
     public AnalyticsReport generateInventoryReport(String generatedBy, Map<String, Object> filters) {
-        try {
-            log.info("Generating inventory report for user: {}", generatedBy);
-
-            Map<String, Object> inventoryData = getInventoryAnalytics();
-
-            AnalyticsReportEntity reportEntity = new AnalyticsReportEntity();
-            reportEntity.setReportType("inventory");
-            reportEntity.setGeneratedBy(generatedBy);
-            reportEntity.setReportTitle("Inventory Report - " + LocalDateTime.now().toLocalDate());
-            reportEntity.setReportDescription("Current inventory status, stock levels, and product performance");
-            reportEntity.setReportData(objectMapper.writeValueAsString(inventoryData));
-            reportEntity.setFilters(objectMapper.writeValueAsString(filters));
-            reportEntity.setStatus("COMPLETED");
-
-            AnalyticsReportEntity savedReport = analyticsReportRepository.save(reportEntity);
-            return mapper.map(savedReport, AnalyticsReport.class);
-
-        } catch (Exception e) {
-            log.error("Error generating inventory report: {}", e.getMessage(), e);
-            return createFailedReport("inventory", generatedBy, "Inventory Report Generation Failed");
-        }
+        log.info("Generating inventory report for user: {}", generatedBy);
+        return generateReport("inventory", generatedBy, null, null, filters, "Inventory Report Generation Failed");
     }
 
     @Override
     @Transactional
     public AnalyticsReport generateCustomerReport(String generatedBy, Map<String, Object> filters) {
-        try {
-            log.info("Generating customer report for user: {}", generatedBy);
+        log.info("Generating customer report for user: {}", generatedBy);
+        return generateReport("customer", generatedBy, null, null, filters, "Customer Report Generation Failed");
+    }
 
-            Map<String, Object> customerData = getCustomerAnalytics();
+    @Override
+    @Transactional
+    public AnalyticsReport generatePerformanceReport(String generatedBy, LocalDateTime startDate, LocalDateTime endDate, Map<String, Object> filters) {
+        log.info("Generating performance report for user: {} from {} to {}", generatedBy, startDate, endDate);
+        return generateReport("performance", generatedBy, startDate, endDate, filters, "Performance Report Generation Failed");
+    }
 
-            AnalyticsReportEntity reportEntity = new AnalyticsReportEntity();
-            reportEntity.setReportType("customer");
-            reportEntity.setGeneratedBy(generatedBy);
-            reportEntity.setReportTitle("Customer Report - " + LocalDateTime.now().toLocalDate());
-            reportEntity.setReportDescription("Customer behavior analysis, loyalty metrics, and demographics");
-            reportEntity.setReportData(objectMapper.writeValueAsString(customerData));
-            reportEntity.setFilters(objectMapper.writeValueAsString(filters));
-            reportEntity.setStatus("COMPLETED");
+    @Override
+    @Transactional
+    public AnalyticsReport createPendingReport(String reportType, String generatedBy, LocalDateTime startDate,
+                                               LocalDateTime endDate, Map<String, Object> filters) {
+        try {
+            AnalyticsReportEntity reportEntity = newReport(reportType, generatedBy, startDate, endDate, filters);
+            reportEntity.setStatus("GENERATING");
 
             AnalyticsReportEntity savedReport = analyticsReportRepository.save(reportEntity);
+            analyticsReportPayloadRepository.save(
+                    new AnalyticsReportPayloadEntity(savedReport.getId(), null, compressJson(filters)));
             return mapper.map(savedReport, AnalyticsReport.class);
 
         } catch (Exception e) {
-            log.error("Error generating customer report: {}", e.getMessage(), e);
-            return createFailedReport("customer", generatedBy, "Customer Report Generation Failed");
+            log.error("Error creating pending {} report: {}", reportType, e.getMessage(), e);
+            return null;
         }
     }
 
+    // Runs outside any transaction: the analytics queries each use their own short read, and only the
+    // final conditional update writes, so a cancel that lands mid-computation is never overwritten
     @Override
-    @Transactional
-    public AnalyticsReport generatePerformanceReport(String generatedBy, LocalDateTime startDate, LocalDateTime endDate, Map<String, Object> filters) {
+    public String completeReport(Integer reportId, String reportType, LocalDateTime startDate, LocalDateTime endDate) {
+        String computedStatus;
+        byte[] computedData;
         try {
-            log.info("Generating performance report for user: {} from {} to {}", generatedBy, startDate, endDate);
-
-            Map<String, Object> performanceData = getPerformanceAnalytics(startDate, endDate);
-
-            AnalyticsReportEntity reportEntity = new AnalyticsReportEntity();
-            reportEntity.setReportType("performance");
-            reportEntity.setGeneratedBy(generatedBy);
-            reportEntity.setReportTitle("Performance Report - " + startDate.toLocalDate() + " to " + endDate.toLocalDate());
-            reportEntity.setReportDescription("Staff performance, system efficiency, and operational metrics");
-            reportEntity.setReportData(objectMapper.writeValueAsString(performanceData));
-            reportEntity.setFilters(objectMapper.writeValueAsString(filters));
-            reportEntity.setStatus("COMPLETED");
+            computedData = compressJson(computeReportData(reportType, startDate, endDate));
+            computedStatus = "COMPLETED";
+        } catch (Exception e) {
+            log.error("Error generating {} report {}: {}", reportType, reportId, e.getMessage(), e);
+            computedData = null;
+            computedStatus = "FAILED";
+        }
 
-            AnalyticsReportEntity savedReport = analyticsReportRepository.save(reportEntity);
-            return mapper.map(savedReport, AnalyticsReport.class);
+        String status = computedStatus;
+        byte[] reportData = computedData;
+        Boolean finished = transactionTemplate.execute(tx -> {
+            if (analyticsReportRepository.finishGenerating(reportId, status, LocalDateTime.now()) == 0) {
+                return false;
+            }
+            if (reportData != null) {
+                analyticsReportPayloadRepository.updateReportData(reportId, reportData);
+            }
+            return true;
+        });
 
-        } catch (Exception e) {
-            log.error("Error generating performance report: {}", e.getMessage(), e);
-            return createFailedReport("performance", generatedBy, "Performance Report Generation Failed");
+        if (!Boolean.TRUE.equals(finished)) {
+            return analyticsReportRepository.findById(reportId)
+                    .map(AnalyticsReportEntity::getStatus)
+                    .orElse("CANCELLED"); // Deleted while running
         }
+        return status;
+    }
+
+    @Override
+    public Boolean cancelReport(Integer reportId) {
+        return analyticsReportRepository.finishGenerating(reportId, "CANCELLED", LocalDateTime.now()) > 0;
     }
 
     @Override
     public AnalyticsReport getReportById(Integer reportId) {
         Optional<AnalyticsReportEntity> reportEntity = analyticsReportRepository.findById(reportId);
-        return reportEntity.map(entity -> mapper.map(entity, AnalyticsReport.class)).orElse(null);
+        if (reportEntity.isEmpty()) {
+            return null;
+        }
+
+        AnalyticsReport report = mapper.map(reportEntity.get(), AnalyticsReport.class);
+        analyticsReportPayloadRepository.findById(reportId).ifPresent(payload -> {
+            report.setReportData(decompressJson(payload.getReportData()));
+            report.setFilters(decompressJson(payload.getFilters()));
+        });
+        return report;
     }
 
     @Override
-    public List<AnalyticsReport> getAllReports() {
-        List<AnalyticsReportEntity> reports = analyticsReportRepository.findAll();
-        return reports.stream()
-                .map(entity -> mapper.map(entity, AnalyticsReport.class))
-                .toList();
+    public List<AnalyticsReportSummary> getAllReports() {
+        return analyticsReportRepository.findAllSummaries();
     }
 
     @Override
-    public List<AnalyticsReport> getReportsByType(String reportType) {
-        List<AnalyticsReportEntity> reports = analyticsReportRepository.findByReportType(reportType);
-        return reports.stream()
-                .map(entity -> mapper.map(entity, AnalyticsReport.class))
-                .toList();
+    public List<AnalyticsReportSummary> getReportsByType(String reportType) {
+        return analyticsReportRepository.findSummariesByReportType(reportType);
     }
 
     @Override
-    public List<AnalyticsReport> getReportsByUser(String generatedBy) {
-        List<AnalyticsReportEntity> reports = analyticsReportRepository.findByGeneratedBy(generatedBy);
-        return reports.stream()
-                .map(entity -> mapper.map(entity, AnalyticsReport.class))
-                .toList();
+    public List<AnalyticsReportSummary> getReportsByUser(String generatedBy) {
+        return analyticsReportRepository.findSummariesByGeneratedBy(generatedBy);
     }
 
     @Override
-    public List<AnalyticsReport> getRecentReports() {
+    public List<AnalyticsReportSummary> getRecentReports() {
         LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        List<AnalyticsReportEntity> reports = analyticsReportRepository.findRecentReports(thirtyDaysAgo);
-        return reports.stream()
-                .map(entity -> mapper.map(entity, AnalyticsReport.class))
-                .toList();
+        return analyticsReportRepository.findRecentSummaries(thirtyDaysAgo);
     }
 
     @Override
@@ -194,6 +223,7 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
     public Boolean deleteReport(Integer reportId) {
         if (analyticsReportRepository.existsById(reportId)) {
             analyticsReportRepository.deleteById(reportId);
+            analyticsReportPayloadRepository.deleteById(reportId);
             return true;
         }
         return false;
@@ -204,28 +234,60 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
         Map<String, Object> analytics = new HashMap<>();
 
         try {
-            // Get payments between dates
-            var payments = paymentRepository.findPaymentsBetweenDates(startDate, endDate);
-
-            // Calculate total revenue
-            BigDecimal totalRevenue = payments.stream()
-                    .filter(p -> "COMPLETED".equals(p.getPaymentStatus().toString()))
-                    .map(p -> p.getAmount())
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Calculate transaction count
-            long totalTransactions = payments.stream()
-                    .filter(p -> "COMPLETED".equals(p.getPaymentStatus().toString()))
-                    .count();
-
-            // Calculate average transaction value
+            // Whole hours come from the sales_hourly rollup, only the partial edge hours from raw payments
+            Map<List<String>, BigDecimal[]> sales = summarizeSales(startDate, endDate);
+
+            long totalTransactions = 0;
+            long grossTransactions = 0;
+            BigDecimal totalRevenue = BigDecimal.ZERO;
+            BigDecimal grossRevenue = BigDecimal.ZERO;
+            BigDecimal totalRefunds = BigDecimal.ZERO;
+            List<Map<String, Object>> salesByMethodAndGateway = new ArrayList<>();
+            for (Map.Entry<List<String>, BigDecimal[]> entry : sales.entrySet()) {
+                BigDecimal[] sums = entry.getValue();
+                grossTransactions += sums[0].longValue();
+                grossRevenue = grossRevenue.add(sums[1]);
+                totalRefunds = totalRefunds.add(sums[2]);
+                totalTransactions += sums[3].longValue();
+                totalRevenue = totalRevenue.add(sums[4]);
+                salesByMethodAndGateway.add(Map.of(
+                        "paymentMethod", entry.getKey().get(0),
+                        "gateway", entry.getKey().get(1),
+                        "transactionCount", sums[3].longValue(),
+                        "revenue", sums[4],
+                        "grossTransactionCount", sums[0].longValue(),
+                        "grossRevenue", sums[1],
+                        "refunds", sums[2],
+                        "netRevenue", sums[1].subtract(sums[2])
+                ));
+            }
+
+            // totalRevenue, totalTransactions and averageTransactionValue keep their meaning (COMPLETED payments
+            // only, as in getPerformanceAnalytics); grossRevenue adds the refunded and partially refunded ones,
+            // and netRevenue takes their refunds back off
+            BigDecimal netRevenue = grossRevenue.subtract(totalRefunds);
             BigDecimal avgTransactionValue = totalTransactions > 0 ?
                     totalRevenue.divide(BigDecimal.valueOf(totalTransactions), 2, java.math.RoundingMode.HALF_UP) :
                     BigDecimal.ZERO;
 
             analytics.put("totalRevenue", totalRevenue);
+            analytics.put("netRevenue", netRevenue);
+            analytics.put("grossRevenue", grossRevenue);
+            analytics.put("grossTransactions", grossTransactions);
+            analytics.put("totalRefunds", totalRefunds);
             analytics.put("totalTransactions", totalTransactions);
             analytics.put("averageTransactionValue", avgTransactionValue);
+            analytics.put("salesByMethodAndGateway", salesByMethodAndGateway);
+
+            // Approximate (HyperLogLog ~1.6%, t-digest) over every payment that completed in the window,
+            // refunded ones included; merged from hourly sketches instead of scanning
+            SalesSketchStore.Summary sketch = salesSketchStore.summarize(startDate, endDate);
+            analytics.put("uniqueCustomers", sketch.uniqueCustomers());
+            analytics.put("medianTransactionValue", sketch.medianAmount());
+            analytics.put("p90TransactionValue", sketch.p90Amount());
+            analytics.put("distributionPeriodStart", sketch.coveredFrom());
+            analytics.put("distributionRefreshedAt", sketch.refreshedAt());
+            analytics.put("distributionComplete", sketch.complete());
             analytics.put("reportPeriod", Map.of("startDate", startDate, "endDate", endDate));
             analytics.put("generatedAt", LocalDateTime.now());
 
@@ -242,10 +304,10 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
         Map<String, Object> analytics = new HashMap<>();
 
         try {
-            // Since we don't have inventory entity yet, we'll create placeholder data
-            analytics.put("totalProducts", 150);
-            analytics.put("lowStockItems", 12);
-            analytics.put("outOfStockItems", 3);
+            // Low/out-of-stock counts come from the streaming alert engine (products with a reorder point)
+            analytics.put("totalProducts", productStockRepository.count());
+            analytics.put("lowStockItems", lowStockAlertService.getActiveAlerts().size());
+            analytics.put("outOfStockItems", lowStockAlertService.countOutOfStock());
             analytics.put("inventoryValue", new BigDecimal("25000.00"));
             analytics.put("topPerformingProducts", Arrays.asList("Product A", "Product B", "Product C"));
             analytics.put("generatedAt", LocalDateTime.now());
@@ -285,13 +347,11 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
         Map<String, Object> analytics = new HashMap<>();
 
         try {
-            // Get payment statistics by user
-            var payments = paymentRepository.findPaymentsBetweenDates(startDate, endDate);
+            // Aggregated in the database; no payment rows are loaded
+            Object[] summary = paymentRepository.getPaymentSummaryBetweenDates(startDate, endDate).get(0);
 
-            long totalProcessedPayments = payments.size();
-            long successfulPayments = payments.stream()
-                    .mapToLong(p -> "COMPLETED".equals(p.getPaymentStatus().toString()) ? 1 : 0)
-                    .sum();
+            long totalProcessedPayments = ((Number) summary[2]).longValue();
+            long successfulPayments = ((Number) summary[1]).longValue();
 
             double successRate = totalProcessedPayments > 0 ?
                     (double) successfulPayments / totalProcessedPayments * 100 : 0;
@@ -312,6 +372,61 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
         return analytics;
     }
 
+    @Override
+    public Map<String, Object> getPaymentSlice(LocalDateTime startDate, LocalDateTime endDate, String groupBy,
+                                               Integer userId, Integer customerId, String method, String gateway,
+                                               String status) {
+        // Throws IllegalArgumentException for an unknown dimension; the controller answers 400
+        PaymentFactStore.GroupBy dimension = groupBy != null ?
+                PaymentFactStore.GroupBy.valueOf(groupBy.toUpperCase()) : PaymentFactStore.GroupBy.NONE;
+
+        PaymentFactStore.Slice slice = paymentFactStore.query(new PaymentFactStore.Filter(startDate, endDate,
+                userId, customerId, upperCase(method), upperCase(gateway), upperCase(status)), dimension);
+
+        Map<String, Object> analytics = new HashMap<>();
+        analytics.put("groupBy", dimension.name());
+        analytics.put("transactionCount", slice.count());
+        analytics.put("totalAmount", slice.amount());
+        analytics.put("groups", slice.groups());
+        analytics.put("complete", slice.complete());
+        analytics.put("syncedAt", slice.syncedAt());
+        analytics.put("scannedRows", slice.scannedRows());
+        analytics.put("elapsedMicros", slice.elapsedMicros());
+        analytics.put("generatedAt", LocalDateTime.now());
+        return analytics;
+    }
+
+    @Override
+    public Map<String, Object> getPaymentFactStatistics() {
+        return paymentFactStore.getStatistics();
+    }
+
+    @Override
+    public Map<String, Object> getRecentSalesAnalytics(int days) {
+        return analyticsCache.get("sales", days, () -> {
+            LocalDateTime endDate = LocalDateTime.now();
+            return getSalesAnalytics(endDate.minusDays(days), endDate);
+        });
+    }
+
+    @Override
+    public Map<String, Object> getRecentPerformanceAnalytics(int days) {
+        return analyticsCache.get("performance", days, () -> {
+            LocalDateTime endDate = LocalDateTime.now();
+            return getPerformanceAnalytics(endDate.minusDays(days), endDate);
+        });
+    }
+
+    @Override
+    public Map<String, Object> getCurrentInventoryAnalytics() {
+        return analyticsCache.get("inventory", 0, this::getInventoryAnalytics);
+    }
+
+    @Override
+    public Map<String, Object> getCurrentCustomerAnalytics() {
+        return analyticsCache.get("customer", 0, this::getCustomerAnalytics);
+    }
+
     @Override
     public String exportReportToPDF(Integer reportId) {
         // This would integrate with a PDF generation library like iText
@@ -321,9 +436,8 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
 
     @Override
     public String exportReportToCSV(Integer reportId) {
-        // This would generate CSV export
-        // For now, return a placeholder URL
-        return "/api/analytics-reports/download/csv/" + reportId;
+        // Streamed on download (gzip, resumable with Range)
+        return analyticsReportRepository.existsById(reportId) ? "/api/analytics-reports/download/csv/" + reportId : null;
     }
 
     @Override
@@ -360,8 +474,7 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
                     "performance", performanceReports
             ));
 
-            List<AnalyticsReportEntity> recentReports = analyticsReportRepository.findRecentReports(LocalDateTime.now().minusDays(7));
-            stats.put("recentReportsCount", recentReports.size());
+            stats.put("recentReportsCount", analyticsReportRepository.countReportsSince(LocalDateTime.now().minusDays(7)));
 
         } catch (Exception e) {
             log.error("Error calculating report statistics: {}", e.getMessage());
@@ -371,6 +484,65 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
         return stats;
     }
 
+    private AnalyticsReport generateReport(String reportType, String generatedBy, LocalDateTime startDate,
+                                           LocalDateTime endDate, Map<String, Object> filters, String failedTitle) {
+        try {
+            AnalyticsReportEntity reportEntity = newReport(reportType, generatedBy, startDate, endDate, filters);
+            byte[] reportData = compressJson(computeReportData(reportType, startDate, endDate));
+            reportEntity.setStatus("COMPLETED");
+
+            AnalyticsReportEntity savedReport = analyticsReportRepository.save(reportEntity);
+            analyticsReportPayloadRepository.save(
+                    new AnalyticsReportPayloadEntity(savedReport.getId(), reportData, compressJson(filters)));
+            return mapper.map(savedReport, AnalyticsReport.class);
+
+        } catch (Exception e) {
+            log.error("Error generating {} report: {}", reportType, e.getMessage(), e);
+            return createFailedReport(reportType, generatedBy, failedTitle);
+        }
+    }
+
+    // Report row without data; title and description depend on the type
+    private AnalyticsReportEntity newReport(String reportType, String generatedBy, LocalDateTime startDate,
+                                           LocalDateTime endDate, Map<String, Object> filters) {
+        AnalyticsReportEntity reportEntity = new AnalyticsReportEntity();
+        reportEntity.setReportType(reportType);
+        reportEntity.setGeneratedBy(generatedBy);
+        reportEntity.setPeriodStart(startDate);
+        reportEntity.setPeriodEnd(endDate);
+
+        switch (reportType) {
+            case "sales" -> {
+                reportEntity.setReportTitle("Sales Report - " + startDate.toLocalDate() + " to " + endDate.toLocalDate());
+                reportEntity.setReportDescription("Comprehensive sales analysis including revenue, transactions, and trends");
+            }
+            case "inventory" -> {
+                reportEntity.setReportTitle("Inventory Report - " + LocalDateTime.now().toLocalDate());
+                reportEntity.setReportDescription("Current inventory status, stock levels, and product performance");
+            }
+            case "customer" -> {
+                reportEntity.setReportTitle("Customer Report - " + LocalDateTime.now().toLocalDate());
+                reportEntity.setReportDescription("Customer behavior analysis, loyalty metrics, and demographics");
+            }
+            case "performance" -> {
+                reportEntity.setReportTitle("Performance Report - " + startDate.toLocalDate() + " to " + endDate.toLocalDate());
+                reportEntity.setReportDescription("Staff performance, system efficiency, and operational metrics");
+            }
+            default -> throw new IllegalArgumentException("Unknown report type: " + reportType);
+        }
+        return reportEntity;
+    }
+
+    private Map<String, Object> computeReportData(String reportType, LocalDateTime startDate, LocalDateTime endDate) {
+        return switch (reportType) {
+            case "sales" -> getSalesAnalytics(startDate, endDate);
+            case "inventory" -> getInventoryAnalytics();
+            case "customer" -> getCustomerAnalytics();
+            case "performance" -> getPerformanceAnalytics(startDate, endDate);
+            default -> throw new IllegalArgumentException("Unknown report type: " + reportType);
+        };
+    }
+
     // Helper method to create failed reports
     private AnalyticsReport createFailedReport(String reportType, String generatedBy, String title) {
         try {
@@ -388,4 +560,130 @@ public class AnalyticsReportServiceImpl implements AnalyticsReportService {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    // Serialized by the Jackson generator straight into the gzip stream; no intermediate JSON String
+    private byte[] compressJson(Object value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (OutputStream gzip = new GZIPOutputStream(bytes, 8192)) {
+            objectMapper.writeValue(gzip, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String decompressJson(byte[] compressed) {
+        if (compressed == null) {
+            return null;
+        }
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed), 8192)) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt report payload", e);
+        }
+    }
+
+    // Reports written before payloads moved out of analytics_reports still have TEXT report_data / filters
+    // columns there (ddl-auto never drops columns). Compress them into the payload table in batches and
+    // null the old columns, so the migration is resumable and a no-op once done.
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyPayloads() {
+        try {
+            Integer legacyColumns = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() " +
+                            "AND table_name = 'analytics_reports' AND column_name IN ('report_data', 'filters')",
+                    Integer.class);
+            if (legacyColumns == null || legacyColumns < 2) {
+                return;
+            }
+
+            int migrated = 0;
+            while (true) {
+                List<Object[]> rows = jdbcTemplate.query(
+                        "SELECT id, report_data, filters FROM analytics_reports " +
+                                "WHERE report_data IS NOT NULL OR filters IS NOT NULL ORDER BY id LIMIT " + LEGACY_MIGRATION_BATCH,
+                        (rs, rowNum) -> new Object[]{rs.getInt(1), compressText(rs.getString(2)), compressText(rs.getString(3))});
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                transactionTemplate.executeWithoutResult(tx -> {
+                    jdbcTemplate.batchUpdate("INSERT IGNORE INTO analytics_report_payloads (report_id, report_data, filters) " +
+                            "VALUES (?, ?, ?)", rows);
+                    jdbcTemplate.batchUpdate("UPDATE analytics_reports SET report_data = NULL, filters = NULL WHERE id = ?",
+                            rows.stream().map(row -> new Object[]{row[0]}).toList());
+                });
+                migrated += rows.size();
+            }
+
+            if (migrated > 0) {
+                log.info("Moved {} legacy report payloads to analytics_report_payloads", migrated);
+            }
+        } catch (Exception e) {
+            log.error("Error migrating legacy report payloads: {}", e.getMessage(), e);
+        }
+    }
+
+    private static byte[] compressText(String text) {
+        if (text == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, text.length() / 4));
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In-memory streams do not fail
+        }
+        return bytes.toByteArray();
+    }
+
+    // [method, gateway] -> [count, gross, refunds, completedCount, completedAmount] over completed payments
+    // (refunded ones included in the first three) dated in [startDate, endDate]
+    private Map<List<String>, BigDecimal[]> summarizeSales(LocalDateTime startDate, LocalDateTime endDate) {
+        Map<List<String>, BigDecimal[]> totals = new TreeMap<>(Comparator.comparing((List<String> key) -> key.get(0))
+                .thenComparing(key -> key.get(1)));
+
+        LocalDateTime end = endDate.plusNanos(1_000); // BETWEEN is inclusive; rows are stored to the microsecond
+        LocalDateTime firstHour = startDate.truncatedTo(ChronoUnit.HOURS).equals(startDate) ?
+                startDate : startDate.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime lastHour = end.truncatedTo(ChronoUnit.HOURS);
+
+        if (!firstHour.isBefore(lastHour)) {
+            mergeSales(totals, paymentRepository.getSalesSummary(startDate, end));
+            return totals;
+        }
+
+        if (startDate.isBefore(firstHour)) {
+            mergeSales(totals, paymentRepository.getSalesSummary(startDate, firstHour));
+        }
+        mergeSales(totals, salesHourlyRepository.summarize(firstHour, lastHour));
+        if (lastHour.isBefore(end)) {
+            mergeSales(totals, paymentRepository.getSalesSummary(lastHour, end));
+        }
+
+        return totals;
+    }
+
+    private static void mergeSales(Map<List<String>, BigDecimal[]> totals, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            List<String> key = List.of(row[0].toString(), row[1] != null ? row[1].toString() : "UNKNOWN");
+            BigDecimal[] sums = totals.computeIfAbsent(key, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO,
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+            sums[0] = sums[0].add(BigDecimal.valueOf(((Number) row[2]).longValue()));
+            sums[1] = sums[1].add(row[3] != null ? toBigDecimal(row[3]) : BigDecimal.ZERO);
+            sums[2] = sums[2].add(row[4] != null ? toBigDecimal(row[4]) : BigDecimal.ZERO);
+            sums[3] = sums[3].add(row[5] != null ? toBigDecimal(row[5]) : BigDecimal.ZERO);
+            sums[4] = sums[4].add(row[6] != null ? toBigDecimal(row[6]) : BigDecimal.ZERO);
+        }
+    }
+
+    // SUM over a DECIMAL column comes back as BigDecimal, but the 0 default of COALESCE may not
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private static String upperCase(String value) {
+        return value != null && !value.isBlank() ? value.trim().toUpperCase() : null;
+    }
+}
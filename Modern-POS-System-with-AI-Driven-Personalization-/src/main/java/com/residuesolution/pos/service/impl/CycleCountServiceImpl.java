@@ -0,0 +1,211 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.CycleCountLine;
+import com.residuesolution.pos.dto.InventoryLog;
+import com.residuesolution.pos.enums.InventoryChangeType;
+import com.residuesolution.pos.service.CycleCountService;
+import com.residuesolution.pos.service.ProductStockService;
+import com.residuesolution.pos.service.ProductStockService.StockCount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Reads the file line by line and applies it batch-size lines per transaction: one locking read and
+// one batched upsert for the stock rows, one batched insert for the logs. Memory holds one batch plus
+// the set of product IDs already seen (to reject duplicates), never the whole file. Counted units include
+// those held by live reservations; they stay out of the stock level, or they could be sold twice.
+@Service
+@Slf4j
+public class CycleCountServiceImpl implements CycleCountService {
+
+    private final ProductStockService productStockService;
+    private final InventoryLogBatchWriter inventoryLogBatchWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public CycleCountServiceImpl(ProductStockService productStockService,
+                                 InventoryLogBatchWriter inventoryLogBatchWriter,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pos.cycle-count.batch-size:1000}") int batchSize) {
+        this.productStockService = productStockService;
+        this.inventoryLogBatchWriter = inventoryLogBatchWriter;
+        // READ COMMITTED: setStock reads the live holds after locking the stock rows and must see every
+        // hold committed while it waited for them
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Map<String, Object> importCounts(InputStream csv, Integer userId, String reason,
+                                            Consumer<CycleCountLine> listener) throws IOException {
+        long started = System.nanoTime();
+        String importId = "CC-" + UUID.randomUUID();
+        String logReason = reason != null && !reason.isBlank() ? reason : "Cycle count";
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Set<Integer> seen = new HashSet<>();
+        List<CycleCountLine> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String text;
+            int lineNumber = 0;
+            boolean firstLine = true;
+
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (text.isBlank()) {
+                    continue;
+                }
+
+                CycleCountLine line = parse(lineNumber, text);
+                if (firstLine && line.getProductId() == null) {
+                    firstLine = false;
+                    continue; // Header row
+                }
+                firstLine = false;
+
+                if (line.getStatus() == null && !seen.add(line.getProductId())) {
+                    line.setStatus("DUPLICATE");
+                    line.setMessage("Product already counted on an earlier line");
+                }
+
+                batch.add(line);
+                if (batch.size() >= batchSize) {
+                    applyBatch(batch, userId, logReason, importId, counts, listener);
+                    batch.clear();
+                }
+            }
+        }
+
+        applyBatch(batch, userId, logReason, importId, counts, listener);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("importId", importId);
+        summary.put("lines", counts.values().stream().mapToInt(Integer::intValue).sum());
+        summary.putAll(counts);
+        summary.put("durationMs", (System.nanoTime() - started) / 1_000_000);
+        log.info("Cycle count {} imported: {}", importId, summary);
+        return summary;
+    }
+
+    private void applyBatch(List<CycleCountLine> batch, Integer userId, String reason, String importId,
+                            Map<String, Integer> counts, Consumer<CycleCountLine> listener) {
+        // Product ID order, so concurrent imports and stock updates lock rows in the same order
+        List<CycleCountLine> valid = batch.stream()
+                .filter(line -> line.getStatus() == null)
+                .sorted(Comparator.comparing(CycleCountLine::getProductId))
+                .toList();
+
+        if (!valid.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    int[] productIds = valid.stream().mapToInt(CycleCountLine::getProductId).toArray();
+                    int[] counted = valid.stream().mapToInt(CycleCountLine::getCountedQuantity).toArray();
+                    StockCount[] stockCounts = productStockService.setStock(productIds, counted);
+
+                    LocalDateTime now = LocalDateTime.now();
+                    List<InventoryLog> logs = new ArrayList<>();
+
+                    for (int i = 0; i < valid.size(); i++) {
+                        CycleCountLine line = valid.get(i);
+                        StockCount stockCount = stockCounts[i];
+                        int change = stockCount.current() - stockCount.previous();
+                        line.setReservedQuantity(stockCount.held());
+                        line.setPreviousStock(stockCount.previous());
+                        line.setAdjustment(change);
+                        line.setStatus(change != 0 ? "ADJUSTED" : "UNCHANGED");
+
+                        if (change != 0) {
+                            InventoryLog inventoryLog = new InventoryLog();
+                            inventoryLog.setProductId(productIds[i]);
+                            inventoryLog.setChangedBy(userId);
+                            inventoryLog.setChangeType(InventoryChangeType.AUDIT_ADJUSTMENT);
+                            inventoryLog.setQuantity(change);
+                            inventoryLog.setReason(reason);
+                            inventoryLog.setNotes("Cycle count line " + line.getLineNumber());
+                            inventoryLog.setReferenceId(importId);
+                            inventoryLog.setPreviousStock(stockCount.previous());
+                            inventoryLog.setNewStock(stockCount.current());
+                            inventoryLog.setIsSystemGenerated(false);
+                            inventoryLog.setCreatedAt(now);
+                            logs.add(inventoryLog);
+                        }
+                    }
+
+                    inventoryLogBatchWriter.writeBatch(logs);
+                });
+
+            } catch (Exception e) {
+                log.error("Cycle count {} batch failed: {}", importId, e.getMessage(), e);
+                for (CycleCountLine line : valid) {
+                    line.setReservedQuantity(null);
+                    line.setPreviousStock(null);
+                    line.setAdjustment(null);
+                    line.setStatus("FAILED");
+                    line.setMessage(e.getMessage());
+                }
+            }
+        }
+
+        for (CycleCountLine line : batch) {
+            counts.merge(line.getStatus(), 1, Integer::sum);
+            listener.accept(line);
+        }
+    }
+
+    // Status stays null for a well-formed line; a header row comes back without a product ID
+    private static CycleCountLine parse(int lineNumber, String text) {
+        CycleCountLine line = new CycleCountLine();
+        line.setLineNumber(lineNumber);
+
+        String[] fields = text.split(",", -1);
+        try {
+            line.setProductId(Integer.valueOf(unquote(fields[0])));
+        } catch (NumberFormatException e) {
+            line.setStatus("INVALID");
+            line.setMessage("Product ID is not a number");
+            return line;
+        }
+
+        try {
+            line.setCountedQuantity(Integer.valueOf(unquote(fields.length > 1 ? fields[1] : "")));
+        } catch (NumberFormatException e) {
+            line.setStatus("INVALID");
+            line.setMessage("Counted quantity is not a number");
+            return line;
+        }
+
+        if (line.getCountedQuantity() < 0) {
+            line.setStatus("INVALID");
+            line.setMessage("Counted quantity cannot be negative");
+        }
+        return line;
+    }
+
+    private static String unquote(String field) {
+        String trimmed = field.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+}
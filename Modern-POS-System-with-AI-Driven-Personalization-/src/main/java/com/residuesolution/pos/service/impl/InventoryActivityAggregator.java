@@ -0,0 +1,206 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.archive.InventoryLogArchive;
+import com.residuesolution.pos.entity.InventoryActivityRollupEntity;
+import com.residuesolution.pos.entity.InventoryActivityRollupStateEntity;
+import com.residuesolution.pos.repository.InventoryActivityRollupRepository;
+import com.residuesolution.pos.repository.InventoryLogRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Folds inventory logs into inventory_activity_rollups in the background, so stock mutations don't upsert
+// the shared HOUR / DAY rows inside their own transactions (which serialized every sale of a product on
+// its rollup rows, sharded stock or not). Progress is a log-ID watermark in inventory_activity_rollup_state,
+// locked and advanced in the same transaction as the increments it covers: a crash or a second node can
+// never fold a log twice. Logs past the watermark are read raw by the activity summaries.
+@Component
+@Slf4j
+public class InventoryActivityAggregator {
+
+    private static final String LOCK_STATE_SQL =
+            "SELECT last_log_id FROM inventory_activity_rollup_state WHERE id = ? FOR UPDATE";
+
+    private final InventoryActivityRollupRepository inventoryActivityRollupRepository;
+    private final InventoryLogRepository inventoryLogRepository;
+    private final InventoryLogArchive inventoryLogArchive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long settleSeconds;
+    private final int batchSize;
+
+    private final ReentrantLock foldLock = new ReentrantLock();
+
+    public InventoryActivityAggregator(InventoryActivityRollupRepository inventoryActivityRollupRepository,
+                                       InventoryLogRepository inventoryLogRepository,
+                                       InventoryLogArchive inventoryLogArchive,
+                                       JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${pos.inventory-activity.settle-seconds:60}") long settleSeconds,
+                                       @Value("${pos.inventory-activity.batch-size:50000}") int batchSize) {
+        this.inventoryActivityRollupRepository = inventoryActivityRollupRepository;
+        this.inventoryLogRepository = inventoryLogRepository;
+        this.inventoryLogArchive = inventoryLogArchive;
+        this.jdbcTemplate = jdbcTemplate;
+        // READ COMMITTED: the INSERT ... SELECT reads inventory_logs without share-locking rows or gaps,
+        // so folding never blocks the log inserts of live stock changes
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.settleSeconds = settleSeconds;
+        this.batchSize = batchSize;
+    }
+
+    // Rollups used to be maintained inside each stock transaction, so on upgrade every existing log is
+    // already in them; a fresh install starts from an empty table either way
+    @PostConstruct
+    public void initState() {
+        jdbcTemplate.update("INSERT IGNORE INTO inventory_activity_rollup_state (id, last_log_id, updated_at) " +
+                        "SELECT ?, COALESCE(MAX(id), 0), ? FROM inventory_logs",
+                InventoryActivityRollupStateEntity.ID, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    // Rollups written before they were kept per location come out of ddl-auto with location_id -1. Buckets
+    // before the archive horizon can't be recomputed and count as the default location; the rest is rebuilt
+    // from the raw logs on a background thread so startup is not held up
+    @EventListener(ApplicationReadyEvent.class)
+    public void splitUnknownLocations() {
+        if (!inventoryActivityRollupRepository.existsByLocationId(InventoryActivityRollupEntity.UNKNOWN_LOCATION)) {
+            return;
+        }
+        Thread rebuilder = new Thread(() -> {
+            try {
+                LocalDateTime archivedBefore = inventoryLogArchive.getArchivedBefore();
+                if (archivedBefore != null) {
+                    transactionTemplate.executeWithoutResult(status ->
+                            inventoryActivityRollupRepository.assignUnknownLocationRowsBefore(archivedBefore));
+                }
+                rebuild();
+            } catch (Exception e) {
+                log.error("Error splitting inventory activity rollups by location: {}", e.getMessage(), e);
+            }
+        }, "inventory-activity-rebuild");
+        rebuilder.setDaemon(true);
+        rebuilder.start();
+    }
+
+    @Scheduled(fixedDelayString = "${pos.inventory-activity.fold-ms:5000}")
+    public void scheduledFold() {
+        try {
+            fold();
+        } catch (Exception e) {
+            log.error("Error folding inventory logs into activity rollups: {}", e.getMessage(), e);
+        }
+    }
+
+    // Folds every settled log past the watermark, one batch per transaction
+    public void fold() {
+        if (!foldLock.tryLock()) {
+            return;
+        }
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> foldBatch()))) {
+                // More settled logs are waiting
+            }
+        } finally {
+            foldLock.unlock();
+        }
+    }
+
+    // Logs with IDs up to this one are in the rollups
+    public Integer getFoldedThroughId() {
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT last_log_id FROM inventory_activity_rollup_state WHERE id = ?",
+                Integer.class, InventoryActivityRollupStateEntity.ID);
+        return ids.isEmpty() ? 0 : ids.get(0);
+    }
+
+    // Recompute the rollups from the raw log table, one day per transaction so no single statement locks
+    // or scans the whole history. Buckets before the archive horizon cover logs that are no longer in the
+    // table; they are kept. Each day is rebuilt up to the watermark it reads, so later logs of that day
+    // are still folded exactly once
+    public int rebuild() {
+        foldLock.lock();
+        try {
+            LocalDateTime from = inventoryLogArchive.getArchivedBefore();
+            if (from == null) {
+                from = earliestOf(inventoryLogRepository.findEarliestCreatedAt(),
+                        inventoryActivityRollupRepository.findEarliestBucketStart());
+                if (from == null) {
+                    return 0;
+                }
+            }
+
+            LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            int written = 0;
+            for (LocalDateTime day = from.truncatedTo(ChronoUnit.DAYS); day.isBefore(end); day = day.plusDays(1)) {
+                LocalDateTime dayStart = day;
+                LocalDateTime dayEnd = day.plusDays(1);
+                Integer rows = transactionTemplate.execute(status -> {
+                    int upToId = lockFoldedThroughId();
+                    inventoryActivityRollupRepository.deleteRollupsBetween(dayStart, dayEnd);
+                    return inventoryActivityRollupRepository.rebuildHourly(dayStart, dayEnd, upToId)
+                            + inventoryActivityRollupRepository.rebuildDaily(dayStart, dayEnd, upToId);
+                });
+                written += rows != null ? rows : 0;
+            }
+
+            log.info("Inventory activity rollups rebuilt from {}: {} rows", from, written);
+            return written;
+
+        } finally {
+            foldLock.unlock();
+        }
+    }
+
+    // One transaction: lock the watermark, fold the next batch of settled logs, advance the watermark.
+    // Settled = created a while ago, so no transaction holding a lower log ID can still be in flight
+    private boolean foldBatch() {
+        int afterId = lockFoldedThroughId();
+        Integer settledId = inventoryLogRepository.findLatestIdsCreatedBefore(
+                LocalDateTime.now().minusSeconds(settleSeconds), PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .orElse(null);
+
+        if (settledId == null || settledId <= afterId) {
+            return false;
+        }
+
+        int upToId = (int) Math.min(settledId, (long) afterId + batchSize);
+        inventoryActivityRollupRepository.foldHourly(afterId, upToId);
+        inventoryActivityRollupRepository.foldDaily(afterId, upToId);
+        jdbcTemplate.update("UPDATE inventory_activity_rollup_state SET last_log_id = ?, updated_at = ? WHERE id = ?",
+                upToId, Timestamp.valueOf(LocalDateTime.now()), InventoryActivityRollupStateEntity.ID);
+
+        return upToId < settledId;
+    }
+
+    private int lockFoldedThroughId() {
+        List<Integer> ids = jdbcTemplate.queryForList(LOCK_STATE_SQL, Integer.class, InventoryActivityRollupStateEntity.ID);
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("inventory_activity_rollup_state has no row");
+        }
+        return ids.get(0);
+    }
+
+    private static LocalDateTime earliestOf(LocalDateTime a, LocalDateTime b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isBefore(b) ? a : b;
+    }
+}
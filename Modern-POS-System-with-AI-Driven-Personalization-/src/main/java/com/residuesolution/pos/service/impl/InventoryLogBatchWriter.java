@@ -0,0 +1,54 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.InventoryLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// JDBC-batched insert of inventory logs, in the caller's transaction (activity rollups are folded in later
+// by InventoryActivityAggregator). Shared by the write-behind flusher and bulk imports; bypasses JPA.
+@Component
+@RequiredArgsConstructor
+public class InventoryLogBatchWriter {
+
+    private static final String INSERT_LOG_SQL = "INSERT INTO inventory_logs " +
+            "(product_id, changed_by, change_type, quantity, reason, previous_stock, new_stock, notes, " +
+            "reference_id, location_id, is_system_generated, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void writeBatch(List<InventoryLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (InventoryLog l : logs) {
+            if (l.getCreatedAt() == null) {
+                l.setCreatedAt(now);
+            }
+            if (l.getUpdatedAt() == null) {
+                l.setUpdatedAt(now);
+            }
+            if (l.getIsSystemGenerated() == null) {
+                l.setIsSystemGenerated(false);
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_LOG_SQL, logs.stream().map(InventoryLogBatchWriter::logRow).toList());
+    }
+
+    private static Object[] logRow(InventoryLog l) {
+        return new Object[]{
+                l.getProductId(), l.getChangedBy(), l.getChangeType().name(), l.getQuantity(), l.getReason(),
+                l.getPreviousStock(), l.getNewStock(), l.getNotes(), l.getReferenceId(), l.getLocationId(),
+                l.getIsSystemGenerated(),
+                Timestamp.valueOf(l.getCreatedAt()), Timestamp.valueOf(l.getUpdatedAt())
+        };
+    }
+}
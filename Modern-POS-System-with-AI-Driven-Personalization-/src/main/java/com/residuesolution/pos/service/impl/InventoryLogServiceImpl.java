@@ -1,29 +1,87 @@
 package com.residuesolution.pos.service.impl;
 
+import com.residuesolution.pos.archive.InventoryLogArchive;
 import com.residuesolution.pos.dto.InventoryLog;
+import com.residuesolution.pos.entity.InventoryActivityRollupEntity;
 import com.residuesolution.pos.entity.InventoryLogEntity;
 import com.residuesolution.pos.enums.InventoryChangeType;
+import com.residuesolution.pos.repository.InventoryActivityRollupRepository;
 import com.residuesolution.pos.repository.InventoryLogRepository;
 import com.residuesolution.pos.service.InventoryLogService;
-import lombok.RequiredArgsConstructor;
+import com.residuesolution.pos.service.LocationStockService;
+import com.residuesolution.pos.service.ProductStockService;
+import com.residuesolution.pos.service.ProductStockService.StockCount;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class InventoryLogServiceImpl implements InventoryLogService {
 
+    private static final int DEFAULT_LOG_LIMIT = 50;
+    private static final int MAX_LOG_LIMIT = 1000;
+
     private final InventoryLogRepository inventoryLogRepository;
+    private final InventoryActivityRollupRepository inventoryActivityRollupRepository;
+    private final ProductStockService productStockService;
+    private final LocationStockService locationStockService;
+    private final InventoryLogWriteBehind inventoryLogWriteBehind;
+    private final InventoryLogArchive inventoryLogArchive;
+    private final InventoryLogBatchWriter inventoryLogBatchWriter;
+    private final InventoryActivityAggregator inventoryActivityAggregator;
     private final ModelMapper mapper;
+    private final long followSettleSeconds;
+
+    // Proxy to this bean, so internal calls still get a transaction
+    @Lazy
+    @Autowired
+    private InventoryLogService self;
+
+    public InventoryLogServiceImpl(InventoryLogRepository inventoryLogRepository,
+                                   InventoryActivityRollupRepository inventoryActivityRollupRepository,
+                                   ProductStockService productStockService,
+                                   LocationStockService locationStockService,
+                                   InventoryLogWriteBehind inventoryLogWriteBehind,
+                                   InventoryLogArchive inventoryLogArchive,
+                                   InventoryLogBatchWriter inventoryLogBatchWriter,
+                                   InventoryActivityAggregator inventoryActivityAggregator,
+                                   ModelMapper mapper,
+                                   @Value("${pos.inventory-log.follow-settle-seconds:60}") long followSettleSeconds) {
+        this.inventoryLogRepository = inventoryLogRepository;
+        this.inventoryActivityRollupRepository = inventoryActivityRollupRepository;
+        this.productStockService = productStockService;
+        this.locationStockService = locationStockService;
+        this.inventoryLogWriteBehind = inventoryLogWriteBehind;
+        this.inventoryLogArchive = inventoryLogArchive;
+        this.inventoryLogBatchWriter = inventoryLogBatchWriter;
+        this.inventoryActivityAggregator = inventoryActivityAggregator;
+        this.mapper = mapper;
+        this.followSettleSeconds = followSettleSeconds;
+    }
 
     @Override
     @Transactional
@@ -38,7 +96,7 @@ public class InventoryLogServiceImpl implements InventoryLogService {
             InventoryLogEntity savedLog = inventoryLogRepository.save(entity);
 
             if (savedLog != null) {
-                log.info("Inventory change logged successfully: Product ID {}, Change Type {}, Quantity {}",
+                log.debug("Inventory change logged successfully: Product ID {}, Change Type {}, Quantity {}",
                         inventoryLog.getProductId(), inventoryLog.getChangeType(), inventoryLog.getQuantity());
                 return true;
             }
@@ -47,6 +105,8 @@ public class InventoryLogServiceImpl implements InventoryLogService {
 
         } catch (Exception e) {
             log.error("Error logging inventory change: {}", e.getMessage(), e);
+            // Don't commit a log row without its rollup increments (or vice versa)
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
@@ -69,6 +129,20 @@ public class InventoryLogServiceImpl implements InventoryLogService {
         return logInventoryChange(inventoryLog);
     }
 
+    @Override
+    public CompletableFuture<Boolean> logInventoryChangeAsync(InventoryLog inventoryLog) {
+        if (!validateInventoryLog(inventoryLog)) {
+            log.error("Invalid inventory log: {}", inventoryLog);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        if (!inventoryLogWriteBehind.isEnabled()) {
+            return CompletableFuture.completedFuture(self.logInventoryChange(inventoryLog));
+        }
+
+        return inventoryLogWriteBehind.submit(inventoryLog);
+    }
+
     @Override
     public List<InventoryLog> getAllInventoryLogs() {
         List<InventoryLogEntity> entities = inventoryLogRepository.findAll();
@@ -86,7 +160,9 @@ public class InventoryLogServiceImpl implements InventoryLogService {
 
     @Override
     public List<InventoryLog> getLogsByProductId(Integer productId) {
-        List<InventoryLogEntity> entities = inventoryLogRepository.findByProductIdOrderByCreatedAtDesc(productId);
+        List<InventoryLogEntity> entities = withArchived(
+                inventoryLogRepository.findByProductIdOrderByCreatedAtDesc(productId),
+                productId, null, null);
         return entities.stream()
                 .map(entity -> mapper.map(entity, InventoryLog.class))
                 .toList();
@@ -110,7 +186,9 @@ public class InventoryLogServiceImpl implements InventoryLogService {
 
     @Override
     public List<InventoryLog> getLogsBetweenDates(LocalDateTime startDate, LocalDateTime endDate) {
-        List<InventoryLogEntity> entities = inventoryLogRepository.findLogsBetweenDates(startDate, endDate);
+        List<InventoryLogEntity> entities = withArchived(
+                inventoryLogRepository.findLogsBetweenDates(startDate, endDate),
+                null, startDate, endDate);
         return entities.stream()
                 .map(entity -> mapper.map(entity, InventoryLog.class))
                 .toList();
@@ -118,7 +196,9 @@ public class InventoryLogServiceImpl implements InventoryLogService {
 
     @Override
     public List<InventoryLog> getLogsByProductAndDateRange(Integer productId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<InventoryLogEntity> entities = inventoryLogRepository.findByProductAndDateRange(productId, startDate, endDate);
+        List<InventoryLogEntity> entities = withArchived(
+                inventoryLogRepository.findByProductAndDateRange(productId, startDate, endDate),
+                productId, startDate, endDate);
         return entities.stream()
                 .map(entity -> mapper.map(entity, InventoryLog.class))
                 .toList();
@@ -157,38 +237,92 @@ public class InventoryLogServiceImpl implements InventoryLogService {
     }
 
     @Override
-    public Integer getTotalQuantityChangesForProduct(Integer productId, LocalDateTime startDate, LocalDateTime endDate) {
-        Integer total = inventoryLogRepository.getTotalQuantityChangesForProduct(productId, startDate, endDate);
-        return total != null ? total : 0;
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ) // Watermark, rollups and raw tail from one view
+    public Integer getTotalQuantityChangesForProduct(Integer productId, LocalDateTime startDate, LocalDateTime endDate,
+                                                     Integer locationId) {
+        return summarizeActivity(startDate, endDate, productId, locationId).values().stream()
+                .mapToInt(totals -> (int) totals[1])
+                .sum();
     }
 
     @Override
-    public List<Map<String, Object>> getInventoryActivitySummary(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Object[]> results = inventoryLogRepository.getInventoryActivitySummary(startDate, endDate);
-
-        return results.stream()
-                .map(result -> Map.of(
-                        "changeType", result[0] != null ? result[0].toString() : "UNKNOWN",
-                        "count", result[1] != null ? result[1] : 0L,
-                        "totalQuantity", result[2] != null ? result[2] : 0
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ) // Watermark, rollups and raw tail from one view
+    public List<Map<String, Object>> getInventoryActivitySummary(LocalDateTime startDate, LocalDateTime endDate,
+                                                                 Integer locationId) {
+        return summarizeActivity(startDate, endDate, null, locationId).entrySet().stream()
+                .map(entry -> Map.<String, Object>of(
+                        "changeType", entry.getKey().toString(),
+                        "count", entry.getValue()[0],
+                        "totalQuantity", entry.getValue()[1]
                 ))
                 .toList();
     }
 
+    @Override
+    public Boolean rebuildActivityRollups() {
+        try {
+            int rows = inventoryActivityAggregator.rebuild();
+            log.info("Inventory activity rollups rebuilt: {} rows", rows);
+            return true;
+
+        } catch (Exception e) {
+            log.error("Error rebuilding inventory activity rollups: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public Integer archiveOldLogs() {
+        return inventoryLogArchive.archive();
+    }
+
     @Override
     public List<InventoryLog> getRecentLogs(Integer limit) {
-        // Use PageRequest to limit results
-        List<InventoryLogEntity> entities = inventoryLogRepository.findRecentLogs();
+        // Use PageRequest to limit results in SQL
+        List<InventoryLogEntity> entities = inventoryLogRepository.findRecentLogs(PageRequest.of(0, clampLimit(limit)));
+
+        return entities.stream()
+                .map(entity -> mapper.map(entity, InventoryLog.class))
+                .toList();
+    }
+
+    @Override
+    public List<InventoryLog> getLogsAfter(Integer afterId, Integer limit) {
+        // Followers only get as far as the newest log created a settle window ago: created_at is stamped before
+        // the commit, so lower IDs may still be in flight until then (batched writes, group commits)
+        int cursor = afterId != null ? afterId : 0;
+        Integer settledThroughId = inventoryLogRepository.findLatestIdsCreatedBefore(
+                LocalDateTime.now().minusSeconds(followSettleSeconds), PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .orElse(null);
+
+        if (settledThroughId == null || settledThroughId <= cursor) {
+            return List.of();
+        }
+
+        List<InventoryLogEntity> entities = inventoryLogRepository.findLogsAfterId(
+                cursor, settledThroughId, PageRequest.of(0, clampLimit(limit)));
 
         return entities.stream()
-                .limit(limit != null ? limit : 50) // Default to 50 if no limit specified
                 .map(entity -> mapper.map(entity, InventoryLog.class))
                 .toList();
     }
 
     @Override
     public List<InventoryLog> searchLogsByReason(String reason) {
-        List<InventoryLogEntity> entities = inventoryLogRepository.findByReasonContainingIgnoreCase(reason);
+        // First MAX_LOG_LIMIT matches only; callers that need more page through searchLogs
+        return searchLogs(reason, null, null, 0, MAX_LOG_LIMIT);
+    }
+
+    @Override
+    public List<InventoryLog> searchLogs(String query, LocalDateTime startDate, LocalDateTime endDate,
+                                         Integer page, Integer size) {
+        // One quoted phrase: operators in the query (+, -, *, ...) are matched as text, and with the ngram
+        // parser the phrase matches like a substring search
+        String phrase = "\"" + query.replace("\"", " ").trim() + "\"";
+        List<InventoryLogEntity> entities = inventoryLogRepository.searchFullText(phrase, startDate, endDate,
+                PageRequest.of(page != null && page >= 0 ? page : 0, clampLimit(size)));
+
         return entities.stream()
                 .map(entity -> mapper.map(entity, InventoryLog.class))
                 .toList();
@@ -205,112 +339,296 @@ public class InventoryLogServiceImpl implements InventoryLogService {
     @Override
     @Transactional
     public Boolean addStock(Integer productId, Integer quantity, Integer userId, String reason, String referenceId) {
+        return addStockAtLocation(null, productId, quantity, userId, reason, referenceId);
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED) // Failed conditional shard updates must not keep row locks
+    public Boolean removeStock(Integer productId, Integer quantity, Integer userId, String reason, String referenceId) {
+        return removeStockAtLocation(null, productId, quantity, userId, reason, referenceId);
+    }
+
+    @Override
+    @Transactional
+    public Boolean addStockAtLocation(Integer locationId, Integer productId, Integer quantity, Integer userId,
+                                      String reason, String referenceId) {
         try {
-            // You would typically get the current stock from a Product entity
-            // For now, we'll use 0 as previous stock (you should implement product stock tracking)
-            Integer previousStock = getCurrentStock(productId);
-            Integer newStock = previousStock + quantity;
-
-            InventoryLog log = new InventoryLog();
-            log.setProductId(productId);
-            log.setChangedBy(userId);
-            log.setChangeType(InventoryChangeType.ADD);
-            log.setQuantity(quantity);
-            log.setReason(reason);
-            log.setReferenceId(referenceId);
-            log.setPreviousStock(previousStock);
-            log.setNewStock(newStock);
-            log.setIsSystemGenerated(false);
-
-            Boolean logged = logInventoryChange(log);
-
-            if (logged) {
-                // Here you would update the actual product stock in the database
-                updateProductStock(productId, newStock);
-                log.info("Stock added successfully: Product ID {}, Quantity {}", productId, quantity);
+            if (quantity == null || quantity <= 0) {
+                log.warn("Invalid quantity {} for adding stock to product ID {}", quantity, productId);
+                return false;
             }
 
-            return logged;
+            Integer newStock = locationStockService.increaseStock(locationId, productId, quantity);
+            Integer previousStock = newStock - quantity;
+
+            InventoryLog inventoryLog = new InventoryLog();
+            inventoryLog.setProductId(productId);
+            inventoryLog.setChangedBy(userId);
+            inventoryLog.setChangeType(InventoryChangeType.ADD);
+            inventoryLog.setQuantity(quantity);
+            inventoryLog.setReason(reason);
+            inventoryLog.setReferenceId(referenceId);
+            inventoryLog.setLocationId(logLocationId(locationId));
+            inventoryLog.setPreviousStock(previousStock);
+            inventoryLog.setNewStock(newStock);
+            inventoryLog.setIsSystemGenerated(false);
+
+            if (!logInventoryChange(inventoryLog)) {
+                // The stock row and the log row commit together or not at all
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return false;
+            }
+
+            log.info("Stock added successfully: Product ID {}, Quantity {}", productId, quantity);
+            return true;
 
         } catch (Exception e) {
             log.error("Error adding stock: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
 
     @Override
-    @Transactional
-    public Boolean removeStock(Integer productId, Integer quantity, Integer userId, String reason, String referenceId) {
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Boolean removeStockAtLocation(Integer locationId, Integer productId, Integer quantity, Integer userId,
+                                         String reason, String referenceId) {
         try {
-            Integer previousStock = getCurrentStock(productId);
-
-            if (previousStock < quantity) {
-                log.warn("Insufficient stock for product ID {}: Available {}, Requested {}",
-                        productId, previousStock, quantity);
+            if (quantity == null || quantity <= 0) {
+                log.warn("Invalid quantity {} for removing stock from product ID {}", quantity, productId);
                 return false;
             }
 
-            Integer newStock = previousStock - quantity;
+            // Single conditional UPDATE, so concurrent lanes can never oversell
+            Integer newStock = locationStockService.decreaseStock(locationId, productId, quantity);
 
-            InventoryLog log = new InventoryLog();
-            log.setProductId(productId);
-            log.setChangedBy(userId);
-            log.setChangeType(InventoryChangeType.REMOVE);
-            log.setQuantity(-quantity); // Negative quantity for removal
-            log.setReason(reason);
-            log.setReferenceId(referenceId);
-            log.setPreviousStock(previousStock);
-            log.setNewStock(newStock);
-            log.setIsSystemGenerated(false);
-
-            Boolean logged = logInventoryChange(log);
+            if (newStock == null) {
+                return false;
+            }
 
-            if (logged) {
-                updateProductStock(productId, newStock);
-                log.info("Stock removed successfully: Product ID {}, Quantity {}", productId, quantity);
+            Integer previousStock = newStock + quantity;
+
+            InventoryLog inventoryLog = new InventoryLog();
+            inventoryLog.setProductId(productId);
+            inventoryLog.setChangedBy(userId);
+            inventoryLog.setChangeType(InventoryChangeType.REMOVE);
+            inventoryLog.setQuantity(-quantity); // Negative quantity for removal
+            inventoryLog.setReason(reason);
+            inventoryLog.setReferenceId(referenceId);
+            inventoryLog.setLocationId(logLocationId(locationId));
+            inventoryLog.setPreviousStock(previousStock);
+            inventoryLog.setNewStock(newStock);
+            inventoryLog.setIsSystemGenerated(false);
+
+            if (!logInventoryChange(inventoryLog)) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return false;
             }
 
-            return logged;
+            log.info("Stock removed successfully: Product ID {}, Quantity {}", productId, quantity);
+            return true;
 
         } catch (Exception e) {
             log.error("Error removing stock: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
 
     @Override
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public String transferStock(Integer productId, Integer quantity, Integer fromLocationId, Integer toLocationId,
+                                Integer userId, String reason) {
+        try {
+            Integer from = fromLocationId != null ? fromLocationId : locationStockService.getDefaultLocationId();
+            Integer to = toLocationId != null ? toLocationId : locationStockService.getDefaultLocationId();
+
+            if (quantity == null || quantity <= 0 || from.equals(to)) {
+                log.warn("Invalid transfer of {} units of product ID {} from location {} to {}",
+                        quantity, productId, from, to);
+                return null;
+            }
+
+            String referenceId = "TRF-" + UUID.randomUUID();
+            Integer fromStock;
+            Integer toStock;
+
+            // Touch the two stock rows in location order so opposite transfers can't deadlock
+            if (from < to) {
+                fromStock = locationStockService.decreaseStock(from, productId, quantity);
+                if (fromStock == null) {
+                    return null;
+                }
+                toStock = locationStockService.increaseStock(to, productId, quantity);
+            } else {
+                toStock = locationStockService.increaseStock(to, productId, quantity);
+                fromStock = locationStockService.decreaseStock(from, productId, quantity);
+                if (fromStock == null) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return null;
+                }
+            }
+
+            InventoryLog outLog = new InventoryLog();
+            outLog.setProductId(productId);
+            outLog.setChangedBy(userId);
+            outLog.setChangeType(InventoryChangeType.TRANSFER_OUT);
+            outLog.setQuantity(-quantity);
+            outLog.setReason(reason);
+            outLog.setNotes("Transfer to location " + to);
+            outLog.setReferenceId(referenceId);
+            outLog.setLocationId(logLocationId(from));
+            outLog.setPreviousStock(fromStock + quantity);
+            outLog.setNewStock(fromStock);
+            outLog.setIsSystemGenerated(false);
+
+            InventoryLog inLog = new InventoryLog();
+            inLog.setProductId(productId);
+            inLog.setChangedBy(userId);
+            inLog.setChangeType(InventoryChangeType.TRANSFER_IN);
+            inLog.setQuantity(quantity);
+            inLog.setReason(reason);
+            inLog.setNotes("Transfer from location " + from);
+            inLog.setReferenceId(referenceId);
+            inLog.setLocationId(logLocationId(to));
+            inLog.setPreviousStock(toStock - quantity);
+            inLog.setNewStock(toStock);
+            inLog.setIsSystemGenerated(false);
+
+            if (!logInventoryChange(outLog) || !logInventoryChange(inLog)) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return null;
+            }
+
+            log.info("Stock transferred successfully: Product ID {}, Quantity {}, Location {} -> {}, Reference {}",
+                    productId, quantity, from, to, referenceId);
+            return referenceId;
+
+        } catch (Exception e) {
+            log.error("Error transferring stock: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return null;
+        }
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED) // setStock must see holds committed while it awaited the row lock
     public Boolean adjustStock(Integer productId, Integer newQuantity, Integer userId, String reason) {
         try {
-            Integer previousStock = getCurrentStock(productId);
-            Integer quantityChange = newQuantity - previousStock;
-
-            InventoryLog log = new InventoryLog();
-            log.setProductId(productId);
-            log.setChangedBy(userId);
-            log.setChangeType(InventoryChangeType.ADJUST);
-            log.setQuantity(quantityChange);
-            log.setReason(reason);
-            log.setPreviousStock(previousStock);
-            log.setNewStock(newQuantity);
-            log.setIsSystemGenerated(false);
-
-            Boolean logged = logInventoryChange(log);
-
-            if (logged) {
-                updateProductStock(productId, newQuantity);
-                log.info("Stock adjusted successfully: Product ID {}, From {} to {}",
-                        productId, previousStock, newQuantity);
+            if (newQuantity == null || newQuantity < 0) {
+                log.warn("Invalid stock level {} for adjusting product ID {}", newQuantity, productId);
+                return false;
+            }
+
+            // newQuantity is what was counted; units held by live reservations stay out of the stock level
+            StockCount stockCount = productStockService.setStock(productId, newQuantity);
+            Integer previousStock = stockCount.previous();
+            Integer quantityChange = stockCount.current() - previousStock;
+
+            InventoryLog inventoryLog = new InventoryLog();
+            inventoryLog.setProductId(productId);
+            inventoryLog.setChangedBy(userId);
+            inventoryLog.setChangeType(InventoryChangeType.ADJUST);
+            inventoryLog.setQuantity(quantityChange);
+            inventoryLog.setReason(reason);
+            inventoryLog.setPreviousStock(previousStock);
+            inventoryLog.setNewStock(stockCount.current());
+            inventoryLog.setIsSystemGenerated(false);
+
+            if (!logInventoryChange(inventoryLog)) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return false;
             }
 
-            return logged;
+            log.info("Stock adjusted successfully: Product ID {}, From {} to {} ({} held by reservations)",
+                    productId, previousStock, stockCount.current(), stockCount.held());
+            return true;
 
         } catch (Exception e) {
             log.error("Error adjusting stock: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
 
+    @Override
+    @Transactional
+    public Boolean receiveDelivery(int[] productIds, int[] quantities, Integer userId, String reason,
+                                   String referenceId) {
+        try {
+            if (productIds.length == 0 || productIds.length != quantities.length) {
+                log.warn("Invalid delivery: {} product IDs, {} quantities", productIds.length, quantities.length);
+                return false;
+            }
+
+            // One stock update per product, however many lines it appears on
+            Map<Integer, Integer> received = new LinkedHashMap<>();
+            for (int i = 0; i < productIds.length; i++) {
+                if (quantities[i] <= 0) {
+                    log.warn("Invalid quantity {} for receiving product ID {}", quantities[i], productIds[i]);
+                    return false;
+                }
+                received.merge(productIds[i], quantities[i], Integer::sum);
+            }
+
+            int[] distinctIds = received.keySet().stream().mapToInt(Integer::intValue).toArray();
+            int[] totals = received.values().stream().mapToInt(Integer::intValue).toArray();
+            int[] newStock = productStockService.increaseStock(distinctIds, totals);
+
+            // Walk the lines in order, so a product on several lines gets a running previous/new stock
+            Map<Integer, Integer> running = new HashMap<>(distinctIds.length * 2);
+            for (int i = 0; i < distinctIds.length; i++) {
+                running.put(distinctIds[i], newStock[i] - totals[i]);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<InventoryLog> logs = new ArrayList<>(productIds.length);
+            for (int i = 0; i < productIds.length; i++) {
+                int previousStock = running.get(productIds[i]);
+                running.put(productIds[i], previousStock + quantities[i]);
+
+                InventoryLog inventoryLog = new InventoryLog();
+                inventoryLog.setProductId(productIds[i]);
+                inventoryLog.setChangedBy(userId);
+                inventoryLog.setChangeType(InventoryChangeType.PURCHASE);
+                inventoryLog.setQuantity(quantities[i]);
+                inventoryLog.setReason(reason);
+                inventoryLog.setReferenceId(referenceId);
+                inventoryLog.setPreviousStock(previousStock);
+                inventoryLog.setNewStock(previousStock + quantities[i]);
+                inventoryLog.setIsSystemGenerated(false);
+                inventoryLog.setCreatedAt(now);
+                logs.add(inventoryLog);
+            }
+
+            inventoryLogBatchWriter.writeBatch(logs);
+
+            log.info("Delivery received successfully: {} lines, {} products, Reference {}",
+                    productIds.length, distinctIds.length, referenceId);
+            return true;
+
+        } catch (Exception e) {
+            log.error("Error receiving delivery: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    @Override
+    public Integer getCurrentStock(Integer productId) {
+        return productStockService.getCurrentStock(productId);
+    }
+
+    @Override
+    public Integer getCurrentStock(Integer locationId, Integer productId) {
+        return locationStockService.getStock(locationId, productId);
+    }
+
+    @Override
+    public Map<Integer, Integer> getStockByLocation(Integer productId) {
+        return locationStockService.getStockByLocation(productId);
+    }
+
     @Override
     public Boolean validateInventoryLog(InventoryLog inventoryLog) {
         if (inventoryLog == null) {
@@ -340,17 +658,104 @@ public class InventoryLogServiceImpl implements InventoryLogService {
         return true;
     }
 
-    // Helper methods (you should implement these based on your Product entity)
-    private Integer getCurrentStock(Integer productId) {
-        // TODO: Implement this method to get current stock from Product entity
-        // For now, returning a dummy value
-        log.warn("getCurrentStock method needs to be implemented for Product entity integration");
-        return 100; // Dummy value
+    // Logs record the default location as null, so "location_id IS NULL" alone means product stock
+    private Integer logLocationId(Integer locationId) {
+        return locationId == null || locationId.equals(locationStockService.getDefaultLocationId()) ? null : locationId;
+    }
+
+    // Change type -> [count, totalQuantity] over [startDate, endDate]: whole days from daily rollups,
+    // whole hours at either end from hourly rollups, and only the partial-hour edges from raw logs.
+    // Rollups hold the logs up to the aggregator's watermark; the whole-hour part of later logs is read raw.
+    // A null locationId sums every location; otherwise only that location's activity counts
+    private Map<InventoryChangeType, long[]> summarizeActivity(LocalDateTime startDate, LocalDateTime endDate,
+                                                               Integer productId, Integer locationId) {
+        Map<InventoryChangeType, long[]> totals = new EnumMap<>(InventoryChangeType.class);
+        Integer location = locationId == null ? null
+                : Objects.requireNonNullElse(logLocationId(locationId), InventoryActivityRollupEntity.DEFAULT_LOCATION);
+
+        LocalDateTime end = endDate.plusNanos(1_000); // BETWEEN is inclusive; rows are stored to the microsecond
+        LocalDateTime firstHour = ceil(startDate, ChronoUnit.HOURS);
+        LocalDateTime lastHour = end.truncatedTo(ChronoUnit.HOURS);
+
+        if (!firstHour.isBefore(lastHour)) {
+            merge(totals, inventoryLogRepository.getInventoryActivitySummary(
+                    startDate, end, productId, location));
+            return totals;
+        }
+
+        if (startDate.isBefore(firstHour)) {
+            merge(totals, inventoryLogRepository.getInventoryActivitySummary(
+                    startDate, firstHour, productId, location));
+        }
+        if (lastHour.isBefore(end)) {
+            merge(totals, inventoryLogRepository.getInventoryActivitySummary(
+                    lastHour, end, productId, location));
+        }
+
+        merge(totals, inventoryLogRepository.getInventoryActivitySummaryAfterId(
+                inventoryActivityAggregator.getFoldedThroughId(), firstHour, lastHour, productId, location));
+
+        LocalDateTime firstDay = ceil(firstHour, ChronoUnit.DAYS);
+        LocalDateTime lastDay = lastHour.truncatedTo(ChronoUnit.DAYS);
+
+        if (!firstDay.isBefore(lastDay)) {
+            merge(totals, inventoryActivityRollupRepository.summarize(
+                    InventoryActivityRollupEntity.HOUR, firstHour, lastHour, productId, location));
+            return totals;
+        }
+
+        if (firstHour.isBefore(firstDay)) {
+            merge(totals, inventoryActivityRollupRepository.summarize(
+                    InventoryActivityRollupEntity.HOUR, firstHour, firstDay, productId, location));
+        }
+        merge(totals, inventoryActivityRollupRepository.summarize(
+                InventoryActivityRollupEntity.DAY, firstDay, lastDay, productId, location));
+        if (lastDay.isBefore(lastHour)) {
+            merge(totals, inventoryActivityRollupRepository.summarize(
+                    InventoryActivityRollupEntity.HOUR, lastDay, lastHour, productId, location));
+        }
+
+        return totals;
+    }
+
+    private static void merge(Map<InventoryChangeType, long[]> totals, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            long[] sums = totals.computeIfAbsent((InventoryChangeType) row[0], type -> new long[2]);
+            sums[0] += row[1] != null ? ((Number) row[1]).longValue() : 0L;
+            sums[1] += row[2] != null ? ((Number) row[2]).longValue() : 0L;
+        }
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
     }
 
-    private void updateProductStock(Integer productId, Integer newStock) {
-        // TODO: Implement this method to update actual product stock
-        log.warn("updateProductStock method needs to be implemented for Product entity integration");
-        log.info("Would update Product ID {} stock to {}", productId, newStock);
+    // Append archived logs older than the hot rows (both newest first); an ID in both tiers
+    // means the archiver died before deleting it, so the hot copy wins
+    private List<InventoryLogEntity> withArchived(List<InventoryLogEntity> hot, Integer productId,
+                                                  LocalDateTime startDate, LocalDateTime endDate) {
+        if (inventoryLogArchive.isEmpty()
+                || (startDate != null && !startDate.isBefore(inventoryLogArchive.getArchivedBefore()))) {
+            return hot;
+        }
+
+        Set<Integer> hotIds = hot.stream().map(InventoryLogEntity::getId).collect(Collectors.toSet());
+        List<InventoryLogEntity> merged = new ArrayList<>(hot);
+        for (InventoryLogEntity archived : inventoryLogArchive.findLogs(productId, startDate, endDate)) {
+            if (!hotIds.contains(archived.getId())) {
+                merged.add(archived);
+            }
+        }
+
+        merged.sort(Comparator.comparing(InventoryLogEntity::getCreatedAt).reversed());
+        return merged;
+    }
+
+    private int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LOG_LIMIT; // Default to 50 if no limit specified
+        }
+        return Math.min(limit, MAX_LOG_LIMIT);
     }
-}
\ No newline at end of file
+}
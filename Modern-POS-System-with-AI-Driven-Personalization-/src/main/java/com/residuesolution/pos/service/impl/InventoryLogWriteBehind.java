@@ -0,0 +1,170 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.InventoryLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Optional group-commit path for standalone inventory logs: callers enqueue, a single flusher
+// writes up to batch-size logs per transaction. A batch that fails is retried one log per transaction,
+// so a single bad row only fails its own caller.
+@Component
+@Slf4j
+public class InventoryLogWriteBehind {
+
+    private final InventoryLogBatchWriter batchWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final BlockingQueue<PendingLog> queue;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public InventoryLogWriteBehind(InventoryLogBatchWriter batchWriter,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${pos.inventory-log.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${pos.inventory-log.write-behind.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${pos.inventory-log.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${pos.inventory-log.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+                                   @Value("${pos.inventory-log.write-behind.enqueue-timeout-ms:1000}") long enqueueTimeoutMs) {
+        this.batchWriter = batchWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "inventory-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Inventory log write-behind enabled: batch size {}, flush interval {} ms", batchSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Completes with true once the log is committed. Blocks up to enqueue-timeout-ms when the queue is
+    // full (backpressure), then fails with RejectedExecutionException.
+    public CompletableFuture<Boolean> submit(InventoryLog inventoryLog) {
+        LocalDateTime now = LocalDateTime.now();
+        if (inventoryLog.getCreatedAt() == null) {
+            inventoryLog.setCreatedAt(now);
+        }
+        inventoryLog.setUpdatedAt(now);
+        if (inventoryLog.getIsSystemGenerated() == null) {
+            inventoryLog.setIsSystemGenerated(false);
+        }
+
+        PendingLog pending = new PendingLog(inventoryLog, new CompletableFuture<>());
+
+        try {
+            if (!running || !queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                pending.future().completeExceptionally(
+                        new RejectedExecutionException("Inventory log queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future().completeExceptionally(e);
+        }
+
+        return pending.future();
+    }
+
+    private void runFlusher() {
+        List<PendingLog> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                // Size trigger: take whatever else is already waiting, up to the batch size;
+                // time trigger: give stragglers one flush interval to join a short batch
+                queue.drainTo(batch, batchSize - batch.size());
+                if (batch.size() < batchSize) {
+                    PendingLog next = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: drain and flush what's left
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingLog> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    batchWriter.writeBatch(batch.stream().map(PendingLog::inventoryLog).toList()));
+
+            batch.forEach(p -> p.future().complete(true));
+            log.debug("Flushed {} inventory logs", batch.size());
+
+        } catch (Exception e) {
+            log.warn("Error flushing {} inventory logs, retrying them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::flushOne);
+        }
+    }
+
+    private void flushOne(PendingLog pending) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchWriter.writeBatch(List.of(pending.inventoryLog())));
+            pending.future().complete(true);
+
+        } catch (Exception e) {
+            log.error("Error writing inventory log for product ID {}: {}",
+                    pending.inventoryLog().getProductId(), e.getMessage(), e);
+            pending.future().completeExceptionally(e);
+        }
+    }
+
+    private record PendingLog(InventoryLog inventoryLog, CompletableFuture<Boolean> future) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.repository.LocationStockRepository;
+import com.residuesolution.pos.service.LocationStockService;
+import com.residuesolution.pos.service.ProductStockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// Routes the default location to ProductStockService (sharding, cache, alerts) and every other
+// location to its own location_stock row, so stores never contend on a shared per-product row.
+@Service
+@Slf4j
+public class LocationStockServiceImpl implements LocationStockService {
+
+    private final ProductStockService productStockService;
+    private final LocationStockRepository locationStockRepository;
+    private final Integer defaultLocationId;
+
+    public LocationStockServiceImpl(ProductStockService productStockService,
+                                    LocationStockRepository locationStockRepository,
+                                    @Value("${pos.location.default-id:1}") Integer defaultLocationId) {
+        this.productStockService = productStockService;
+        this.locationStockRepository = locationStockRepository;
+        this.defaultLocationId = defaultLocationId;
+    }
+
+    @Override
+    public Integer getDefaultLocationId() {
+        return defaultLocationId;
+    }
+
+    @Override
+    public Integer getStock(Integer locationId, Integer productId) {
+        if (isDefault(locationId)) {
+            return productStockService.getCurrentStock(productId);
+        }
+
+        Integer quantity = locationStockRepository.findQuantity(locationId, productId);
+        return quantity != null ? quantity : 0;
+    }
+
+    @Override
+    public Map<Integer, Integer> getStockByLocation(Integer productId) {
+        Map<Integer, Integer> stock = new TreeMap<>();
+        stock.put(defaultLocationId, productStockService.getCurrentStock(productId));
+        locationStockRepository.findByProductId(productId)
+                .forEach(row -> stock.put(row.getLocationId(), row.getQuantity()));
+        return stock;
+    }
+
+    @Override
+    @Transactional
+    public Integer increaseStock(Integer locationId, Integer productId, Integer quantity) {
+        if (isDefault(locationId)) {
+            return productStockService.increaseStock(productId, quantity);
+        }
+
+        locationStockRepository.increment(locationId, productId, quantity);
+        return locationStockRepository.findQuantity(locationId, productId);
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED) // Failed conditional updates must not keep row locks
+    public Integer decreaseStock(Integer locationId, Integer productId, Integer quantity) {
+        if (isDefault(locationId)) {
+            return productStockService.decreaseStock(productId, quantity);
+        }
+
+        if (locationStockRepository.decrementIfAvailable(locationId, productId, quantity) == 0) {
+            log.warn("Insufficient stock for product ID {} at location {}: Requested {}", productId, locationId, quantity);
+            return null;
+        }
+
+        return locationStockRepository.findQuantity(locationId, productId);
+    }
+
+    private boolean isDefault(Integer locationId) {
+        return locationId == null || locationId.equals(defaultLocationId);
+    }
+}
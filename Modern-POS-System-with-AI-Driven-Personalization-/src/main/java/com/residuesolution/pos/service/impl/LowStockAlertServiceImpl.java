@@ -0,0 +1,242 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.LowStockAlert;
+import com.residuesolution.pos.entity.ProductStockEntity;
+import com.residuesolution.pos.repository.ProductStockRepository;
+import com.residuesolution.pos.service.LowStockAlertService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LowStockAlertServiceImpl implements LowStockAlertService {
+
+    private static final long SSE_TIMEOUT_MS = 30 * 60 * 1000L; // Clients reconnect after 30 minutes
+
+    private final ProductStockRepository productStockRepository;
+
+    // Product ID -> {reorderPoint, clearLevel}
+    private final Map<Integer, int[]> thresholds = new ConcurrentHashMap<>();
+    private final Map<Integer, LowStockAlert> activeAlerts = new ConcurrentHashMap<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    // Pushes happen here so slow clients never add latency to the stock mutation path
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-alert-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Every evaluation runs here, one at a time, against a stock level read when it starts. afterCommit
+    // callbacks of concurrent sales run in any order, so the level a sale saw may already be stale
+    private final ExecutorService evaluator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-alert-evaluator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Products with an evaluation queued; further changes before it runs are covered by its read
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void loadThresholds() {
+        refreshThresholds();
+        evaluateAll(false);
+        log.info("Low-stock alerting loaded: {} products tracked, {} alerts active", thresholds.size(), activeAlerts.size());
+    }
+
+    // Picks up reorder points set or cleared on other nodes, then re-checks every tracked product, which
+    // also catches stock changes made there
+    @Scheduled(fixedDelayString = "${pos.low-stock.reload-ms:60000}")
+    public void reloadThresholds() {
+        try {
+            refreshThresholds();
+            evaluator.execute(() -> evaluateAll(true));
+        } catch (Exception e) {
+            log.error("Error reloading reorder points: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evaluator.shutdown();
+        dispatcher.shutdown();
+        subscribers.forEach(SseEmitter::complete);
+    }
+
+    @Override
+    public void onStockChanged(Integer productId) {
+        if (thresholds.containsKey(productId) && pending.add(productId)) {
+            evaluator.execute(() -> evaluateCurrent(productId));
+        }
+    }
+
+    @Override
+    @Transactional
+    public Boolean setReorderPoint(Integer productId, Integer reorderPoint, Integer clearLevel) {
+        if (reorderPoint != null && (reorderPoint < 0 || (clearLevel != null && clearLevel <= reorderPoint))) {
+            log.warn("Invalid reorder point {} / clear level {} for product ID {}", reorderPoint, clearLevel, productId);
+            return false;
+        }
+
+        productStockRepository.insertIfAbsent(productId);
+        productStockRepository.updateReorderPoint(productId, reorderPoint, clearLevel);
+
+        if (reorderPoint == null) {
+            thresholds.remove(productId);
+            LowStockAlert cleared = activeAlerts.remove(productId);
+            if (cleared != null) {
+                publish(copy(cleared, "CLEARED", cleared.getCurrentStock()));
+            }
+            return true;
+        }
+
+        thresholds.put(productId, new int[]{reorderPoint, clearLevel(reorderPoint, clearLevel)});
+        onStockChanged(productId);
+        return true;
+    }
+
+    @Override
+    public List<LowStockAlert> getActiveAlerts() {
+        return new ArrayList<>(activeAlerts.values());
+    }
+
+    @Override
+    public long countOutOfStock() {
+        return activeAlerts.values().stream().filter(LowStockAlert::getOutOfStock).count();
+    }
+
+    @Override
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+
+        List<LowStockAlert> current = getActiveAlerts();
+        dispatcher.execute(() -> current.forEach(alert -> send(emitter, alert)));
+        return emitter;
+    }
+
+    private void refreshThresholds() {
+        Map<Integer, int[]> loaded = new HashMap<>();
+        for (ProductStockEntity stock : productStockRepository.findByReorderPointIsNotNull()) {
+            loaded.put(stock.getProductId(),
+                    new int[]{stock.getReorderPoint(), clearLevel(stock.getReorderPoint(), stock.getReorderClearLevel())});
+        }
+        thresholds.putAll(loaded);
+        thresholds.keySet().retainAll(loaded.keySet());
+    }
+
+    // Clears alerts of products no longer tracked and re-checks the rest in one batch read
+    private void evaluateAll(boolean notify) {
+        for (Integer productId : activeAlerts.keySet()) {
+            if (!thresholds.containsKey(productId)) {
+                LowStockAlert cleared = activeAlerts.remove(productId);
+                if (cleared != null && notify) {
+                    publish(copy(cleared, "CLEARED", cleared.getCurrentStock()));
+                }
+            }
+        }
+
+        if (thresholds.isEmpty()) {
+            return;
+        }
+        for (Object[] row : productStockRepository.findTotalQuantitiesByProductIdIn(List.copyOf(thresholds.keySet()))) {
+            evaluate((Integer) row[0], ((Number) row[1]).intValue(), notify);
+        }
+    }
+
+    private void evaluateCurrent(Integer productId) {
+        pending.remove(productId); // Before the read, so a commit after it queues another evaluation
+        try {
+            Long stock = productStockRepository.findTotalQuantityByProductId(productId);
+            evaluate(productId, stock != null ? stock.intValue() : 0, true);
+        } catch (Exception e) {
+            log.error("Error evaluating low-stock alert for product ID {}: {}", productId, e.getMessage(), e);
+        }
+    }
+
+    // Hysteresis: raise at or below the reorder point, clear only at or above the clear level
+    private void evaluate(Integer productId, int stock, boolean notify) {
+        int[] threshold = thresholds.get(productId);
+        if (threshold == null) {
+            return;
+        }
+
+        LowStockAlert[] transition = new LowStockAlert[1];
+        LocalDateTime now = LocalDateTime.now();
+
+        activeAlerts.compute(productId, (id, active) -> {
+            if (active == null) {
+                if (stock > threshold[0]) {
+                    return null;
+                }
+                LowStockAlert raised = new LowStockAlert(productId, "RAISED", stock, threshold[0], threshold[1],
+                        stock == 0, now, now);
+                transition[0] = raised;
+                return raised;
+            }
+
+            if (stock >= threshold[1]) {
+                transition[0] = copy(active, "CLEARED", stock);
+                return null;
+            }
+
+            LowStockAlert updated = copy(active, "RAISED", stock);
+            if (stock == 0 && !active.getOutOfStock()) {
+                transition[0] = updated; // Escalation from low to out of stock
+            }
+            return updated;
+        });
+
+        if (notify && transition[0] != null) {
+            publish(transition[0]);
+        }
+    }
+
+    private void publish(LowStockAlert alert) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        dispatcher.execute(() -> subscribers.forEach(emitter -> send(emitter, alert)));
+    }
+
+    private void send(SseEmitter emitter, LowStockAlert alert) {
+        try {
+            emitter.send(SseEmitter.event().name("low-stock").data(alert));
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static LowStockAlert copy(LowStockAlert alert, String state, int stock) {
+        return new LowStockAlert(alert.getProductId(), state, stock, alert.getReorderPoint(),
+                alert.getReorderClearLevel(), stock == 0, alert.getRaisedAt(), LocalDateTime.now());
+    }
+
+    private static int clearLevel(int reorderPoint, Integer clearLevel) {
+        return clearLevel != null ? clearLevel : reorderPoint + Math.max(1, reorderPoint / 10);
+    }
+}
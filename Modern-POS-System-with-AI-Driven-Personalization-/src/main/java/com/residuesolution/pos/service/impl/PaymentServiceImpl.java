@@ -4,28 +4,61 @@ import com.residuesolution.pos.dto.Payment;
 import com.residuesolution.pos.entity.PaymentEntity;
 import com.residuesolution.pos.enums.PaymentMethod;
 import com.residuesolution.pos.enums.PaymentStatus;
+import com.residuesolution.pos.factstore.PaymentFactStore;
 import com.residuesolution.pos.repository.PaymentRepository;
+import com.residuesolution.pos.repository.SalesHourlyRepository;
 import com.residuesolution.pos.service.PaymentService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
+    private final SalesHourlyRepository salesHourlyRepository;
+    private final TransactionTemplate rebuildTransactionTemplate;
+    private final PaymentFactStore paymentFactStore;
     private final ModelMapper mapper;
+    private final int salesRollupShards;
+    private final ReentrantLock rollupRebuildLock = new ReentrantLock();
+
+    public PaymentServiceImpl(PaymentRepository paymentRepository,
+                              SalesHourlyRepository salesHourlyRepository,
+                              PlatformTransactionManager transactionManager,
+                              PaymentFactStore paymentFactStore,
+                              ModelMapper mapper,
+                              @Value("${pos.sales-hourly.shards:16}") int salesRollupShards) {
+        this.paymentRepository = paymentRepository;
+        this.salesHourlyRepository = salesHourlyRepository;
+        // READ COMMITTED: the rebuild's INSERT ... SELECT then reads payments without share-locking them,
+        // and its DELETE takes no gap locks, so it can't deadlock with payments committing in the same day
+        this.rebuildTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.paymentFactStore = paymentFactStore;
+        this.mapper = mapper;
+        this.salesRollupShards = Math.max(1, salesRollupShards);
+    }
 
     @Override
     public List<Payment> getPaymentsByGateway(String gateway) {
@@ -118,10 +151,22 @@ public class PaymentServiceImpl implements PaymentService {
 
             if (paymentEntity.isPresent()) {
                 PaymentEntity payment = paymentEntity.get();
+                PaymentStatus previousStatus = payment.getPaymentStatus();
+                boolean wasCompleted = hasCompleted(previousStatus);
                 payment.setPaymentStatus(status);
                 payment.setUpdatedAt(LocalDateTime.now());
 
                 paymentRepository.save(payment);
+                // Only moves into or out of the completed family, or into or out of COMPLETED itself,
+                // change the sales figures
+                int sign = wasCompleted == hasCompleted(status) ? 0 : wasCompleted ? -1 : 1;
+                int completedDelta = (status == PaymentStatus.COMPLETED ? 1 : 0)
+                        - (previousStatus == PaymentStatus.COMPLETED ? 1 : 0);
+                if (sign != 0 || completedDelta != 0) {
+                    updateSalesRollup(payment, sign, payment.getAmount().multiply(BigDecimal.valueOf(sign)),
+                            refunded(payment).multiply(BigDecimal.valueOf(sign)), completedDelta);
+                }
+                recordFact(payment);
 
                 log.info("Payment status updated to {} for payment ID: {}", status, paymentId);
                 return true;
@@ -219,6 +264,7 @@ public class PaymentServiceImpl implements PaymentService {
                     payment.setNotes(payment.getNotes() + " | Payment cancelled");
 
                     paymentRepository.save(payment);
+                    recordFact(payment);
 
                     log.info("Payment cancelled successfully for ID: {}", paymentId);
                     return true;
@@ -276,6 +322,8 @@ public class PaymentServiceImpl implements PaymentService {
                 }
 
                 paymentRepository.save(payment);
+                updateSalesRollup(payment, 0, BigDecimal.ZERO, refundAmount, -1); // No longer COMPLETED
+                recordFact(payment);
 
                 log.info("Refund processed successfully for payment ID: {} - Amount: {}",
                         paymentId, refundAmount);
@@ -355,6 +403,58 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    // First start with an empty rollup (fresh install or upgrade), or with rows from before the completed_*
+    // columns: backfill in the background
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSalesRollups() {
+        if ((salesHourlyRepository.count() > 0 && !salesHourlyRepository.existsByCompletedAmountIsNull())
+                || paymentRepository.count() == 0) {
+            return;
+        }
+        Thread backfill = new Thread(this::rebuildSalesRollups, "sales-hourly-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @Override
+    public Integer rebuildSalesRollups() {
+        if (!rollupRebuildLock.tryLock()) {
+            log.info("Sales rollup rebuild already running, skipping");
+            return 0;
+        }
+
+        try {
+            LocalDateTime earliest = paymentRepository.findEarliestPaymentDateTime();
+            if (earliest == null) {
+                return 0;
+            }
+
+            // One day per transaction keeps lock footprints small. A payment whose increment precedes the DELETE
+            // makes the DELETE wait for its commit, so the INSERT ... SELECT reads it; one that increments after
+            // the DELETE isn't committed yet, so the SELECT misses it and only its own increment counts
+            LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            int written = 0;
+            for (LocalDateTime day = earliest.truncatedTo(ChronoUnit.DAYS); day.isBefore(end); day = day.plusDays(1)) {
+                LocalDateTime from = day;
+                LocalDateTime to = day.plusDays(1);
+                Integer rows = rebuildTransactionTemplate.execute(status -> {
+                    salesHourlyRepository.deleteBetween(from, to);
+                    return salesHourlyRepository.rebuildBetween(from, to);
+                });
+                written += rows != null ? rows : 0;
+            }
+
+            log.info("Sales hourly rollup rebuilt from {}: {} rows", earliest, written);
+            return written;
+
+        } catch (Exception e) {
+            log.error("Error rebuilding sales hourly rollup: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            rollupRebuildLock.unlock();
+        }
+    }
+
     @Override
     public List<Payment> getRefundablePayments() {
         List<PaymentEntity> paymentEntities = paymentRepository.findRefundablePayments();
@@ -447,6 +547,10 @@ public class PaymentServiceImpl implements PaymentService {
 
             payment.setUpdatedAt(LocalDateTime.now());
             paymentRepository.save(payment);
+            if (success) {
+                updateSalesRollup(payment, 1, payment.getAmount(), refunded(payment), 1);
+            }
+            recordFact(payment);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -455,4 +559,40 @@ public class PaymentServiceImpl implements PaymentService {
             paymentRepository.save(payment);
         }
     }
-}
\ No newline at end of file
+
+    // Analytics only see committed state: a rolled-back payment never reaches the fact store
+    private void recordFact(PaymentEntity payment) {
+        Runnable record = () -> paymentFactStore.record(payment);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record.run();
+            }
+        });
+    }
+
+    // Runs in the caller's transaction, so the rollup never commits without the payment change (or vice versa).
+    // A random shard row per call: payments in the same hour lock different rows instead of forming a convoy
+    private void updateSalesRollup(PaymentEntity payment, int countDelta, BigDecimal grossDelta, BigDecimal refundDelta,
+                                   int completedDelta) {
+        salesHourlyRepository.increment(payment.getPaymentDateTime().truncatedTo(ChronoUnit.HOURS),
+                payment.getPaymentMethod().name(), payment.getGateway() != null ? payment.getGateway() : "UNKNOWN",
+                ThreadLocalRandom.current().nextInt(salesRollupShards), countDelta, grossDelta, refundDelta,
+                completedDelta, payment.getAmount().multiply(BigDecimal.valueOf(completedDelta)));
+    }
+
+    private static BigDecimal refunded(PaymentEntity payment) {
+        return payment.getRefundedAmount() != null ? payment.getRefundedAmount() : BigDecimal.ZERO;
+    }
+
+    private static boolean hasCompleted(PaymentStatus status) {
+        return status == PaymentStatus.COMPLETED || status == PaymentStatus.REFUNDED
+                || status == PaymentStatus.PARTIALLY_REFUNDED;
+    }
+}
@@ -0,0 +1,396 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.cache.StockCache;
+import com.residuesolution.pos.entity.ProductStockEntity;
+import com.residuesolution.pos.entity.ProductStockShardEntity;
+import com.residuesolution.pos.repository.ProductStockRepository;
+import com.residuesolution.pos.repository.ProductStockShardRepository;
+import com.residuesolution.pos.repository.StockReservationRepository;
+import com.residuesolution.pos.service.LowStockAlertService;
+import com.residuesolution.pos.service.ProductStockService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductStockServiceImpl implements ProductStockService {
+
+    private static final int MAX_SHARDS = 64;
+
+    private final ProductStockRepository productStockRepository;
+    private final ProductStockShardRepository productStockShardRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final StockCache stockCache;
+    private final LowStockAlertService lowStockAlertService;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Hot products known to this node; refreshed from product_stock.shard_count on a miss
+    private final Map<Integer, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void loadShardedProducts() {
+        productStockRepository.findByShardCountGreaterThan(1)
+                .forEach(stock -> shardCounts.put(stock.getProductId(), stock.getShardCount()));
+        log.info("Loaded {} sharded stock counters", shardCounts.size());
+    }
+
+    @Override
+    public Integer getCurrentStock(Integer productId) {
+        int cached = stockCache.get(productId);
+        if (cached != StockCache.MISSING) {
+            return cached;
+        }
+
+        long version = stockCache.version(productId);
+        int stock = loadStock(productId);
+        stockCache.populate(productId, stock, version);
+        return stock;
+    }
+
+    @Override
+    public int[] getStock(int[] productIds) {
+        int[] stock = new int[productIds.length];
+        Map<Integer, Long> misses = new HashMap<>();
+
+        for (int i = 0; i < productIds.length; i++) {
+            stock[i] = stockCache.get(productIds[i]);
+            if (stock[i] == StockCache.MISSING) {
+                misses.putIfAbsent(productIds[i], stockCache.version(productIds[i]));
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return stock;
+        }
+
+        Map<Integer, Integer> loaded = new HashMap<>(misses.size() * 2);
+        for (Object[] row : productStockRepository.findTotalQuantitiesByProductIdIn(misses.keySet())) {
+            loaded.put((Integer) row[0], ((Number) row[1]).intValue());
+        }
+
+        misses.forEach((productId, version) ->
+                stockCache.populate(productId, loaded.getOrDefault(productId, 0), version));
+
+        for (int i = 0; i < productIds.length; i++) {
+            if (stock[i] == StockCache.MISSING) {
+                stock[i] = loaded.getOrDefault(productIds[i], 0);
+            }
+        }
+
+        return stock;
+    }
+
+    @Override
+    @Transactional
+    public Integer increaseStock(Integer productId, Integer quantity) {
+        Integer shardCount = shardCounts.get(productId);
+
+        if (shardCount != null) {
+            int shardNo = ThreadLocalRandom.current().nextInt(shardCount);
+            if (productStockShardRepository.incrementShard(productId, shardNo, quantity) == 1) {
+                return stockChanged(productId, loadStock(productId));
+            }
+        }
+
+        productStockRepository.increment(productId, quantity);
+        // The row is now locked by this transaction, so the read reflects our own write
+        return stockChanged(productId, loadStock(productId));
+    }
+
+    @Override
+    @Transactional
+    public int[] increaseStock(int[] productIds, int[] quantities) {
+        int[] newStock = new int[productIds.length];
+        if (productIds.length == 0) {
+            return newStock;
+        }
+
+        // Upsert in product ID order so two overlapping deliveries lock rows in the same order;
+        // sharded products take the increment on their base row, which counts toward the total
+        Integer[] order = new Integer[productIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> productIds[i]));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> increments = new ArrayList<>(productIds.length);
+        for (int i : order) {
+            increments.add(new Object[]{productIds[i], quantities[i], now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product_stock (product_id, quantity, shard_count, updated_at) " +
+                "VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), " +
+                "updated_at = VALUES(updated_at)", increments);
+
+        // The rows are locked by this transaction now, so the totals reflect our own writes
+        Map<Integer, Integer> totals = new HashMap<>(productIds.length * 2);
+        for (Object[] row : productStockRepository.findTotalQuantitiesByProductIdIn(
+                Arrays.stream(productIds).boxed().toList())) {
+            totals.put((Integer) row[0], ((Number) row[1]).intValue());
+        }
+
+        for (int i = 0; i < productIds.length; i++) {
+            newStock[i] = stockChanged(productIds[i], totals.getOrDefault(productIds[i], quantities[i]));
+        }
+        return newStock;
+    }
+
+    // READ COMMITTED: a conditional UPDATE whose WHERE clause rejects a shard releases that row lock at once,
+    // instead of holding it (and blocking every other lane on that shard) until this sale commits. The level
+    // only applies when this call starts the transaction; joining one keeps the caller's isolation, so every
+    // transactional caller (removeStock, removeStockAtLocation, transferStock, reserve, the location service)
+    // declares READ COMMITTED itself
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Integer decreaseStock(Integer productId, Integer quantity) {
+        Integer shardCount = shardCounts.get(productId);
+
+        if (shardCount == null) {
+            if (productStockRepository.decrementIfAvailable(productId, quantity) == 1) {
+                return stockChanged(productId, loadStock(productId));
+            }
+
+            // Another node may have sharded this product since we last looked
+            shardCount = refreshShardCount(productId);
+            if (shardCount == null) {
+                log.warn("Insufficient stock for product ID {}: Requested {}", productId, quantity);
+                return null;
+            }
+        }
+
+        return decreaseShardedStock(productId, quantity, shardCount);
+    }
+
+    @Override
+    @Transactional
+    public StockCount setStock(Integer productId, Integer counted) {
+        productStockRepository.insertIfAbsent(productId);
+        ProductStockEntity stock = productStockRepository.findByProductIdForUpdate(productId).orElseThrow();
+        List<ProductStockShardEntity> shards = stock.getShardCount() > 1
+                ? productStockShardRepository.findByProductIdForUpdate(productId)
+                : List.of();
+
+        int held = heldQuantities(List.of(productId)).getOrDefault(productId, 0);
+        int quantity = Math.max(counted - held, 0);
+        int previousStock = stock.getQuantity() + shards.stream().mapToInt(ProductStockShardEntity::getQuantity).sum();
+        stockChanged(productId, quantity);
+
+        if (shards.isEmpty()) {
+            stock.setQuantity(quantity);
+        } else {
+            stock.setQuantity(0);
+            distribute(shards, quantity);
+        }
+        return new StockCount(previousStock, held, quantity);
+    }
+
+    @Override
+    @Transactional
+    public StockCount[] setStock(int[] productIds, int[] counted) {
+        StockCount[] counts = new StockCount[productIds.length];
+        if (productIds.length == 0) {
+            return counts;
+        }
+
+        // One locking read for the whole batch, in primary key order like every other multi-row lock
+        String placeholders = String.join(",", Collections.nCopies(productIds.length, "?"));
+        Map<Integer, int[]> locked = new HashMap<>(productIds.length * 2);
+        jdbcTemplate.query("SELECT product_id, quantity, shard_count FROM product_stock WHERE product_id IN (" +
+                        placeholders + ") ORDER BY product_id FOR UPDATE",
+                rs -> {
+                    locked.put(rs.getInt(1), new int[]{rs.getInt(2), rs.getInt(3)});
+                },
+                Arrays.stream(productIds).boxed().toArray());
+
+        Map<Integer, Integer> held = heldQuantities(Arrays.stream(productIds).boxed().toList());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> upserts = new ArrayList<>();
+
+        for (int i = 0; i < productIds.length; i++) {
+            int[] row = locked.get(productIds[i]);
+
+            if (row != null && row[1] > 1) {
+                counts[i] = setStock(productIds[i], counted[i]); // Sharded: redistribute across its shards
+                continue;
+            }
+
+            int productHeld = held.getOrDefault(productIds[i], 0);
+            int quantity = Math.max(counted[i] - productHeld, 0);
+            int previousStock = row != null ? row[0] : 0;
+            if (row == null || previousStock != quantity) {
+                upserts.add(new Object[]{productIds[i], quantity, now});
+                stockChanged(productIds[i], quantity);
+            }
+            counts[i] = new StockCount(previousStock, productHeld, quantity);
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO product_stock (product_id, quantity, shard_count, updated_at) " +
+                "VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), updated_at = VALUES(updated_at)",
+                upserts);
+        return counts;
+    }
+
+    @Override
+    @Transactional
+    public Boolean configureShards(Integer productId, Integer shardCount) {
+        if (shardCount == null || shardCount < 0 || shardCount > MAX_SHARDS) {
+            log.warn("Invalid shard count {} for product ID {}", shardCount, productId);
+            return false;
+        }
+
+        productStockRepository.insertIfAbsent(productId);
+        ProductStockEntity stock = productStockRepository.findByProductIdForUpdate(productId).orElseThrow();
+        List<ProductStockShardEntity> existing = productStockShardRepository.findByProductIdForUpdate(productId);
+
+        int total = stock.getQuantity() + existing.stream().mapToInt(ProductStockShardEntity::getQuantity).sum();
+
+        productStockShardRepository.deleteAllInBatch(existing);
+        stockChanged(productId, total);
+
+        if (shardCount <= 1) {
+            stock.setQuantity(total);
+            stock.setShardCount(0);
+            shardCounts.remove(productId);
+            log.info("Product ID {} switched back to a single stock row ({} units)", productId, total);
+            return true;
+        }
+
+        List<ProductStockShardEntity> shards = new ArrayList<>(shardCount);
+        for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+            shards.add(new ProductStockShardEntity(productId, shardNo, 0, null));
+        }
+        distribute(shards, total);
+        productStockShardRepository.saveAll(shards);
+
+        stock.setQuantity(0);
+        stock.setShardCount(shardCount);
+        shardCounts.put(productId, shardCount);
+        log.info("Product ID {} split into {} stock shards ({} units)", productId, shardCount, total);
+        return true;
+    }
+
+    @Override
+    public Map<Integer, Integer> getShardedProducts() {
+        return Map.copyOf(shardCounts);
+    }
+
+    // Random shard first, then the others, then the base row; drain under lock only when no single row suffices
+    private Integer decreaseShardedStock(Integer productId, Integer quantity, int shardCount) {
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+
+        for (int i = 0; i < shardCount; i++) {
+            int shardNo = (start + i) % shardCount;
+            if (productStockShardRepository.decrementShardIfAvailable(productId, shardNo, quantity) == 1) {
+                return stockChanged(productId, loadStock(productId));
+            }
+        }
+
+        if (productStockRepository.decrementIfAvailable(productId, quantity) == 1) {
+            return stockChanged(productId, loadStock(productId));
+        }
+
+        ProductStockEntity stock = productStockRepository.findByProductIdForUpdate(productId).orElse(null);
+        List<ProductStockShardEntity> shards = productStockShardRepository.findByProductIdForUpdate(productId);
+
+        int available = (stock != null ? stock.getQuantity() : 0)
+                + shards.stream().mapToInt(ProductStockShardEntity::getQuantity).sum();
+
+        if (available < quantity) {
+            log.warn("Insufficient stock for product ID {}: Available {}, Requested {}",
+                    productId, available, quantity);
+            return null;
+        }
+
+        int remaining = quantity;
+        for (ProductStockShardEntity shard : shards) {
+            int taken = Math.min(shard.getQuantity(), remaining);
+            shard.setQuantity(shard.getQuantity() - taken);
+            remaining -= taken;
+        }
+        if (remaining > 0) {
+            stock.setQuantity(stock.getQuantity() - remaining);
+        }
+
+        return stockChanged(productId, available - quantity);
+    }
+
+    // Units held by live reservations. Read after the stock rows are locked, and without locking the holds: a
+    // release claims its hold before it waits for the stock row, so a locking read here could deadlock with it.
+    // A release still in flight counts as held, and its increment lands after this count commits
+    private Map<Integer, Integer> heldQuantities(List<Integer> productIds) {
+        Map<Integer, Integer> held = new HashMap<>(productIds.size() * 2);
+        for (Object[] row : stockReservationRepository.sumQuantityByProductIdIn(productIds)) {
+            held.put((Integer) row[0], ((Number) row[1]).intValue());
+        }
+        return held;
+    }
+
+    // Always hits the database; used inside mutations where the cache may be behind
+    private Integer loadStock(Integer productId) {
+        Long total = productStockRepository.findTotalQuantityByProductId(productId);
+        return total != null ? total.intValue() : 0;
+    }
+
+    // Once the transaction ends, drop the cached value and (on commit) have the alert engine re-check the product
+    private Integer stockChanged(Integer productId, Integer newStock) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stockCache.invalidate(productId);
+            lowStockAlertService.onStockChanged(productId);
+            return newStock;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lowStockAlertService.onStockChanged(productId);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                stockCache.invalidate(productId);
+            }
+        });
+        return newStock;
+    }
+
+    private Integer refreshShardCount(Integer productId) {
+        Integer shardCount = productStockRepository.findShardCountByProductId(productId);
+
+        if (shardCount == null || shardCount <= 1) {
+            shardCounts.remove(productId);
+            return null;
+        }
+
+        shardCounts.put(productId, shardCount);
+        return shardCount;
+    }
+
+    private void distribute(List<ProductStockShardEntity> shards, int total) {
+        int share = total / shards.size();
+        int remainder = total % shards.size();
+
+        for (ProductStockShardEntity shard : shards) {
+            shard.setQuantity(share + (shard.getShardNo() < remainder ? 1 : 0));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.ReorderSuggestion;
+import com.residuesolution.pos.entity.ReorderSuggestionEntity;
+import com.residuesolution.pos.forecast.DemandForecaster;
+import com.residuesolution.pos.repository.ReorderSuggestionRepository;
+import com.residuesolution.pos.service.ProductStockService;
+import com.residuesolution.pos.service.ReorderSuggestionService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Daily demand comes from the DAY rollups (SALE + REMOVE), so a full refresh reads one row per
+// product-day instead of every log and still covers logs that were archived. Products are processed
+// in chunks of product IDs: load a chunk's series, forecast it on a fork/join pool, batch-upsert it.
+@Service
+@Slf4j
+public class ReorderSuggestionServiceImpl implements ReorderSuggestionService {
+
+    private static final int FORK_THRESHOLD = 64;
+
+    private static final String DEMAND_FILTER = "FROM inventory_activity_rollups " +
+            "WHERE granularity = 'DAY' AND change_type IN ('SALE', 'REMOVE') AND bucket_start >= ? AND bucket_start < ? ";
+
+    private static final String UPSERT_SQL = "INSERT INTO reorder_suggestions " +
+            "(product_id, daily_demand, lead_time_demand, forecast_error, safety_stock, reorder_point, current_stock, " +
+            "suggested_order_quantity, model, history_days, computed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE daily_demand = VALUES(daily_demand), lead_time_demand = VALUES(lead_time_demand), " +
+            "forecast_error = VALUES(forecast_error), safety_stock = VALUES(safety_stock), " +
+            "reorder_point = VALUES(reorder_point), current_stock = VALUES(current_stock), " +
+            "suggested_order_quantity = VALUES(suggested_order_quantity), model = VALUES(model), " +
+            "history_days = VALUES(history_days), computed_at = VALUES(computed_at)";
+
+    private final ReorderSuggestionRepository reorderSuggestionRepository;
+    private final ProductStockService productStockService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ModelMapper mapper;
+    private final int historyDays;
+    private final int leadTimeDays;
+    private final int reviewDays;
+    private final double serviceLevelZ;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public ReorderSuggestionServiceImpl(ReorderSuggestionRepository reorderSuggestionRepository,
+                                        ProductStockService productStockService,
+                                        JdbcTemplate jdbcTemplate,
+                                        ModelMapper mapper,
+                                        @Value("${pos.forecast.history-days:365}") int historyDays,
+                                        @Value("${pos.forecast.lead-time-days:7}") int leadTimeDays,
+                                        @Value("${pos.forecast.review-days:14}") int reviewDays,
+                                        @Value("${pos.forecast.service-level-z:1.65}") double serviceLevelZ,
+                                        @Value("${pos.forecast.chunk-size:2000}") int chunkSize,
+                                        @Value("${pos.forecast.parallelism:0}") int parallelism) {
+        this.reorderSuggestionRepository = reorderSuggestionRepository;
+        this.productStockService = productStockService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.mapper = mapper;
+        this.historyDays = historyDays;
+        this.leadTimeDays = leadTimeDays;
+        this.reviewDays = reviewDays;
+        this.serviceLevelZ = serviceLevelZ;
+        this.chunkSize = chunkSize;
+        // Own pool, so a refresh never starves the common pool used by parallel streams elsewhere
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(cron = "${pos.forecast.cron:0 0 2 * * *}")
+    public void runScheduledRefresh() {
+        refreshSuggestions();
+    }
+
+    @Override
+    public Integer refreshSuggestions() {
+        if (!refreshLock.tryLock()) {
+            log.info("Reorder suggestion refresh already running, skipping");
+            return 0;
+        }
+
+        try {
+            long started = System.nanoTime();
+            LocalDateTime computedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            LocalDate today = computedAt.toLocalDate();
+            LocalDateTime from = today.minusDays(historyDays).atStartOfDay();
+            LocalDateTime to = today.atStartOfDay(); // Today is still partial
+
+            List<Integer> productIds = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT product_id " + DEMAND_FILTER + "ORDER BY product_id",
+                    Integer.class, Timestamp.valueOf(from), Timestamp.valueOf(to));
+
+            int written = 0;
+            for (int start = 0; start < productIds.size(); start += chunkSize) {
+                List<Integer> chunk = productIds.subList(start, Math.min(start + chunkSize, productIds.size()));
+                written += refreshChunk(chunk, from, to, computedAt);
+            }
+
+            // Products that dropped out of the history window no longer get a suggestion
+            jdbcTemplate.update("DELETE FROM reorder_suggestions WHERE computed_at < ?", Timestamp.valueOf(computedAt));
+
+            log.info("Reorder suggestions refreshed for {} products in {} ms",
+                    written, (System.nanoTime() - started) / 1_000_000);
+            return written;
+
+        } catch (Exception e) {
+            log.error("Error refreshing reorder suggestions: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Override
+    public List<ReorderSuggestion> getSuggestions(Boolean reorderOnly) {
+        List<ReorderSuggestionEntity> entities = Boolean.FALSE.equals(reorderOnly) ?
+                reorderSuggestionRepository.findAll() :
+                reorderSuggestionRepository.findBySuggestedOrderQuantityGreaterThanOrderBySuggestedOrderQuantityDesc(0);
+
+        return entities.stream()
+                .map(entity -> mapper.map(entity, ReorderSuggestion.class))
+                .toList();
+    }
+
+    @Override
+    public ReorderSuggestion getSuggestion(Integer productId) {
+        return reorderSuggestionRepository.findById(productId)
+                .map(entity -> mapper.map(entity, ReorderSuggestion.class))
+                .orElse(null);
+    }
+
+    private int refreshChunk(List<Integer> chunk, LocalDateTime from, LocalDateTime to, LocalDateTime computedAt) {
+        int n = chunk.size();
+        int[] productIds = new int[n];
+        Map<Integer, Integer> slot = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            productIds[i] = chunk.get(i);
+            slot.put(productIds[i], i);
+        }
+
+        // Rows come ordered by product then day; each series starts at the product's first demand day
+        LocalDate lastDay = to.toLocalDate();
+        float[][] series = new float[n][];
+        jdbcTemplate.query("SELECT product_id, bucket_start, GREATEST(-SUM(total_quantity), 0) " + DEMAND_FILTER +
+                        "AND product_id BETWEEN ? AND ? GROUP BY product_id, bucket_start ORDER BY product_id, bucket_start",
+                rs -> {
+                    int i = slot.get(rs.getInt(1));
+                    LocalDate day = rs.getTimestamp(2).toLocalDateTime().toLocalDate();
+                    if (series[i] == null) {
+                        series[i] = new float[(int) ChronoUnit.DAYS.between(day, lastDay)];
+                    }
+                    float[] s = series[i];
+                    s[s.length - (int) ChronoUnit.DAYS.between(day, lastDay)] = rs.getFloat(3);
+                },
+                Timestamp.valueOf(from), Timestamp.valueOf(to), productIds[0], productIds[n - 1]);
+
+        int[] stock = productStockService.getStock(productIds);
+        ReorderSuggestionEntity[] results = new ReorderSuggestionEntity[n];
+        pool.invoke(new ForecastTask(productIds, series, stock, results, computedAt, 0, n));
+
+        List<Object[]> rows = new ArrayList<>(n);
+        for (ReorderSuggestionEntity r : results) {
+            rows.add(new Object[]{
+                    r.getProductId(), r.getDailyDemand(), r.getLeadTimeDemand(), r.getForecastError(),
+                    r.getSafetyStock(), r.getReorderPoint(), r.getCurrentStock(), r.getSuggestedOrderQuantity(),
+                    r.getModel(), r.getHistoryDays(), Timestamp.valueOf(r.getComputedAt())
+            });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        return n;
+    }
+
+    // Safety stock covers forecast error over the lead time at the configured service level;
+    // an order brings stock back up to the reorder point plus one review period of demand
+    private ReorderSuggestionEntity suggest(int productId, float[] series, int currentStock, LocalDateTime computedAt) {
+        float[] demand = series != null ? series : new float[0];
+        DemandForecaster.Forecast forecast = DemandForecaster.forecast(demand, leadTimeDays);
+
+        int safetyStock = (int) Math.ceil(serviceLevelZ * forecast.sigma() * Math.sqrt(leadTimeDays));
+        int reorderPoint = (int) Math.ceil(forecast.horizonDemand()) + safetyStock;
+        int orderUpTo = reorderPoint + (int) Math.ceil(forecast.dailyDemand() * reviewDays);
+        int orderQuantity = currentStock <= reorderPoint ? Math.max(0, orderUpTo - currentStock) : 0;
+
+        return new ReorderSuggestionEntity(productId, forecast.dailyDemand(), forecast.horizonDemand(),
+                forecast.sigma(), safetyStock, reorderPoint, currentStock, orderQuantity, forecast.model(),
+                demand.length, computedAt);
+    }
+
+    private class ForecastTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] productIds;
+        private final float[][] series;
+        private final int[] stock;
+        private final transient ReorderSuggestionEntity[] results;
+        private final LocalDateTime computedAt;
+        private final int from;
+        private final int to;
+
+        ForecastTask(int[] productIds, float[][] series, int[] stock, ReorderSuggestionEntity[] results,
+                     LocalDateTime computedAt, int from, int to) {
+            this.productIds = productIds;
+            this.series = series;
+            this.stock = stock;
+            this.results = results;
+            this.computedAt = computedAt;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FORK_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = suggest(productIds[i], series[i], stock[i], computedAt);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new ForecastTask(productIds, series, stock, results, computedAt, from, mid),
+                    new ForecastTask(productIds, series, stock, results, computedAt, mid, to));
+        }
+    }
+}
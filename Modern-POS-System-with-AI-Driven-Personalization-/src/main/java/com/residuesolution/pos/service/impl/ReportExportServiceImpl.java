@@ -0,0 +1,278 @@
+package com.residuesolution.pos.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.residuesolution.pos.artifact.ArtifactStore;
+import com.residuesolution.pos.dto.AnalyticsReport;
+import com.residuesolution.pos.entity.AnalyticsReportEntity;
+import com.residuesolution.pos.repository.AnalyticsReportRepository;
+import com.residuesolution.pos.service.AnalyticsReportService;
+import com.residuesolution.pos.service.ReportExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+// CSV exports of analytics reports. Sales and performance reports export every payment in the report
+// period, inventory reports the current product_stock rows, customer reports their summary metrics.
+// Rows are read in keyset-paged queries (no connection held across pages, no long transaction) in a
+// fixed order with fixed formatting, so the same data always produces the same bytes; that is what
+// makes the data fingerprint (rows' count, max ID and last change) usable as the ETag. Every complete
+// export is also kept in the artifact store, so later downloads and resumed ranges are served from disk.
+@Service
+@Slf4j
+public class ReportExportServiceImpl implements ReportExportService {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String PAYMENT_HEADER = "payment_id,payment_date_time,order_id,customer_id," +
+            "processed_by_user_id,amount,payment_method,payment_status,gateway,refunded_amount";
+
+    private static final String PAYMENT_PAGE_SQL = "SELECT payment_id, payment_date_time, order_id, customer_id, " +
+            "processed_by_user_id, amount, payment_method, payment_status, gateway, refunded_amount FROM payment " +
+            "WHERE payment_date_time <= ? AND (payment_date_time > ? OR (payment_date_time = ? AND payment_id > ?)) " +
+            "ORDER BY payment_date_time, payment_id LIMIT ?";
+
+    private static final String STOCK_HEADER = "product_id,quantity,reorder_point,reorder_clear_level,updated_at";
+
+    private static final String STOCK_PAGE_SQL = "SELECT product_id, quantity, reorder_point, reorder_clear_level, " +
+            "updated_at FROM product_stock WHERE product_id > ? ORDER BY product_id LIMIT ?";
+
+    private final AnalyticsReportService analyticsReportService;
+    private final AnalyticsReportRepository analyticsReportRepository;
+    private final ArtifactStore artifactStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int pageSize;
+
+    public ReportExportServiceImpl(AnalyticsReportService analyticsReportService,
+                                   AnalyticsReportRepository analyticsReportRepository,
+                                   ArtifactStore artifactStore,
+                                   JdbcTemplate jdbcTemplate,
+                                   @Value("${pos.report-export.page-size:5000}") int pageSize) {
+        this.analyticsReportService = analyticsReportService;
+        this.analyticsReportRepository = analyticsReportRepository;
+        this.artifactStore = artifactStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public String getCsvETag(Integer reportId) {
+        AnalyticsReport report = analyticsReportService.getReportById(reportId);
+        if (report == null) {
+            return null;
+        }
+
+        Object[] fingerprint;
+        if (exportsPayments(report)) {
+            fingerprint = jdbcTemplate.queryForObject("SELECT COUNT(*), COALESCE(MAX(payment_id), 0), " +
+                            "MAX(COALESCE(updated_at, created_at)) FROM payment WHERE payment_date_time BETWEEN ? AND ?",
+                    ReportExportServiceImpl::fingerprint,
+                    Timestamp.valueOf(report.getPeriodStart()), Timestamp.valueOf(report.getPeriodEnd()));
+        } else if ("inventory".equals(report.getReportType())) {
+            fingerprint = jdbcTemplate.queryForObject("SELECT COUNT(*), COALESCE(MAX(product_id), 0), MAX(updated_at) " +
+                    "FROM product_stock", ReportExportServiceImpl::fingerprint);
+        } else {
+            fingerprint = new Object[]{0, 0, report.getUpdatedAt()};
+        }
+
+        LocalDateTime lastChange = (LocalDateTime) fingerprint[2];
+        return "\"" + reportId + "-" + report.getReportType() + "-" + fingerprint[0] + "-" + fingerprint[1] + "-" +
+                (lastChange != null ? lastChange.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) : "0") + "\"";
+    }
+
+    @Override
+    public void writeCsv(Integer reportId, OutputStream out) throws IOException {
+        AnalyticsReport report = analyticsReportService.getReportById(reportId);
+        if (report == null) {
+            return;
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (exportsPayments(report)) {
+            writePayments(writer, report.getPeriodStart(), report.getPeriodEnd());
+        } else if ("inventory".equals(report.getReportType())) {
+            writeStock(writer);
+        } else {
+            writeMetrics(writer, report.getReportData());
+        }
+        writer.flush();
+    }
+
+    @Override
+    public CsvFile findCsvFile(Integer reportId) {
+        AnalyticsReportEntity report = analyticsReportRepository.findById(reportId).orElse(null);
+        if (report == null || report.getFileHash() == null) {
+            return null;
+        }
+
+        Path path = artifactStore.open(report.getFileHash());
+        if (path == null) {
+            return null; // Evicted; the next download generates it again
+        }
+        try {
+            return new CsvFile(report.getFileHash(), report.getFileEtag(), path, Files.size(path));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void streamCsv(Integer reportId, String etag, OutputStream out) throws IOException {
+        try (ArtifactStore.PendingArtifact artifact = artifactStore.create()) {
+            writeCsv(reportId, new TeeOutputStream(out, artifact));
+            attach(reportId, artifact.commit(), etag);
+        }
+    }
+
+    private void attach(Integer reportId, String hash, String etag) {
+        analyticsReportRepository.attachFile(reportId, "/api/analytics-reports/download/csv/" + reportId, hash, etag);
+        log.info("Stored CSV export of report {} as artifact {}", reportId, hash);
+    }
+
+    // Reports created before the period was recorded have nothing to page over
+    private static boolean exportsPayments(AnalyticsReport report) {
+        return ("sales".equals(report.getReportType()) || "performance".equals(report.getReportType()))
+                && report.getPeriodStart() != null && report.getPeriodEnd() != null;
+    }
+
+    private void writePayments(Writer writer, LocalDateTime start, LocalDateTime end) throws IOException {
+        writer.write(PAYMENT_HEADER);
+        writer.write('\n');
+
+        Timestamp endTs = Timestamp.valueOf(end);
+        Timestamp lastTs = Timestamp.valueOf(start);
+        int lastId = Integer.MIN_VALUE; // Includes payments exactly at the period start
+
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query(PAYMENT_PAGE_SQL, (rs, rowNum) -> new Object[]{
+                    rs.getInt(1), rs.getTimestamp(2), rs.getInt(3), rs.getObject(4), rs.getInt(5),
+                    rs.getBigDecimal(6), rs.getString(7), rs.getString(8), rs.getString(9), rs.getBigDecimal(10)
+            }, endTs, lastTs, lastTs, lastId, pageSize);
+
+            for (Object[] row : page) {
+                writer.write(row[0] + "," + format((Timestamp) row[1]) + "," + row[2] + "," + value(row[3]) + "," +
+                        row[4] + "," + ((BigDecimal) row[5]).toPlainString() + "," + csv((String) row[6]) + "," +
+                        csv((String) row[7]) + "," + csv((String) row[8]) + "," +
+                        (row[9] != null ? ((BigDecimal) row[9]).toPlainString() : ""));
+                writer.write('\n');
+            }
+
+            if (page.size() < pageSize) {
+                return;
+            }
+            Object[] last = page.get(page.size() - 1);
+            lastId = (Integer) last[0];
+            lastTs = (Timestamp) last[1];
+        }
+    }
+
+    private void writeStock(Writer writer) throws IOException {
+        writer.write(STOCK_HEADER);
+        writer.write('\n');
+
+        int lastId = Integer.MIN_VALUE;
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query(STOCK_PAGE_SQL, (rs, rowNum) -> new Object[]{
+                    rs.getInt(1), rs.getInt(2), rs.getObject(3), rs.getObject(4), rs.getTimestamp(5)
+            }, lastId, pageSize);
+
+            for (Object[] row : page) {
+                writer.write(row[0] + "," + row[1] + "," + value(row[2]) + "," + value(row[3]) + "," +
+                        format((Timestamp) row[4]));
+                writer.write('\n');
+            }
+
+            if (page.size() < pageSize) {
+                return;
+            }
+            lastId = (Integer) page.get(page.size() - 1)[0];
+        }
+    }
+
+    // Top-level scalar metrics of the report payload, in payload order
+    private void writeMetrics(Writer writer, String reportData) throws IOException {
+        writer.write("metric,value\n");
+        if (reportData == null) {
+            return;
+        }
+
+        for (Map.Entry<String, JsonNode> field : objectMapper.readTree(reportData).properties()) {
+            if (field.getValue().isValueNode()) {
+                writer.write(csv(field.getKey()) + "," + csv(field.getValue().asText()));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static Object[] fingerprint(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp lastChange = rs.getTimestamp(3);
+        return new Object[]{rs.getLong(1), rs.getLong(2), lastChange != null ? lastChange.toLocalDateTime() : null};
+    }
+
+    private static String format(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().format(TIMESTAMP) : "";
+    }
+
+    private static String value(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // Client first, so a client that went away stops the export before the artifact gets more bytes
+    private static final class TeeOutputStream extends OutputStream {
+
+        private final OutputStream client;
+        private final OutputStream artifact;
+
+        TeeOutputStream(OutputStream client, OutputStream artifact) {
+            this.client = client;
+            this.artifact = artifact;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            client.write(b);
+            artifact.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            client.write(b, off, len);
+            artifact.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            client.flush();
+            artifact.flush();
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.AnalyticsReport;
+import com.residuesolution.pos.repository.AnalyticsReportRepository;
+import com.residuesolution.pos.service.AnalyticsReportService;
+import com.residuesolution.pos.service.ReportJobService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Report generation off the request thread: a fixed pool of workers behind a bounded queue. Each owner
+// (the authenticated user) may have a limited number of jobs queued or running, so one admin cannot
+// fill the pool. The report row is the source of truth for status; the in-memory job map only exists
+// to interrupt local work and to notify subscribers. A subscriber may land on a node other than the one
+// running the job; its report row is polled until it leaves GENERATING.
+@Service
+@Slf4j
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final long SSE_TIMEOUT_MS = 10 * 60 * 1000L; // Clients fall back to polling /{reportId}
+    private static final List<String> BULK_REPORT_TYPES = List.of("sales", "inventory", "customer", "performance");
+
+    private final AnalyticsReportService analyticsReportService;
+    private final AnalyticsReportRepository analyticsReportRepository;
+    private final int maxPerUser;
+    private final int staleAfterMinutes;
+    private final long bulkTimeoutMs;
+    private final ThreadPoolExecutor workers;
+
+    // Owner -> jobs queued or running
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+    private final Map<Integer, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Integer, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    // Pushes happen here so a slow client never holds up a report worker
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "report-job-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReportJobServiceImpl(AnalyticsReportService analyticsReportService,
+                                AnalyticsReportRepository analyticsReportRepository,
+                                @Value("${pos.report-jobs.workers:4}") int workerCount,
+                                @Value("${pos.report-jobs.queue-capacity:100}") int queueCapacity,
+                                @Value("${pos.report-jobs.max-per-user:2}") int maxPerUser,
+                                @Value("${pos.report-jobs.stale-after-minutes:60}") int staleAfterMinutes,
+                                @Value("${pos.report-jobs.bulk-timeout-ms:30000}") long bulkTimeoutMs) {
+        this.analyticsReportService = analyticsReportService;
+        this.analyticsReportRepository = analyticsReportRepository;
+        this.maxPerUser = maxPerUser;
+        this.staleAfterMinutes = staleAfterMinutes;
+        this.bulkTimeoutMs = bulkTimeoutMs;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        dispatcher.shutdown();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    @Override
+    public AnalyticsReport submitReport(String reportType, String owner, String generatedBy, LocalDateTime startDate,
+                                        LocalDateTime endDate, Map<String, Object> filters) {
+        acquire(owner);
+
+        AnalyticsReport report = startJob(reportType, owner, generatedBy, startDate, endDate, filters, null);
+        if (report != null) {
+            log.info("Queued {} report {} for {}", reportType, report.getId(), owner);
+        }
+        return report;
+    }
+
+    @Override
+    public Boolean cancelReport(Integer reportId) {
+        // Flip the row first: whichever node runs the job will find it no longer GENERATING
+        if (!analyticsReportService.cancelReport(reportId)) {
+            return false;
+        }
+
+        ReportJob job = jobs.get(reportId);
+        if (job != null) {
+            job.cancel(true);
+            workers.remove(job);
+        } else {
+            publish(reportId, "CANCELLED");
+        }
+
+        log.info("Cancelled report {}", reportId);
+        return true;
+    }
+
+    @Override
+    public SseEmitter subscribe(Integer reportId) {
+        AnalyticsReport report = analyticsReportService.getReportById(reportId);
+        if (report == null) {
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        Runnable unsubscribe = () -> subscribers.computeIfPresent(reportId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        subscribers.compute(reportId, (id, emitters) -> {
+            List<SseEmitter> list = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            list.add(emitter);
+            return list;
+        });
+
+        // Re-read after registering: a job finishing in between either publishes to us or is seen here
+        AnalyticsReport current = analyticsReportService.getReportById(reportId);
+        String status = current != null ? current.getStatus() : "CANCELLED";
+        if (!"GENERATING".equals(status)) {
+            publish(reportId, status);
+        }
+        return emitter;
+    }
+
+    // Each report type runs as an ordinary job of the owner on the worker pool, so a bulk request counts
+    // against the per-user limit: it starts as many types as the owner has free slots and the rest as its
+    // own jobs finish, all under one deadline. Whatever is still queued or running at the deadline is
+    // cancelled on its report row, so a generator that finishes late cannot save a report the response
+    // already called TimedOut. An unexpected exception (the jobs turn ordinary failures into FAILED
+    // reports) cancels the siblings right away.
+    @Override
+    public Map<String, Object> generateBulkReports(String owner, String generatedBy, LocalDateTime startDate,
+                                                   LocalDateTime endDate, Map<String, Object> filters) {
+        Map<String, Object> results = new LinkedHashMap<>();
+        BULK_REPORT_TYPES.forEach(type -> results.put(type, "TimedOut")); // Overwritten as each one finishes
+
+        Deque<String> waiting = new ArrayDeque<>(BULK_REPORT_TYPES);
+        Map<Integer, String> running = new HashMap<>();
+        BlockingQueue<ReportJob> finished = new LinkedBlockingQueue<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(bulkTimeoutMs);
+
+        acquire(owner); // No free slot at all: rejected like any other submission
+        boolean holdingSlot = true;
+        try {
+            while (!waiting.isEmpty() || !running.isEmpty()) {
+                while (!waiting.isEmpty() && (holdingSlot || tryAcquire(owner))) {
+                    holdingSlot = false;
+                    String type = waiting.poll();
+                    try {
+                        AnalyticsReport report = startJob(type, owner, generatedBy, startDate, endDate, filters, finished);
+                        if (report != null) {
+                            running.put(report.getId(), type);
+                        } else {
+                            results.put(type, "Failed");
+                        }
+                    } catch (RejectedExecutionException e) {
+                        results.put(type, "Rejected");
+                    }
+                }
+
+                if (running.isEmpty()) {
+                    // The owner's other reports hold every slot
+                    waiting.forEach(type -> results.put(type, "Rejected"));
+                    waiting.clear();
+                    break;
+                }
+
+                ReportJob done = finished.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    log.warn("Bulk report generation hit its {} ms deadline, unfinished: {}",
+                            bulkTimeoutMs, results.entrySet().stream()
+                                    .filter(result -> "TimedOut".equals(result.getValue()))
+                                    .map(Map.Entry::getKey)
+                                    .toList());
+                    break;
+                }
+
+                String type = running.remove(done.reportId);
+                String status = done.finalStatus();
+                results.put(type, "COMPLETED".equals(status) ? done.reportId
+                        : "CANCELLED".equals(status) ? "Cancelled" : "Failed");
+
+                if (done.state() == Future.State.FAILED) {
+                    log.error("Bulk {} report {} failed, cancelling the rest", type, done.reportId);
+                    waiting.forEach(sibling -> results.put(sibling, "Cancelled"));
+                    waiting.clear();
+                    cancelBulkJobs(running, results, "Cancelled");
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            waiting.forEach(type -> results.put(type, "Cancelled"));
+            cancelBulkJobs(running, results, "Cancelled");
+        } finally {
+            if (holdingSlot) {
+                release(owner);
+            }
+            cancelBulkJobs(running, results, "TimedOut");
+        }
+
+        return results;
+    }
+
+    @Override
+    public Map<String, Object> getQueueStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("workers", workers.getMaximumPoolSize());
+        stats.put("running", workers.getActiveCount());
+        stats.put("queued", workers.getQueue().size());
+        stats.put("queueCapacity", workers.getQueue().size() + workers.getQueue().remainingCapacity());
+        stats.put("maxPerUser", maxPerUser);
+        stats.put("inFlightByUser", new HashMap<>(inFlight));
+        return stats;
+    }
+
+    // Subscribers of jobs this node is not running: push the final status once the row shows one
+    @Scheduled(fixedDelayString = "${pos.report-jobs.subscriber-poll-ms:2000}")
+    public void pollRemoteJobs() {
+        Set<Integer> remote = new HashSet<>(subscribers.keySet());
+        remote.removeAll(jobs.keySet());
+        if (remote.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<Integer, String> statuses = new HashMap<>();
+            for (Object[] row : analyticsReportRepository.findStatusesByIdIn(remote)) {
+                statuses.put((Integer) row[0], (String) row[1]);
+            }
+            for (Integer reportId : remote) {
+                String status = statuses.getOrDefault(reportId, "CANCELLED"); // Deleted meanwhile
+                if (!"GENERATING".equals(status)) {
+                    publish(reportId, status);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error polling report status for subscribers: {}", e.getMessage(), e);
+        }
+    }
+
+    // Reports left GENERATING by a node that went down mid-job would otherwise never finish
+    @Scheduled(fixedDelayString = "${pos.report-jobs.stale-sweep-ms:300000}")
+    public void failStaleReports() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = analyticsReportRepository.failStaleReports(now.minusMinutes(staleAfterMinutes), now);
+        if (failed > 0) {
+            log.warn("Marked {} stale GENERATING reports as FAILED", failed);
+        }
+    }
+
+    // Creates the report row and queues its job under a slot the caller already holds; the slot is
+    // released here when the job cannot be queued. finished, when given, receives the job once it is done.
+    private AnalyticsReport startJob(String reportType, String owner, String generatedBy, LocalDateTime startDate,
+                                     LocalDateTime endDate, Map<String, Object> filters,
+                                     BlockingQueue<ReportJob> finished) {
+        AnalyticsReport report = analyticsReportService.createPendingReport(reportType, generatedBy, startDate, endDate, filters);
+        if (report == null) {
+            release(owner);
+            return null;
+        }
+
+        ReportJob job = new ReportJob(report.getId(), owner, reportType, startDate, endDate, finished);
+        jobs.put(report.getId(), job);
+        try {
+            workers.execute(job);
+        } catch (RejectedExecutionException e) {
+            // Queue full: the report never existed as far as the client is concerned
+            jobs.remove(report.getId());
+            release(owner);
+            analyticsReportService.deleteReport(report.getId());
+            throw new RejectedExecutionException("Report queue is full, try again later");
+        }
+        return report;
+    }
+
+    // Cancels the report rows of unfinished bulk jobs; one that finished just before keeps its own outcome
+    private void cancelBulkJobs(Map<Integer, String> running, Map<String, Object> results, String outcome) {
+        running.forEach((reportId, type) -> {
+            if (cancelReport(reportId)) {
+                results.put(type, outcome);
+                return;
+            }
+            String status = analyticsReportRepository.findStatusesByIdIn(List.of(reportId)).stream()
+                    .map(row -> (String) row[1])
+                    .findFirst()
+                    .orElse("CANCELLED");
+            results.put(type, "COMPLETED".equals(status) ? reportId : "CANCELLED".equals(status) ? "Cancelled" : "Failed");
+        });
+        running.clear();
+    }
+
+    private void acquire(String owner) {
+        inFlight.compute(owner, (key, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxPerUser) {
+                throw new RejectedExecutionException(
+                        "User " + owner + " already has " + current + " reports in progress");
+            }
+            return current + 1;
+        });
+    }
+
+    // Like acquire, but returns false instead of throwing when the owner is at the limit
+    private boolean tryAcquire(String owner) {
+        try {
+            acquire(owner);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void release(String owner) {
+        inFlight.computeIfPresent(owner, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void publish(Integer reportId, String status) {
+        List<SseEmitter> emitters = subscribers.remove(reportId);
+        if (emitters == null) {
+            return;
+        }
+
+        Map<String, Object> event = Map.of("reportId", reportId, "status", status);
+        dispatcher.execute(() -> emitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().name("report").data(event));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        }));
+    }
+
+    // The owner's slot is held until the worker actually stops, not merely until cancel() returns,
+    // so cancelling and resubmitting cannot stack up more running computations than the limit
+    private final class ReportJob extends FutureTask<String> {
+
+        private final Integer reportId;
+        private final String owner;
+        private final BlockingQueue<ReportJob> finished;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        ReportJob(Integer reportId, String owner, String reportType, LocalDateTime startDate, LocalDateTime endDate,
+                  BlockingQueue<ReportJob> finished) {
+            super(() -> analyticsReportService.completeReport(reportId, reportType, startDate, endDate));
+            this.reportId = reportId;
+            this.owner = owner;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return; // Cancelled while queued, slot already released
+            }
+            try {
+                super.run();
+            } finally {
+                release(owner);
+            }
+        }
+
+        @Override
+        protected void done() {
+            jobs.remove(reportId);
+            if (started.compareAndSet(false, true)) {
+                release(owner); // Never reached a worker
+            }
+            publish(reportId, finalStatus());
+            if (finished != null) {
+                finished.add(this);
+            }
+        }
+
+        private String finalStatus() {
+            if (isCancelled()) {
+                return "CANCELLED";
+            }
+            try {
+                return get();
+            } catch (ExecutionException e) {
+                log.error("Report job {} failed: {}", reportId, e.getCause().getMessage(), e.getCause());
+                return "FAILED";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "FAILED";
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.InventoryLog;
+import com.residuesolution.pos.dto.StockReservation;
+import com.residuesolution.pos.entity.StockReservationEntity;
+import com.residuesolution.pos.enums.InventoryChangeType;
+import com.residuesolution.pos.repository.StockReservationRepository;
+import com.residuesolution.pos.reservation.HashedTimingWheel;
+import com.residuesolution.pos.service.InventoryLogService;
+import com.residuesolution.pos.service.ProductStockService;
+import com.residuesolution.pos.service.StockReservationService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// A hold takes its units out of product_stock right away (same conditional decrement as a sale),
+// so no other lane can sell them; the reservation row makes the hold durable. Live holds and
+// per-product reserved counts are kept in memory, with expiry driven by a timing wheel instead of
+// polling. Commit, release and expiry all claim the row with a DELETE, so each hold ends exactly once.
+// A failed expiry goes back on the wheel with backoff, and a periodic sweep claims holds that no live
+// node is tracking (their node crashed), so held units always find their way back to product_stock.
+@Service
+@Slf4j
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final ProductStockService productStockService;
+    private final InventoryLogService inventoryLogService;
+    private final TransactionTemplate transactionTemplate;
+    private final ModelMapper mapper;
+    private final int defaultTtlSeconds;
+    private final int maxTtlSeconds;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+    private final int sweepGraceSeconds;
+    private final int sweepBatchSize;
+
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> reservedByProduct = new ConcurrentHashMap<>();
+    private final HashedTimingWheel expiryWheel;
+    // Expiry touches the database; keep it off the wheel's tick thread
+    private final ExecutorService expiryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "stock-reservation-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StockReservationServiceImpl(StockReservationRepository stockReservationRepository,
+                                       ProductStockService productStockService,
+                                       InventoryLogService inventoryLogService,
+                                       TransactionTemplate transactionTemplate,
+                                       ModelMapper mapper,
+                                       @Value("${pos.reservation.default-ttl-seconds:900}") int defaultTtlSeconds,
+                                       @Value("${pos.reservation.max-ttl-seconds:3600}") int maxTtlSeconds,
+                                       @Value("${pos.reservation.tick-ms:100}") long tickMs,
+                                       @Value("${pos.reservation.wheel-size:512}") int wheelSize,
+                                       @Value("${pos.reservation.expiry-retry-base-ms:1000}") long retryBaseMs,
+                                       @Value("${pos.reservation.expiry-retry-max-ms:60000}") long retryMaxMs,
+                                       @Value("${pos.reservation.sweep-grace-seconds:30}") int sweepGraceSeconds,
+                                       @Value("${pos.reservation.sweep-batch-size:500}") int sweepBatchSize) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.productStockService = productStockService;
+        this.inventoryLogService = inventoryLogService;
+        this.transactionTemplate = transactionTemplate;
+        this.mapper = mapper;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.maxTtlSeconds = maxTtlSeconds;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+        this.sweepGraceSeconds = sweepGraceSeconds;
+        this.sweepBatchSize = sweepBatchSize;
+        this.expiryWheel = new HashedTimingWheel("stock-reservation-wheel", tickMs, TimeUnit.MILLISECONDS, wheelSize);
+    }
+
+    // Rebuild the in-memory state from the durable holds; ones that expired while down fire on the first tick
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<StockReservationEntity> reservations = stockReservationRepository.findAll();
+        reservations.forEach(this::track);
+        log.info("Recovered {} stock reservations", reservations.size());
+    }
+
+    // Claims holds that expired a grace period ago and are still in the table: normally the owning node's
+    // wheel gets there first, so whatever is left belongs to a node that died (or failed and is backing off)
+    @Scheduled(fixedDelayString = "${pos.reservation.sweep-ms:60000}")
+    public void sweepExpired() {
+        List<Long> expired = stockReservationRepository.findExpiredIds(
+                LocalDateTime.now().minusSeconds(sweepGraceSeconds), PageRequest.of(0, sweepBatchSize));
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        int claimed = 0;
+        for (Long reservationId : expired) {
+            if (!holds.containsKey(reservationId) && expireNow(reservationId)) {
+                claimed++;
+            }
+        }
+        if (claimed > 0) {
+            log.info("Expiry sweep claimed {} orphaned stock reservations", claimed);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        expiryWheel.stop();
+        expiryExecutor.shutdownNow();
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Boolean reserve(String orderId, Integer productId, Integer quantity, Integer ttlSeconds, Integer userId) {
+        try {
+            if (orderId == null || orderId.isBlank() || quantity == null || quantity <= 0) {
+                log.warn("Invalid reservation of {} units of product ID {} for order {}", quantity, productId, orderId);
+                return false;
+            }
+            if (stockReservationRepository.existsByOrderIdAndProductId(orderId, productId)) {
+                log.warn("Order {} already holds product ID {}", orderId, productId);
+                return false;
+            }
+
+            Integer newStock = productStockService.decreaseStock(productId, quantity);
+            if (newStock == null) {
+                return false;
+            }
+
+            int ttl = ttlSeconds != null && ttlSeconds > 0 ? Math.min(ttlSeconds, maxTtlSeconds) : defaultTtlSeconds;
+            LocalDateTime now = LocalDateTime.now();
+            StockReservationEntity reservation = stockReservationRepository.saveAndFlush(new StockReservationEntity(
+                    null, orderId, productId, quantity, userId, now.plusSeconds(ttl), now));
+
+            InventoryLog inventoryLog = stockLog(productId, userId, InventoryChangeType.RESERVED, -quantity,
+                    newStock + quantity, newStock, orderId, "Held for checkout", false);
+            if (!inventoryLogService.logInventoryChange(inventoryLog)) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return false;
+            }
+
+            afterCommit(() -> track(reservation));
+            log.info("Stock reserved: Order {}, Product ID {}, Quantity {}, TTL {}s", orderId, productId, quantity, ttl);
+            return true;
+
+        } catch (Exception e) {
+            log.error("Error reserving stock: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional
+    public Boolean commit(String orderId, Integer userId) {
+        try {
+            List<Long> claimed = new ArrayList<>();
+
+            for (StockReservationEntity reservation : stockReservationRepository.findByOrderId(orderId)) {
+                if (stockReservationRepository.claim(reservation.getId()) == 0) {
+                    continue; // Expired or released concurrently
+                }
+
+                // The units already left product_stock when they were held, so the sale itself doesn't move
+                // stock; log the hand-over as a release plus a SALE so demand and analytics see a normal sale
+                Integer productId = reservation.getProductId();
+                Integer quantity = reservation.getQuantity();
+                Integer currentStock = productStockService.getCurrentStock(productId);
+
+                InventoryLog released = stockLog(productId, userId, InventoryChangeType.RESERVATION_RELEASED, quantity,
+                        currentStock, currentStock, orderId, "Converted into sale", false);
+                InventoryLog sale = stockLog(productId, userId, InventoryChangeType.SALE, -quantity,
+                        currentStock, currentStock, orderId, "Sold from reservation", false);
+
+                if (!inventoryLogService.logInventoryChange(released) || !inventoryLogService.logInventoryChange(sale)) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return false;
+                }
+                claimed.add(reservation.getId());
+            }
+
+            if (claimed.isEmpty()) {
+                return false;
+            }
+
+            afterCommit(() -> claimed.forEach(this::untrack));
+            log.info("Reservations committed: Order {}, {} lines", orderId, claimed.size());
+            return true;
+
+        } catch (Exception e) {
+            log.error("Error committing reservation: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional
+    public Boolean release(String orderId, Integer userId) {
+        try {
+            List<Long> claimed = new ArrayList<>();
+
+            for (StockReservationEntity reservation : stockReservationRepository.findByOrderId(orderId)) {
+                if (stockReservationRepository.claim(reservation.getId()) == 0) {
+                    continue;
+                }
+                if (!returnToStock(reservation, userId, "Reservation released", false)) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return false;
+                }
+                claimed.add(reservation.getId());
+            }
+
+            if (claimed.isEmpty()) {
+                return false;
+            }
+
+            afterCommit(() -> claimed.forEach(this::untrack));
+            log.info("Reservations released: Order {}, {} lines", orderId, claimed.size());
+            return true;
+
+        } catch (Exception e) {
+            log.error("Error releasing reservation: {}", e.getMessage(), e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    @Override
+    public List<StockReservation> getReservations(String orderId) {
+        return stockReservationRepository.findByOrderId(orderId).stream()
+                .map(entity -> mapper.map(entity, StockReservation.class))
+                .toList();
+    }
+
+    @Override
+    public Integer getReservedQuantity(Integer productId) {
+        return reservedByProduct.getOrDefault(productId, 0);
+    }
+
+    private void expire(Long reservationId, int attempt) {
+        if (expireNow(reservationId)) {
+            untrack(reservationId);
+            return;
+        }
+
+        // Back on the wheel with exponential backoff; the sweep also covers it should this node die meanwhile
+        long delayMs = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt, 20));
+        HashedTimingWheel.Timeout retry = expiryWheel.schedule(
+                () -> expiryExecutor.execute(() -> expire(reservationId, attempt + 1)), delayMs, TimeUnit.MILLISECONDS);
+        if (holds.computeIfPresent(reservationId,
+                (id, hold) -> new Hold(hold.productId(), hold.quantity(), retry)) == null) {
+            retry.cancel(); // Committed or released while this attempt ran
+        }
+        log.warn("Retrying expiry of reservation {} in {} ms (attempt {})", reservationId, delayMs, attempt + 1);
+    }
+
+    // True when the hold is gone: expired now, or already committed / released / expired, possibly on another node
+    private boolean expireNow(Long reservationId) {
+        try {
+            Boolean done = transactionTemplate.execute(status -> {
+                StockReservationEntity reservation = stockReservationRepository.findById(reservationId).orElse(null);
+                if (reservation == null || stockReservationRepository.claim(reservationId) == 0) {
+                    return true;
+                }
+                if (!returnToStock(reservation, reservation.getReservedBy(), "Reservation expired", true)) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                log.info("Reservation expired: Order {}, Product ID {}, Quantity {}",
+                        reservation.getOrderId(), reservation.getProductId(), reservation.getQuantity());
+                return true;
+            });
+            return Boolean.TRUE.equals(done);
+
+        } catch (Exception e) {
+            log.error("Error expiring reservation {}: {}", reservationId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private boolean returnToStock(StockReservationEntity reservation, Integer userId, String reason,
+                                  boolean systemGenerated) {
+        Integer productId = reservation.getProductId();
+        Integer quantity = reservation.getQuantity();
+        Integer newStock = productStockService.increaseStock(productId, quantity);
+
+        return inventoryLogService.logInventoryChange(stockLog(productId, userId,
+                InventoryChangeType.RESERVATION_RELEASED, quantity, newStock - quantity, newStock,
+                reservation.getOrderId(), reason, systemGenerated));
+    }
+
+    private void track(StockReservationEntity reservation) {
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), reservation.getExpiresAt()).toMillis());
+        Long id = reservation.getId();
+        HashedTimingWheel.Timeout timeout = expiryWheel.schedule(
+                () -> expiryExecutor.execute(() -> expire(id, 0)), delayMs, TimeUnit.MILLISECONDS);
+
+        if (holds.putIfAbsent(id, new Hold(reservation.getProductId(), reservation.getQuantity(), timeout)) == null) {
+            reservedByProduct.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+        } else {
+            timeout.cancel();
+        }
+    }
+
+    private void untrack(Long reservationId) {
+        Hold hold = holds.remove(reservationId);
+        if (hold == null) {
+            return;
+        }
+
+        hold.timeout().cancel();
+        reservedByProduct.computeIfPresent(hold.productId(),
+                (productId, reserved) -> reserved - hold.quantity() > 0 ? reserved - hold.quantity() : null);
+    }
+
+    private static InventoryLog stockLog(Integer productId, Integer userId, InventoryChangeType changeType,
+                                         Integer quantity, Integer previousStock, Integer newStock,
+                                         String orderId, String reason, boolean systemGenerated) {
+        InventoryLog inventoryLog = new InventoryLog();
+        inventoryLog.setProductId(productId);
+        inventoryLog.setChangedBy(userId);
+        inventoryLog.setChangeType(changeType);
+        inventoryLog.setQuantity(quantity);
+        inventoryLog.setReason(reason);
+        inventoryLog.setReferenceId(orderId);
+        inventoryLog.setPreviousStock(previousStock);
+        inventoryLog.setNewStock(newStock);
+        inventoryLog.setIsSystemGenerated(systemGenerated);
+        return inventoryLog;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record Hold(Integer productId, Integer quantity, HashedTimingWheel.Timeout timeout) {
+    }
+}
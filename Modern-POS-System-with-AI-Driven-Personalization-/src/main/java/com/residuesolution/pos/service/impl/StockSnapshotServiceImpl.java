@@ -0,0 +1,155 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.archive.InventoryLogArchive;
+import com.residuesolution.pos.entity.StockSnapshotEntity;
+import com.residuesolution.pos.repository.InventoryLogRepository;
+import com.residuesolution.pos.repository.ProductStockRepository;
+import com.residuesolution.pos.repository.StockSnapshotItemRepository;
+import com.residuesolution.pos.repository.StockSnapshotRepository;
+import com.residuesolution.pos.service.LocationStockService;
+import com.residuesolution.pos.service.StockSnapshotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Slf4j
+public class StockSnapshotServiceImpl implements StockSnapshotService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final StockSnapshotItemRepository stockSnapshotItemRepository;
+    private final InventoryLogRepository inventoryLogRepository;
+    private final ProductStockRepository productStockRepository;
+    private final InventoryLogArchive inventoryLogArchive;
+    private final LocationStockService locationStockService;
+    private final JdbcTemplate jdbcTemplate;
+    private final long watermarkLagSeconds;
+
+    public StockSnapshotServiceImpl(StockSnapshotRepository stockSnapshotRepository,
+                                    StockSnapshotItemRepository stockSnapshotItemRepository,
+                                    InventoryLogRepository inventoryLogRepository,
+                                    ProductStockRepository productStockRepository,
+                                    InventoryLogArchive inventoryLogArchive,
+                                    LocationStockService locationStockService,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${pos.stock-snapshot.watermark-lag-seconds:300}") long watermarkLagSeconds) {
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.stockSnapshotItemRepository = stockSnapshotItemRepository;
+        this.inventoryLogRepository = inventoryLogRepository;
+        this.productStockRepository = productStockRepository;
+        this.inventoryLogArchive = inventoryLogArchive;
+        this.locationStockService = locationStockService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.watermarkLagSeconds = watermarkLagSeconds;
+    }
+
+    @Scheduled(cron = "${pos.stock-snapshot.cron:0 0 * * * *}")
+    public void scheduledSnapshot() {
+        try {
+            takeSnapshot();
+        } catch (Exception e) {
+            log.error("Error taking stock snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    // One consistent (non-locking) read view, so stock levels and the logs subtracted from them agree without
+    // blocking sales
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Object> takeSnapshot() {
+        Integer previousLogId = stockSnapshotRepository.findTopByOrderByIdDesc()
+                .map(StockSnapshotEntity::getLastLogId)
+                .orElse(0);
+        Integer defaultLocationId = locationStockService.getDefaultLocationId();
+
+        // MAX(id) is not a safe watermark: a transaction holding a lower ID may still commit after this read,
+        // and replaying "id > lastLogId" would then skip it forever. Watermark on a log created a lag ago
+        // instead; every lower ID was inserted before it and has had the lag to commit
+        Integer lastLogId = inventoryLogRepository.findLatestIdsCreatedBefore(
+                        LocalDateTime.now().minusSeconds(watermarkLagSeconds), PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .map(id -> Math.max(id, previousLogId))
+                .orElse(previousLogId);
+
+        List<Integer> changed = previousLogId == 0
+                ? productStockRepository.findAllProductIds()
+                : inventoryLogRepository.findProductIdsChangedBetweenIds(previousLogId, lastLogId, defaultLocationId);
+
+        // Stock read now already includes the committed logs past the watermark; take them back out so the
+        // snapshot is the stock as of lastLogId, and getStockAsOf can replay everything after it
+        Map<Integer, Integer> quantities = new HashMap<>(changed.size() * 2);
+        for (int from = 0; from < changed.size(); from += BATCH_SIZE) {
+            List<Integer> chunk = changed.subList(from, Math.min(from + BATCH_SIZE, changed.size()));
+            for (Object[] row : productStockRepository.findTotalQuantitiesByProductIdIn(chunk)) {
+                quantities.put((Integer) row[0], ((Number) row[1]).intValue());
+            }
+            for (Object[] row : inventoryLogRepository.sumQuantityByProductAfterId(lastLogId, chunk, defaultLocationId)) {
+                quantities.computeIfPresent((Integer) row[0], (productId, quantity) ->
+                        quantity - ((Number) row[1]).intValue());
+            }
+        }
+
+        StockSnapshotEntity snapshot = new StockSnapshotEntity();
+        snapshot.setTakenAt(LocalDateTime.now());
+        snapshot.setLastLogId(lastLogId);
+        snapshot.setProductCount(quantities.size());
+        StockSnapshotEntity saved = stockSnapshotRepository.saveAndFlush(snapshot);
+
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> rows.add(new Object[]{saved.getId(), productId, quantity}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_snapshot_items (snapshot_id, product_id, quantity) VALUES (?, ?, ?)", rows);
+
+        log.info("Stock snapshot {} taken: {} products, up to log ID {}", saved.getId(), rows.size(), lastLogId);
+
+        return Map.of(
+                "snapshotId", saved.getId(),
+                "takenAt", saved.getTakenAt(),
+                "lastLogId", lastLogId,
+                "productCount", rows.size()
+        );
+    }
+
+    @Override
+    public Integer getStockAsOf(Integer productId, LocalDateTime asOf) {
+        List<Object[]> nearest = stockSnapshotItemRepository.findNearestSnapshot(productId, asOf, PageRequest.of(0, 1));
+
+        int baseQuantity = 0;
+        int afterLogId = 0; // No snapshot yet: replay from the first log
+
+        if (!nearest.isEmpty()) {
+            baseQuantity = (Integer) nearest.get(0)[0];
+            afterLogId = (Integer) nearest.get(0)[1];
+        }
+
+        // Snapshots hold product (default-location) stock, so only default-location logs replay onto them
+        Integer defaultLocationId = locationStockService.getDefaultLocationId();
+        long delta = inventoryLogArchive.sumQuantityAfterId(productId, afterLogId, asOf, defaultLocationId);
+        return baseQuantity + (int) delta;
+    }
+
+    @Override
+    public List<Map<String, Object>> getSnapshotHistory() {
+        return stockSnapshotRepository.findAllByOrderByTakenAtDesc().stream()
+                .map(snapshot -> Map.<String, Object>of(
+                        "snapshotId", snapshot.getId(),
+                        "takenAt", snapshot.getTakenAt(),
+                        "lastLogId", snapshot.getLastLogId(),
+                        "productCount", snapshot.getProductCount()
+                ))
+                .toList();
+    }
+}
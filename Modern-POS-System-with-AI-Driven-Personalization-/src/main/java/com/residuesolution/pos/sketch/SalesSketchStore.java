@@ -0,0 +1,270 @@
+package com.residuesolution.pos.sketch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-hour sketches of completed payments: a HyperLogLog of customer IDs and a t-digest of amounts,
+// keyed by wall-clock hour. A window merges its whole hours (a few KB each) and folds the raw payments
+// of its partial edge hours into the result, so "unique customers" and "median basket" over months
+// cost a merge of a few thousand small arrays instead of a scan. Hours past the retention horizon
+// are dropped. Built from the payment table after startup. Sketches can't forget a value, so later
+// changes are not added in: every few seconds the hours of payments updated since the last refresh
+// (on any node, read through idx_payment_updated_at) are rebuilt from the table, which also handles a
+// payment completed twice or one that leaves the completed family.
+@Component
+@Slf4j
+public class SalesSketchStore {
+
+    private static final String PAGE_SQL = "SELECT payment_id, payment_date_time, customer_id, amount FROM payment " +
+            "WHERE payment_status IN ('COMPLETED', 'REFUNDED', 'PARTIALLY_REFUNDED') AND payment_date_time < ? " +
+            "AND (payment_date_time > ? OR (payment_date_time = ? AND payment_id > ?)) " +
+            "ORDER BY payment_date_time, payment_id LIMIT ?";
+
+    private static final String EDGE_SQL = "SELECT customer_id, amount FROM payment " +
+            "WHERE payment_status IN ('COMPLETED', 'REFUNDED', 'PARTIALLY_REFUNDED') " +
+            "AND payment_date_time >= ? AND payment_date_time < ?";
+
+    private static final String CHANGED_SQL = "SELECT payment_date_time FROM payment WHERE updated_at >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int precision;
+    private final double compression;
+    private final int retentionDays;
+    private final int loadPageSize;
+    private final long refreshSettleSeconds;
+
+    private final Map<Long, HourSketch> hours = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime loadStart;
+    private volatile boolean loaded;
+    private volatile boolean loadFailed;
+
+    // Hours of payments changed before refreshedAt (less a settle window for late commits) are rebuilt
+    private volatile LocalDateTime refreshedAt;
+    private volatile boolean refreshFailed;
+
+    public SalesSketchStore(JdbcTemplate jdbcTemplate,
+                            @Value("${pos.sales-sketches.enabled:true}") boolean enabled,
+                            @Value("${pos.sales-sketches.hll-precision:12}") int precision,
+                            @Value("${pos.sales-sketches.compression:100}") double compression,
+                            @Value("${pos.sales-sketches.retention-days:400}") int retentionDays,
+                            @Value("${pos.sales-sketches.load-page-size:50000}") int loadPageSize,
+                            @Value("${pos.sales-sketches.refresh-settle-seconds:60}") long refreshSettleSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.precision = precision;
+        this.compression = compression;
+        this.retentionDays = retentionDays;
+        this.loadPageSize = loadPageSize;
+        this.refreshSettleSeconds = refreshSettleSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!enabled) {
+            return;
+        }
+        loadStart = LocalDateTime.now();
+        Thread loader = new Thread(this::load, "sales-sketch-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Hourly: forget hours that fell out of the retention window
+    @Scheduled(cron = "${pos.sales-sketches.evict-cron:0 5 * * * *}")
+    public void evictExpired() {
+        long horizon = hourOf(horizon());
+        hours.keySet().removeIf(hour -> hour < horizon);
+    }
+
+    // Rebuild the hours touched by payment changes since the previous refresh; also covers changes that
+    // happened while the startup load was paging through the table
+    @Scheduled(fixedDelayString = "${pos.sales-sketches.refresh-ms:5000}")
+    public void refresh() {
+        LocalDateTime since = refreshedAt;
+        if (!enabled || !loaded || since == null) {
+            return;
+        }
+
+        LocalDateTime started = LocalDateTime.now();
+        try {
+            Set<Long> changedHours = new HashSet<>();
+            jdbcTemplate.query(CHANGED_SQL, rs -> {
+                changedHours.add(hourOf(rs.getTimestamp(1).toLocalDateTime()));
+            }, Timestamp.valueOf(since.minusSeconds(refreshSettleSeconds)));
+
+            long horizon = hourOf(horizon());
+            for (long hour : changedHours) {
+                if (hour >= horizon) {
+                    rebuildHour(hour);
+                }
+            }
+            refreshedAt = started;
+            refreshFailed = false;
+
+        } catch (Exception e) {
+            refreshFailed = true;
+            log.error("Error refreshing sales sketches since {}: {}", since, e.getMessage(), e);
+        }
+    }
+
+    // Sketch of payments dated within [startDate, endDate]; hours before the retention horizon are not covered
+    public Summary summarize(LocalDateTime startDate, LocalDateTime endDate) {
+        HourSketch window = new HourSketch(precision, compression);
+        LocalDateTime horizon = horizon();
+        LocalDateTime from = startDate.isBefore(horizon) ? horizon : startDate;
+        LocalDateTime to = endDate.plusNanos(1_000); // Inclusive end, at the payment column's microsecond precision
+
+        LocalDateTime firstWholeHour = from.truncatedTo(ChronoUnit.HOURS).equals(from) ?
+                from : from.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime lastWholeHour = to.truncatedTo(ChronoUnit.HOURS);
+
+        if (!firstWholeHour.isBefore(lastWholeHour)) {
+            addRaw(window, from, to);
+        } else {
+            addRaw(window, from, firstWholeHour);
+            for (long hour = hourOf(firstWholeHour); hour < hourOf(lastWholeHour); hour++) {
+                HourSketch sketch = hours.get(hour);
+                if (sketch != null) {
+                    window.mergeFrom(sketch);
+                }
+            }
+            addRaw(window, lastWholeHour, to);
+        }
+
+        return new Summary(window.customers.estimate(), toAmount(window.amounts.quantile(0.5)),
+                toAmount(window.amounts.quantile(0.9)), window.amounts.size(), from, refreshedAt,
+                loaded && !loadFailed && !refreshFailed);
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        long count = 0;
+        try {
+            LocalDateTime lastTime = horizon();
+            int lastId = 0;
+            Timestamp end = Timestamp.valueOf(loadStart);
+            while (true) {
+                List<Object[]> page = jdbcTemplate.query(PAGE_SQL, (rs, rowNum) -> new Object[]{
+                        rs.getInt(1), rs.getTimestamp(2).toLocalDateTime(),
+                        rs.getObject(3) != null ? rs.getInt(3) : null, rs.getBigDecimal(4)
+                }, end, Timestamp.valueOf(lastTime), Timestamp.valueOf(lastTime), lastId, loadPageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                for (Object[] row : page) {
+                    add((LocalDateTime) row[1], (Integer) row[2], (BigDecimal) row[3]);
+                }
+                count += page.size();
+                Object[] last = page.get(page.size() - 1);
+                lastId = (Integer) last[0];
+                lastTime = (LocalDateTime) last[1];
+
+                if (page.size() < loadPageSize) {
+                    break;
+                }
+            }
+            log.info("Built sales sketches for {} hours from {} payments in {} ms",
+                    hours.size(), count, (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            loadFailed = true;
+            log.error("Error building sales sketches after {} payments: {}", count, e.getMessage(), e);
+        } finally {
+            refreshedAt = loadStart;
+            loaded = true;
+        }
+    }
+
+    private void add(LocalDateTime paymentDateTime, Integer customerId, BigDecimal amount) {
+        hours.computeIfAbsent(hourOf(paymentDateTime), hour -> new HourSketch(precision, compression))
+                .add(customerId, amount);
+    }
+
+    // Swap in a fresh sketch of the hour's current rows; readers merge either the old or the new one
+    private void rebuildHour(long hour) {
+        LocalDateTime from = LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC);
+        HourSketch sketch = new HourSketch(precision, compression);
+        addRaw(sketch, from, from.plusHours(1));
+        if (sketch.amounts.size() == 0) {
+            hours.remove(hour);
+        } else {
+            hours.put(hour, sketch);
+        }
+    }
+
+    private void addRaw(HourSketch window, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        jdbcTemplate.query(EDGE_SQL, rs -> {
+            window.add(rs.getObject(1) != null ? rs.getInt(1) : null, rs.getBigDecimal(2));
+        }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private LocalDateTime horizon() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusDays(retentionDays);
+    }
+
+    private static long hourOf(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    private static BigDecimal toAmount(double value) {
+        return Double.isNaN(value) ? BigDecimal.ZERO.setScale(2) : BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // coveredFrom: first instant the sketch covers (the retention horizon when the window starts before it);
+    // refreshedAt: payment changes up to about this time are reflected in the whole hours;
+    // complete is false while the startup build is running or after it or the last refresh failed
+    public record Summary(long uniqueCustomers, BigDecimal medianAmount, BigDecimal p90Amount, long payments,
+                          LocalDateTime coveredFrom, LocalDateTime refreshedAt, boolean complete) {
+    }
+
+    private static final class HourSketch {
+
+        private final HyperLogLog customers;
+        private final TDigest amounts;
+
+        HourSketch(int precision, double compression) {
+            this.customers = new HyperLogLog(precision);
+            this.amounts = new TDigest(compression);
+        }
+
+        // Walk-in payments (no customer) count towards the amounts only
+        synchronized void add(Integer customerId, BigDecimal amount) {
+            if (customerId != null) {
+                customers.add(customerId);
+            }
+            if (amount != null) {
+                amounts.add(amount.doubleValue());
+            }
+        }
+
+        // Caller owns this sketch; the source is locked while it is read
+        void mergeFrom(HourSketch source) {
+            synchronized (source) {
+                customers.merge(source.customers);
+                amounts.merge(source.amounts);
+            }
+        }
+    }
+}
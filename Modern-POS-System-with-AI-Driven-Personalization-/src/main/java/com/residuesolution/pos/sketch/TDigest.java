@@ -0,0 +1,155 @@
+package com.residuesolution.pos.sketch;
+
+import java.util.Arrays;
+
+// Merging t-digest for quantiles: values are buffered, then sorted into centroids whose size is
+// bounded by the arcsine scale function, so centroids stay small near the tails and the median and
+// p90 keep a small rank error with at most ~compression centroids. Merging feeds the other digest's
+// centroids in as weighted points. Not thread-safe, callers guard it.
+public final class TDigest {
+
+    private final double compression;
+
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2 + 8;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[capacity * 4];
+        this.bufferWeights = new double[capacity * 4];
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long size() {
+        return Math.round(totalWeight + pendingWeight());
+    }
+
+    // NaN when empty
+    public double quantile(double q) {
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+
+        double index = q * totalWeight;
+        if (index < weights[0] / 2) {
+            return min + (means[0] - min) * (index / (weights[0] / 2));
+        }
+
+        double cumulative = 0;
+        for (int i = 0; i < centroids - 1; i++) {
+            double left = cumulative + weights[i] / 2;
+            double right = cumulative + weights[i] + weights[i + 1] / 2;
+            if (index < right) {
+                return means[i] + (means[i + 1] - means[i]) * (index - left) / (right - left);
+            }
+            cumulative += weights[i];
+        }
+
+        double lastCenter = totalWeight - weights[centroids - 1] / 2;
+        double tail = (index - lastCenter) / (weights[centroids - 1] / 2);
+        return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1, tail);
+    }
+
+    private void add(double value, double weight) {
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private double pendingWeight() {
+        double pending = 0;
+        for (int i = 0; i < buffered; i++) {
+            pending += bufferWeights[i];
+        }
+        return pending;
+    }
+
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+
+        int n = centroids + buffered;
+        double[] allMeans = Arrays.copyOf(means, n);
+        double[] allWeights = Arrays.copyOf(weights, n);
+        System.arraycopy(bufferMeans, 0, allMeans, centroids, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+        totalWeight += pendingWeight();
+        buffered = 0;
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        // Greedy left-to-right merge: a centroid may grow while it spans at most one unit of k
+        double[] newMeans = new double[means.length];
+        double[] newWeights = new double[weights.length];
+        int count = 0;
+        double weightSoFar = 0;
+        double currentMean = allMeans[order[0]];
+        double currentWeight = allWeights[order[0]];
+
+        for (int j = 1; j < n; j++) {
+            int i = order[j];
+            double proposed = currentWeight + allWeights[i];
+            if (scale(weightSoFar / totalWeight) + 1 >= scale((weightSoFar + proposed) / totalWeight)
+                    && count < newMeans.length - 1) {
+                currentMean += (allMeans[i] - currentMean) * allWeights[i] / proposed;
+                currentWeight = proposed;
+            } else {
+                newMeans[count] = currentMean;
+                newWeights[count] = currentWeight;
+                count++;
+                weightSoFar += currentWeight;
+                currentMean = allMeans[i];
+                currentWeight = allWeights[i];
+            }
+        }
+        newMeans[count] = currentMean;
+        newWeights[count] = currentWeight;
+
+        means = newMeans;
+        weights = newWeights;
+        centroids = count + 1;
+    }
+
+    // k1 scale function: k(q) = compression / (2 pi) * asin(2q - 1)
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+}
@@ -0,0 +1,110 @@
+package com.residuesolution.pos.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// decrementIfAvailable on MySQL itself: 200 checkout lanes race for one product's stock, each sale its own
+// READ COMMITTED transaction, and the conditional UPDATE must never sell more than was on hand. Needs the
+// database of application.yml and is opt-in:
+//   mvn test -Dtest=ProductStockRepositoryOversellTest -Dpos.test.mysql=true
+// Lanes commit for real, so the test uses a product ID no catalogue reaches and deletes its row afterwards.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "pos.test.mysql", matches = "true")
+class ProductStockRepositoryOversellTest {
+
+    private static final int PRODUCT_ID = 2_000_000_026;
+    private static final int INITIAL_STOCK = 2_000;
+    private static final int LANES = 200;
+    private static final int ATTEMPTS_PER_LANE = 50;
+
+    @Autowired
+    private ProductStockRepository productStockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void seedStock() {
+        removeStock();
+        jdbcTemplate.update("INSERT INTO product_stock (product_id, quantity, shard_count, updated_at) " +
+                "VALUES (?, ?, 0, NOW())", PRODUCT_ID, INITIAL_STOCK);
+    }
+
+    @AfterEach
+    void removeStock() {
+        jdbcTemplate.update("DELETE FROM product_stock WHERE product_id = ?", PRODUCT_ID);
+    }
+
+    @Test
+    void twoHundredLanesNeverOversell() throws Exception {
+        TransactionTemplate sale = new TransactionTemplate(transactionManager);
+        sale.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        AtomicLong sold = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(LANES);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> lanes = new ArrayList<>(LANES);
+            for (int i = 0; i < LANES; i++) {
+                lanes.add(executor.submit(() -> {
+                    start.await();
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_LANE; attempt++) {
+                        int quantity = ThreadLocalRandom.current().nextInt(1, 6);
+                        Integer updated = sale.execute(status ->
+                                productStockRepository.decrementIfAvailable(PRODUCT_ID, quantity));
+                        if (updated != null && updated == 1) {
+                            sold.addAndGet(quantity);
+                        } else {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> lane : lanes) {
+                lane.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Integer left = jdbcTemplate.queryForObject("SELECT quantity FROM product_stock WHERE product_id = ?",
+                Integer.class, PRODUCT_ID);
+        assertTrue(sold.get() <= INITIAL_STOCK, "Sold " + sold + " of " + INITIAL_STOCK);
+        assertEquals(INITIAL_STOCK - sold.get(), left.longValue(), "Every accepted sale is taken from stock exactly once");
+        assertTrue(left >= 0, "Stock may never go negative: " + left);
+        assertTrue(rejected.get() > 0, "Demand exceeds stock, so some sales must be refused");
+        assertTrue(left < 5, "Stock left over although lanes still asked for it: " + left);
+    }
+}
@@ -0,0 +1,176 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.entity.PaymentEntity;
+import com.residuesolution.pos.repository.PaymentRepository;
+import com.residuesolution.pos.repository.SalesHourlyRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Memory and latency of the analytics paths over a 90-day window: the original one (hydrate every payment,
+// filter in Java), the grouped aggregate used by getPerformanceAnalytics, the grouped raw sales summary, and
+// the sales_hourly rollup read by getSalesAnalytics. Needs the MySQL database of application.yml and is opt-in:
+//   mvn test -Dtest=AnalyticsReportServiceImplBenchmarkTest -Dpos.benchmark.analytics=true [-Dpos.benchmark.payments=500000]
+// Payments are seeded in the year 2001 inside the test transaction, which is rolled back afterwards.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "pos.benchmark.analytics", matches = "true")
+class AnalyticsReportServiceImplBenchmarkTest {
+
+    private static final LocalDateTime WINDOW_START = LocalDateTime.of(2001, 1, 1, 0, 0);
+    private static final LocalDateTime WINDOW_END = WINDOW_START.plusDays(90);
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 10;
+
+    private static final String[] METHODS = {"CASH", "CARD", "WALLET"};
+    private static final String[] STATUSES = {"COMPLETED", "COMPLETED", "COMPLETED", "COMPLETED", "COMPLETED",
+            "COMPLETED", "REFUNDED", "PARTIALLY_REFUNDED", "FAILED", "CANCELLED"};
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private SalesHourlyRepository salesHourlyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void compareAnalyticsPaths() {
+        int payments = Integer.getInteger("pos.benchmark.payments", 200_000);
+        seedPayments(payments);
+        salesHourlyRepository.deleteBetween(WINDOW_START, WINDOW_END);
+        salesHourlyRepository.rebuildBetween(WINDOW_START, WINDOW_END);
+
+        Result legacy = measure("legacy: load entities, filter in Java", this::legacyPaymentSummary);
+        Result aggregate = measure("getPaymentSummaryBetweenDates", () ->
+                toSummary(paymentRepository.getPaymentSummaryBetweenDates(WINDOW_START, WINDOW_END).get(0)));
+        Result grouped = measure("getSalesSummary (raw, grouped)", () ->
+                completedTotals(paymentRepository.getSalesSummary(WINDOW_START, WINDOW_END)));
+        Result rollup = measure("sales_hourly rollup", () ->
+                completedTotals(salesHourlyRepository.summarize(WINDOW_START, WINDOW_END)));
+
+        System.out.printf("Analytics over %,d payments in 90 days%n", payments);
+        System.out.printf("%-40s %12s %12s %16s%n", "path", "median ms", "p90 ms", "allocated KB");
+        for (Result result : List.of(legacy, aggregate, grouped, rollup)) {
+            System.out.printf("%-40s %12.1f %12.1f %,16d%n", result.name(), result.medianMillis(), result.p90Millis(),
+                    result.allocatedBytes() / 1024);
+        }
+
+        assertEquals(legacy.value(), aggregate.value(), "Both paths must report the same figures");
+        List<?> completed = ((List<?>) legacy.value()).subList(0, 2);
+        assertEquals(completed, grouped.value(), "getSalesSummary must count COMPLETED payments like the legacy path");
+        assertEquals(completed, rollup.value(), "The rollup must count COMPLETED payments like the legacy path");
+        assertTrue(aggregate.allocatedBytes() * 10 < legacy.allocatedBytes(),
+                "The aggregate should allocate a small fraction of the legacy path");
+        assertTrue(rollup.allocatedBytes() * 10 < legacy.allocatedBytes(),
+                "The rollup should allocate a small fraction of the legacy path");
+    }
+
+    // What getSalesAnalytics and getPerformanceAnalytics did before aggregating in the database
+    private List<Object> legacyPaymentSummary() {
+        List<PaymentEntity> payments = paymentRepository.findPaymentsBetweenDates(WINDOW_START, WINDOW_END);
+
+        BigDecimal totalRevenue = payments.stream()
+                .filter(p -> "COMPLETED".equals(p.getPaymentStatus().toString()))
+                .map(PaymentEntity::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long completed = payments.stream()
+                .filter(p -> "COMPLETED".equals(p.getPaymentStatus().toString()))
+                .count();
+
+        return List.of(totalRevenue.stripTrailingZeros(), completed, (long) payments.size());
+    }
+
+    private static List<Object> toSummary(Object[] row) {
+        return List.of(new BigDecimal(row[0].toString()).stripTrailingZeros(),
+                ((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+    }
+
+    // [completedRevenue, completedCount] summed over the [method, gateway] groups of a sales summary
+    private static List<Object> completedTotals(List<Object[]> rows) {
+        BigDecimal revenue = BigDecimal.ZERO;
+        long count = 0;
+        for (Object[] row : rows) {
+            count += ((Number) row[5]).longValue();
+            revenue = revenue.add(new BigDecimal(row[6].toString()));
+        }
+        return List.of(revenue.stripTrailingZeros(), count);
+    }
+
+    // Runs on the test thread so its allocation counter covers the call, mapping included; the persistence
+    // context is cleared after every run so the legacy path hydrates its entities afresh each time
+    private Result measure(String name, Supplier<Object> path) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        Object value = null;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            value = path.get();
+            entityManager.clear();
+        }
+
+        double[] millis = new double[MEASURED_RUNS];
+        long allocated = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long started = System.nanoTime();
+            value = path.get();
+            millis[i] = (System.nanoTime() - started) / 1e6;
+            allocated += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            entityManager.clear();
+        }
+
+        Arrays.sort(millis);
+        return new Result(name, millis[MEASURED_RUNS / 2], millis[MEASURED_RUNS * 9 / 10], allocated / MEASURED_RUNS, value);
+    }
+
+    private void seedPayments(int count) {
+        Random random = new Random(41);
+        long windowSeconds = Duration.between(WINDOW_START, WINDOW_END).toSeconds();
+        List<Object[]> batch = new ArrayList<>(5_000);
+
+        for (int i = 0; i < count; i++) {
+            Timestamp paymentDateTime = Timestamp.valueOf(WINDOW_START.plusSeconds(random.nextLong(windowSeconds)));
+            String status = STATUSES[random.nextInt(STATUSES.length)];
+            BigDecimal amount = BigDecimal.valueOf(100 + random.nextInt(50_000), 2);
+            BigDecimal refunded = "REFUNDED".equals(status) ? amount
+                    : "PARTIALLY_REFUNDED".equals(status) ? amount.divide(BigDecimal.valueOf(2), 2, RoundingMode.DOWN)
+                    : BigDecimal.ZERO;
+            batch.add(new Object[]{i, random.nextInt(20_000), 1 + random.nextInt(20), amount,
+                    METHODS[random.nextInt(METHODS.length)], status, "STRIPE", paymentDateTime, paymentDateTime,
+                    paymentDateTime, refunded});
+
+            if (batch.size() == 5_000 || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO payment (order_id, customer_id, processed_by_user_id, amount, " +
+                        "payment_method, payment_status, gateway, payment_date_time, created_at, updated_at, " +
+                        "refunded_amount, is_refundable) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private record Result(String name, double medianMillis, double p90Millis, long allocatedBytes, Object value) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.entity.ProductStockEntity;
+import com.residuesolution.pos.entity.ProductStockShardEntity;
+import com.residuesolution.pos.repository.ProductStockRepository;
+import com.residuesolution.pos.repository.ProductStockShardRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Stock rows of one product (base row + shards) behind mocked repositories, with InnoDB's locking rules
+// under READ COMMITTED: a matching conditional UPDATE keeps its row lock until commit, a non-matching one
+// releases it at once, FOR UPDATE locks rows in key order, plain reads don't lock. commitDelayMicros
+// stands in for the rest of the transaction (log insert, commit fsync) during which the locks stay held.
+class InMemoryStockRows {
+
+    final int productId;
+    final ProductStockRepository productStockRepository = mock(ProductStockRepository.class, withSettings().stubOnly());
+    final ProductStockShardRepository productStockShardRepository =
+            mock(ProductStockShardRepository.class, withSettings().stubOnly());
+
+    private final Row base;
+    private final Row[] shards;
+    private final long commitDelayMicros;
+    private final ThreadLocal<List<Row>> held = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<List<Runnable>> writeBacks = ThreadLocal.withInitial(ArrayList::new);
+
+    InMemoryStockRows(int productId, int baseQuantity, int[] shardQuantities, long commitDelayMicros) {
+        this.productId = productId;
+        this.base = new Row(baseQuantity);
+        this.shards = new Row[shardQuantities.length];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Row(shardQuantities[i]);
+        }
+        this.commitDelayMicros = commitDelayMicros;
+        stubRepositories();
+    }
+
+    // Runs one service call as a transaction: row locks it took are released after the commit delay
+    <T> T inTransaction(Supplier<T> call) {
+        try {
+            T result = call.get();
+            if (commitDelayMicros > 0 && !held.get().isEmpty()) {
+                sleepMicros(commitDelayMicros);
+            }
+            writeBacks.get().forEach(Runnable::run);
+            return result;
+        } finally {
+            writeBacks.get().clear();
+            for (Row row : held.get()) {
+                row.lock.unlock();
+            }
+            held.get().clear();
+        }
+    }
+
+    int total() {
+        int total = base.quantity.get();
+        for (Row shard : shards) {
+            total += shard.quantity.get();
+        }
+        return total;
+    }
+
+    int minRowQuantity() {
+        int min = base.quantity.get();
+        for (Row shard : shards) {
+            min = Math.min(min, shard.quantity.get());
+        }
+        return min;
+    }
+
+    private void stubRepositories() {
+        int shardCount = shards.length > 1 ? shards.length : 0;
+
+        when(productStockRepository.decrementIfAvailable(eq(productId), anyInt()))
+                .thenAnswer(invocation -> conditionalDecrement(base, invocation.getArgument(1)));
+        when(productStockShardRepository.decrementShardIfAvailable(eq(productId), anyInt(), anyInt()))
+                .thenAnswer(invocation -> conditionalDecrement(shards[(Integer) invocation.getArgument(1)],
+                        invocation.getArgument(2)));
+        when(productStockRepository.findTotalQuantityByProductId(productId))
+                .thenAnswer(invocation -> (long) total());
+        when(productStockRepository.findShardCountByProductId(productId)).thenReturn(shardCount);
+        when(productStockRepository.findByShardCountGreaterThan(1)).thenReturn(shardCount > 1
+                ? List.of(new ProductStockEntity(productId, 0, shardCount, null, null, null))
+                : List.of());
+
+        when(productStockRepository.findByProductIdForUpdate(productId)).thenAnswer(invocation -> {
+            lock(base);
+            ProductStockEntity entity = new ProductStockEntity(productId, base.quantity.get(), shardCount, null, null, null);
+            writeBacks.get().add(() -> base.quantity.set(entity.getQuantity()));
+            return Optional.of(entity);
+        });
+        when(productStockShardRepository.findByProductIdForUpdate(productId)).thenAnswer(invocation -> {
+            List<ProductStockShardEntity> entities = new ArrayList<>();
+            for (int shardNo = 0; shardNo < shards.length && shardCount > 1; shardNo++) {
+                Row shard = shards[shardNo];
+                lock(shard);
+                ProductStockShardEntity entity = new ProductStockShardEntity(productId, shardNo, shard.quantity.get(), null);
+                writeBacks.get().add(() -> shard.quantity.set(entity.getQuantity()));
+                entities.add(entity);
+            }
+            return entities;
+        });
+    }
+
+    private int conditionalDecrement(Row row, int quantity) {
+        lock(row);
+        if (row.quantity.get() < quantity) {
+            unlock(row); // READ COMMITTED: a row the WHERE clause rejects is unlocked right away
+            return 0;
+        }
+        row.quantity.addAndGet(-quantity);
+        return 1;
+    }
+
+    private void lock(Row row) {
+        if (!row.lock.isHeldByCurrentThread()) {
+            row.lock.lock();
+            held.get().add(row);
+        }
+    }
+
+    private void unlock(Row row) {
+        if (held.get().remove(row)) {
+            row.lock.unlock();
+        }
+    }
+
+    private static void sleepMicros(long micros) {
+        long deadline = System.nanoTime() + micros * 1_000;
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(0, 100_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class Row {
+
+        final AtomicInteger quantity;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Row(int quantity) {
+            this.quantity = new AtomicInteger(quantity);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.cache.StockCache;
+import com.residuesolution.pos.entity.ProductStockEntity;
+import com.residuesolution.pos.repository.ProductStockRepository;
+import com.residuesolution.pos.repository.ProductStockShardRepository;
+import com.residuesolution.pos.repository.StockReservationRepository;
+import com.residuesolution.pos.service.LowStockAlertService;
+import com.residuesolution.pos.service.ProductStockService.StockCount;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Counts taken while reservations hold units: the held units were already taken out of product_stock when
+// they were reserved, so a count that includes them must not put them back
+class ProductStockServiceImplCountTest {
+
+    private final ProductStockRepository productStockRepository = mock(ProductStockRepository.class);
+    private final ProductStockShardRepository productStockShardRepository = mock(ProductStockShardRepository.class);
+    private final StockReservationRepository stockReservationRepository = mock(StockReservationRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final ProductStockServiceImpl service = new ProductStockServiceImpl(productStockRepository,
+            productStockShardRepository, stockReservationRepository, mock(StockCache.class),
+            mock(LowStockAlertService.class), jdbcTemplate);
+
+    @Test
+    void adjustmentWhileHoldIsLiveKeepsHeldUnitsOutOfStock() {
+        // 10 on the shelf, 3 of them held for a checkout: product_stock says 7
+        ProductStockEntity stock = new ProductStockEntity(42, 7, 0, null, null, null);
+        when(productStockRepository.findByProductIdForUpdate(42)).thenReturn(Optional.of(stock));
+        when(stockReservationRepository.sumQuantityByProductIdIn(List.of(42)))
+                .thenReturn(List.<Object[]>of(new Object[]{42, 3L}));
+
+        StockCount count = service.setStock(42, 10);
+
+        assertEquals(new StockCount(7, 3, 7), count);
+        assertEquals(7, stock.getQuantity(), "Committing the hold as a sale must leave 7 sellable, not 10");
+    }
+
+    @Test
+    void cycleCountWhileHoldsAreLiveSubtractsThemPerProduct() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int[] row : new int[][]{{42, 7, 0}, {43, 5, 0}, {44, 2, 0}}) {
+                when(rs.getInt(1)).thenReturn(row[0]);
+                when(rs.getInt(2)).thenReturn(row[1]);
+                when(rs.getInt(3)).thenReturn(row[2]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        when(stockReservationRepository.sumQuantityByProductIdIn(List.of(42, 43, 44)))
+                .thenReturn(List.of(new Object[]{42, 3L}, new Object[]{44, 6L}));
+
+        // 42: 9 counted, 3 held -> 6. 43: nothing held, count matches. 44: 4 counted, 6 held -> floored at 0
+        StockCount[] counts = service.setStock(new int[]{42, 43, 44}, new int[]{9, 5, 4});
+
+        assertArrayEquals(new StockCount[]{new StockCount(7, 3, 6), new StockCount(5, 0, 5), new StockCount(2, 6, 0)},
+                counts);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), upserts.capture());
+        assertEquals(2, upserts.getValue().size());
+        assertEquals(List.of(42, 6), List.of(upserts.getValue().get(0)[0], upserts.getValue().get(0)[1]));
+        assertEquals(List.of(44, 0), List.of(upserts.getValue().get(1)[0], upserts.getValue().get(1)[1]));
+    }
+}
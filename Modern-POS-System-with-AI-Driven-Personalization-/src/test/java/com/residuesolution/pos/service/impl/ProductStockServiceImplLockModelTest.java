@@ -0,0 +1,109 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.cache.StockCache;
+import com.residuesolution.pos.repository.StockReservationRepository;
+import com.residuesolution.pos.service.LowStockAlertService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+// decreaseStock against InMemoryStockRows, a model of InnoDB's row locks behind mocked repositories: many
+// checkout lanes on one hot product must never sell more than was in stock, sharded or not. This checks the
+// service's control flow (shard order, fallback, drain under lock), not the conditional-decrement SQL itself;
+// ProductStockRepositoryOversellTest runs that against MySQL (opt-in)
+class ProductStockServiceImplLockModelTest {
+
+    private static final int PRODUCT_ID = 42;
+    private static final int LANES = 200;
+    private static final int ATTEMPTS_PER_LANE = 50;
+
+    @Test
+    void lockModelTwoHundredLanesNeverOversellUnshardedProduct() throws Exception {
+        assertNoOversell(new InMemoryStockRows(PRODUCT_ID, 2_000, new int[0], 0));
+    }
+
+    @Test
+    void lockModelTwoHundredLanesNeverOversellShardedProduct() throws Exception {
+        int[] shards = new int[8];
+        Arrays.fill(shards, 240);
+        assertNoOversell(new InMemoryStockRows(PRODUCT_ID, 80, shards, 0)); // 2,000 units, some on the base row
+    }
+
+    private void assertNoOversell(InMemoryStockRows rows) throws Exception {
+        ProductStockServiceImpl service = newService(rows);
+        int initial = rows.total();
+        AtomicLong sold = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicBoolean negativeLevel = new AtomicBoolean();
+
+        runLanes(LANES, () -> {
+            for (int i = 0; i < ATTEMPTS_PER_LANE; i++) {
+                int quantity = ThreadLocalRandom.current().nextInt(1, 6);
+                Integer newStock = rows.inTransaction(() -> service.decreaseStock(PRODUCT_ID, quantity));
+                if (newStock == null) {
+                    rejected.incrementAndGet();
+                } else {
+                    sold.addAndGet(quantity);
+                    if (newStock < 0) {
+                        negativeLevel.set(true);
+                    }
+                }
+            }
+        });
+
+        assertTrue(sold.get() <= initial, "Sold " + sold + " of " + initial);
+        assertEquals(initial - sold.get(), rows.total(), "Every accepted sale is taken from stock exactly once");
+        assertTrue(rows.minRowQuantity() >= 0, "No stock row may go negative");
+        assertFalse(negativeLevel.get(), "No sale may report a negative stock level");
+        assertTrue(rejected.get() > 0, "Demand exceeds stock, so some sales must be refused");
+        assertTrue(rows.total() < 5, "Stock left over although lanes still asked for it: " + rows.total());
+    }
+
+    static ProductStockServiceImpl newService(InMemoryStockRows rows) {
+        ProductStockServiceImpl service = new ProductStockServiceImpl(rows.productStockRepository,
+                rows.productStockShardRepository,
+                mock(StockReservationRepository.class, withSettings().stubOnly()),
+                mock(StockCache.class, withSettings().stubOnly()),
+                mock(LowStockAlertService.class, withSettings().stubOnly()),
+                null);
+        service.loadShardedProducts();
+        return service;
+    }
+
+    static void runLanes(int lanes, Runnable lane) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(lanes);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>(lanes);
+            for (int i = 0; i < lanes; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    lane.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
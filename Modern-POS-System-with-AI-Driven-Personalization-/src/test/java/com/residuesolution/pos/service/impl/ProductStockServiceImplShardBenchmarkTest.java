@@ -0,0 +1,56 @@
+package com.residuesolution.pos.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// decreaseStock throughput on one hot product by shard count, against InMemoryStockRows: each successful
+// decrement holds its row lock for 1 ms (the rest of a checkout transaction), so a single row serializes
+// the lanes and shards should spread them. Timing-dependent, hence opt-in:
+//   mvn test -Dtest=ProductStockServiceImplShardBenchmarkTest -Dpos.benchmark.shards=true
+@EnabledIfSystemProperty(named = "pos.benchmark.shards", matches = "true")
+class ProductStockServiceImplShardBenchmarkTest {
+
+    private static final int PRODUCT_ID = 42;
+    private static final int LANES = 64;
+    private static final long RUN_MILLIS = 1_000;
+
+    @Test
+    void throughputScalesWithShardCount() throws Exception {
+        Map<Integer, Double> throughput = new LinkedHashMap<>();
+        for (int shardCount : new int[]{1, 4, 16}) {
+            int[] shards = new int[shardCount > 1 ? shardCount : 0];
+            Arrays.fill(shards, 1_000_000);
+            InMemoryStockRows rows = new InMemoryStockRows(PRODUCT_ID, shardCount > 1 ? 0 : 1_000_000, shards, 1_000);
+            throughput.put(shardCount, measureThroughput(rows));
+        }
+
+        assertTrue(throughput.get(4) > throughput.get(1) * 2,
+                "4 shards should more than double single-row throughput (ops/s by shard count): " + throughput);
+        assertTrue(throughput.get(16) > throughput.get(1) * 3,
+                "16 shards should more than triple single-row throughput (ops/s by shard count): " + throughput);
+    }
+
+    private static double measureThroughput(InMemoryStockRows rows) throws Exception {
+        ProductStockServiceImpl service = ProductStockServiceImplLockModelTest.newService(rows);
+        AtomicLong completed = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+
+        long started = System.nanoTime();
+        ProductStockServiceImplLockModelTest.runLanes(LANES, () -> {
+            while (System.nanoTime() < deadline) {
+                if (rows.inTransaction(() -> service.decreaseStock(PRODUCT_ID, 1)) != null) {
+                    completed.incrementAndGet();
+                }
+            }
+        });
+        return completed.get() * 1e9 / (System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,100 @@
+package com.residuesolution.pos.service.impl;
+
+import com.residuesolution.pos.dto.AnalyticsReport;
+import com.residuesolution.pos.repository.AnalyticsReportRepository;
+import com.residuesolution.pos.service.AnalyticsReportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Bulk generation shares the worker pool and the per-user limit with single submissions, and a report
+// that misses the deadline is cancelled on its row so the generator cannot save it afterwards
+class ReportJobServiceImplBulkTest {
+
+    private static final Map<String, Integer> REPORT_IDS = Map.of("sales", 1, "inventory", 2, "customer", 3, "performance", 4);
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(30);
+
+    private final AnalyticsReportService analyticsReportService = mock(AnalyticsReportService.class);
+    private final AnalyticsReportRepository analyticsReportRepository = mock(AnalyticsReportRepository.class);
+    private final ReportJobServiceImpl service = new ReportJobServiceImpl(analyticsReportService,
+            analyticsReportRepository, 4, 100, 2, 60, 500);
+
+    private final AtomicInteger computing = new AtomicInteger();
+    private final AtomicInteger maxComputing = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void bulkStaysWithinUserLimitAndCancelsTheReportThatTimesOut() {
+        when(analyticsReportService.createPendingReport(anyString(), anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> pending(invocation.getArgument(0)));
+        when(analyticsReportService.completeReport(anyInt(), anyString(), any(), any())).thenAnswer(invocation -> {
+            int running = computing.incrementAndGet();
+            maxComputing.accumulateAndGet(running, Math::max);
+            try {
+                if ("customer".equals(invocation.getArgument(1))) {
+                    new CountDownLatch(1).await(); // Stuck until the deadline interrupts it
+                }
+                Thread.sleep(20);
+                return "COMPLETED";
+            } finally {
+                computing.decrementAndGet();
+            }
+        });
+        when(analyticsReportService.cancelReport(anyInt())).thenReturn(true);
+
+        Map<String, Object> results = service.generateBulkReports("admin", "admin", START, END, Map.of());
+
+        assertEquals(Map.of("sales", 1, "inventory", 2, "customer", "TimedOut", "performance", 4), results);
+        assertTrue(maxComputing.get() <= 2, "At most max-per-user reports may compute at once");
+        verify(analyticsReportService).cancelReport(3);
+        verify(analyticsReportService, never()).cancelReport(eq(1));
+    }
+
+    @Test
+    void bulkIsRejectedWhenUserHasNoFreeSlot() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(analyticsReportService.createPendingReport(anyString(), anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> pending(invocation.getArgument(0)));
+        when(analyticsReportService.completeReport(anyInt(), anyString(), any(), any())).thenAnswer(invocation -> {
+            release.await();
+            return "COMPLETED";
+        });
+
+        service.submitReport("sales", "admin", "admin", START, END, Map.of());
+        service.submitReport("inventory", "admin", "admin", START, END, Map.of());
+
+        assertThrows(RejectedExecutionException.class,
+                () -> service.generateBulkReports("admin", "admin", START, END, Map.of()));
+        release.countDown();
+    }
+
+    private static AnalyticsReport pending(String reportType) {
+        AnalyticsReport report = new AnalyticsReport();
+        report.setId(REPORT_IDS.get(reportType));
+        report.setReportType(reportType);
+        report.setStatus("GENERATING");
+        return report;
+    }
+}